@@ -1,5 +1,6 @@
 package com.toaker.framework.demo;
 
+import com.android.volley.toolbox.JsonModel;
 import com.android.volley.toolbox.ResponseWrapper;
 import com.google.gson.annotations.SerializedName;
 
@@ -8,6 +9,7 @@ import java.util.List;
 /**
  * Created by Daniel on 2014/12/17.
  */
+@JsonModel
 public class HomeData implements ResponseWrapper{
 
     /**
@@ -41,6 +43,7 @@ public class HomeData implements ResponseWrapper{
     /**
      * 活动列表的条目
      */
+    @JsonModel
     public static class ActListItem {
 
         @SerializedName("id")
@@ -16,12 +16,14 @@
  */
 package com.toaker.framework.demo;
 
+import com.android.volley.toolbox.JsonModel;
 import com.android.volley.toolbox.ResponseWrapper;
 
 /**
  * author : Soulwolf Create by 2015/5/27 16:53
  * email  : ToakerQin@gmail.com.
  */
+@JsonModel
 public class ResultData implements ResponseWrapper {
 
     public int status;
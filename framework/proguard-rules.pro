@@ -15,3 +15,9 @@
 #-keepclassmembers class fqcn.of.javascript.interface.for.webview {
 #   public *;
 #}
+
+# The adapters of @JsonModel types are created by name: the generated
+# <Model>$$JsonAdapter next to the model, or the class named by the annotation.
+-keepnames @com.android.volley.toolbox.JsonModel class *
+-keep class **$$JsonAdapter { <init>(); }
+-keep class * extends com.android.volley.toolbox.JsonModelAdapter { <init>(); }
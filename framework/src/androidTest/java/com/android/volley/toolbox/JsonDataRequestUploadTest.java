@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright 2013-2014 Toaker framework-master
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.android.volley.toolbox;
+
+import android.test.AndroidTestCase;
+
+import com.android.volley.ListenerWrapper;
+import com.android.volley.Request;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs on a device, the upload progress is posted to the main looper.
+ */
+public class JsonDataRequestUploadTest extends AndroidTestCase {
+
+    private File small;
+
+    private File large;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        small = createFile("small.txt", 100);
+        // spans several reads of the 16 KB file buffer
+        large = createFile("large.bin", 1024 * 1024 + 7);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        small.delete();
+        large.delete();
+        super.tearDown();
+    }
+
+    public void testWrittenBodyMatchesStreamingLengthAndReachesFullProgress() throws Exception {
+        RequestParameter params = new RequestParameter();
+        params.add("name", "upload");
+        params.add("small", small);
+        params.add("large", large);
+        Progress progress = new Progress();
+        JsonDataRequest<ResponseWrapper> request = new JsonDataRequest<ResponseWrapper>(
+                ResponseWrapper.class, Request.Method.POST, "http://localhost/upload", params, progress);
+        assertTrue(request.hasStreamingBody());
+
+        long length = request.getStreamingBodyLength();
+        assertTrue(length > small.length() + large.length());
+
+        CountingOutputStream out = new CountingOutputStream();
+        request.writeBody(out);
+        assertEquals(length, out.count);
+        assertTrue(progress.complete.await(10, TimeUnit.SECONDS));
+        assertEquals(length, progress.total);
+        assertEquals(length, progress.current);
+
+        // a retry writes the same entity again
+        out = new CountingOutputStream();
+        request.writeBody(out);
+        assertEquals(length, out.count);
+    }
+
+    private File createFile(String name, int size) throws IOException {
+        File file = new File(getContext().getCacheDir(), name);
+        byte[] buffer = new byte[4096];
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            for (int written = 0; written < size; written += buffer.length) {
+                out.write(buffer, 0, Math.min(buffer.length, size - written));
+            }
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+
+        long count;
+
+        @Override
+        public void write(int oneByte) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int count) {
+            this.count += count;
+        }
+    }
+
+    private static class Progress extends ListenerWrapper<ResponseWrapper> {
+
+        final CountDownLatch complete = new CountDownLatch(1);
+
+        volatile long total;
+
+        volatile long current;
+
+        @Override
+        public void onSuccess(ResponseWrapper response) {
+        }
+
+        @Override
+        public void onError(VolleyErrorWrapper error) {
+        }
+
+        @Override
+        public void onLoading(long total, long current) {
+            this.total = total;
+            this.current = current;
+            if (current == total) {
+                complete.countDown();
+            }
+        }
+    }
+}
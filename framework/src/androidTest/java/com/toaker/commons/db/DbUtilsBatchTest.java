@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright 2013-2014 Toaker framework-master
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.toaker.commons.db;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+
+import com.toaker.commons.db.annotation.Table;
+import com.toaker.commons.db.annotation.Unique;
+import com.toaker.commons.db.callback.DbResponseCallBack;
+import com.toaker.commons.db.exception.DbException;
+import com.toaker.commons.db.sqlite.Selector;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs on a device, the savepoints of a write batch go through the SQLiteDatabase of the platform.
+ */
+public class DbUtilsBatchTest extends AndroidTestCase {
+
+    private DbUtils db;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        db = DbUtils.create(getContext(), "batch_test.db").configAllowTransaction(true);
+        db.dropTable(Item.class);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        db.dropTable(Item.class);
+        super.tearDown();
+    }
+
+    public void testFailedWriteOfBatchKeepsTheOthers() throws Exception {
+        db.saveBindingId(new Item("taken"));
+
+        Item blocker = new Item("blocker");
+        Item first = new Item("first");
+        Item second = new Item("second");
+        Item duplicate = new Item("taken");
+        Item third = new Item("third");
+        CountDownLatch done = new CountDownLatch(4);
+        Result<Boolean> blockerResult = new Result<Boolean>(done);
+        Result<Boolean> firstResult = new Result<Boolean>(done);
+        Result<Void> secondResult = new Result<Void>(done);
+        Result<Boolean> thirdResult = new Result<Boolean>(done);
+
+        // the writer thread waits for the database with the blocker, the other three queue up
+        // meanwhile and are executed as one batch
+        SQLiteDatabase database = db.getDatabase();
+        database.beginTransaction();
+        try {
+            db.saveBindingId(blocker, blockerResult);
+            db.saveBindingId(first, firstResult);
+            db.saveBindingIdAll(Arrays.asList(second, duplicate), secondResult);
+            db.saveBindingId(third, thirdResult);
+        } finally {
+            database.endTransaction();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        assertNull(blockerResult.error);
+        assertNull(firstResult.error);
+        assertNotNull(secondResult.error);
+        assertNull(thirdResult.error);
+
+        assertEquals("first", db.findById(Item.class, first.getId()).getName());
+        assertEquals("third", db.findById(Item.class, third.getId()).getName());
+        assertNull(db.findFirst(Selector.from(Item.class).where("name", "=", "second")));
+        assertEquals(4, db.count(Item.class));
+
+        // the rolled back insert gave its id back
+        assertEquals(0, second.getId());
+        assertEquals(0, duplicate.getId());
+    }
+
+    private static class Result<T> implements DbResponseCallBack<T> {
+
+        private final CountDownLatch done;
+
+        volatile DbException error;
+
+        Result(CountDownLatch done) {
+            this.done = done;
+        }
+
+        @Override
+        public void onAccessSuccess(T response) {
+            done.countDown();
+        }
+
+        @Override
+        public void onAccessError(DbException error) {
+            this.error = error;
+            done.countDown();
+        }
+    }
+
+    @Table(name = "batch_item")
+    public static class Item {
+
+        private int id;
+
+        @Unique
+        private String name;
+
+        public Item() {
+        }
+
+        Item(String name) {
+            this.name = name;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+}
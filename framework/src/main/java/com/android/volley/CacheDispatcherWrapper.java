@@ -28,6 +28,11 @@ import java.util.concurrent.BlockingQueue;
  * {@link com.android.volley.ResponseDelivery}.  Cache misses and responses that require
  * refresh are enqueued on the specified network queue for processing
  * by a {@link com.android.volley.NetworkDispatcher}.
+ *
+ * A fresh entry is delivered as the final response. An entry past its soft TTL is
+ * delivered as an intermediate response and revalidated with If-None-Match and
+ * If-Modified-Since, unless the request does not need a refresh. The listener only
+ * hears from the revalidation if the content changed.
  */
 public class CacheDispatcherWrapper extends CacheDispatcher{
 
@@ -91,16 +96,19 @@ public class CacheDispatcherWrapper extends CacheDispatcher{
                         new NetworkResponse(entry.data, entry.responseHeaders));
                 request.addMarker("cache-hit-parsed");
 
-                // Completely unexpired cache hit. Just deliver the response.
-                if(request.shouldCache()){
-                    if(response != null){
-                        response.setIsCache(true);
-                    }
-                    mDelivery.postResponse(request, response);
+                // 缓存内容无法解析，当作没有缓存
+                if (response == null || !response.isSuccess()) {
+                    request.addMarker("cache-hit-parse-error");
+                    mNetworkQueue.put(request);
+                    continue;
                 }
+                response.setIsCache(true);
 
-                // 检查是否需要刷新，
-                if (request.refreshNeeded()){
+                // 软过期之前不刷新，请求不需要刷新时也不刷新
+                if (!entry.refreshNeeded() || !request.refreshNeeded()) {
+                    // Completely unexpired cache hit. Just deliver the response.
+                    mDelivery.postResponse(request, response);
+                } else {
                     // Soft-expired cache hit. We can deliver the cached response,
                     // but we need to also send the request to the network for
                     // refreshing.
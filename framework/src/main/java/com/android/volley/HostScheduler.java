@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.volley;
+
+import android.net.Uri;
+import android.text.TextUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Caps the number of requests the network dispatchers of a {@link RequestQueue} perform
+ * for one host at the same time, so a burst of image loads from a CDN leaves dispatchers
+ * free for the requests of other hosts.
+ *
+ * A request over the cap is held back by {@link #acquire(Request)} and put back into the
+ * network queue, highest priority first, when a request for its host is released.
+ */
+public class HostScheduler {
+
+    /** Running requests by host, guarded by this. */
+    private final Map<String, Integer> mRunning = new HashMap<String, Integer>();
+
+    /** Held back requests by host, guarded by this. */
+    private final Map<String, PriorityQueue<Request<?>>> mDeferred =
+            new HashMap<String, PriorityQueue<Request<?>>>();
+
+    /** The queue held back requests are put back into. */
+    private final BlockingQueue<Request<?>> mNetworkQueue;
+
+    private volatile int mMaxRequestsPerHost;
+
+    /**
+     * @param networkQueue The queue of the network dispatchers
+     * @param maxRequestsPerHost Number of requests performed for one host at the same time
+     */
+    public HostScheduler(BlockingQueue<Request<?>> networkQueue, int maxRequestsPerHost) {
+        mNetworkQueue = networkQueue;
+        setMaxRequestsPerHost(maxRequestsPerHost);
+    }
+
+    public void setMaxRequestsPerHost(int maxRequestsPerHost) {
+        if (maxRequestsPerHost < 1) {
+            throw new IllegalArgumentException("maxRequestsPerHost < 1");
+        }
+        mMaxRequestsPerHost = maxRequestsPerHost;
+    }
+
+    public int getMaxRequestsPerHost() {
+        return mMaxRequestsPerHost;
+    }
+
+    /**
+     * Takes a slot for the host of the request.
+     * @return true if the request may be performed now, false if it was held back
+     */
+    public synchronized boolean acquire(Request<?> request) {
+        String host = getHost(request);
+        Integer running = mRunning.get(host);
+        int count = running == null ? 0 : running;
+        if (count >= mMaxRequestsPerHost) {
+            PriorityQueue<Request<?>> deferred = mDeferred.get(host);
+            if (deferred == null) {
+                deferred = new PriorityQueue<Request<?>>();
+                mDeferred.put(host, deferred);
+            }
+            deferred.add(request);
+            return false;
+        }
+        mRunning.put(host, count + 1);
+        return true;
+    }
+
+    /**
+     * Returns the slot taken by {@link #acquire(Request)} and puts the first request held
+     * back for the host into the network queue.
+     */
+    public void release(Request<?> request) {
+        String host = getHost(request);
+        Request<?> next = null;
+        synchronized (this) {
+            Integer running = mRunning.get(host);
+            if (running == null || running <= 1) {
+                mRunning.remove(host);
+            } else {
+                mRunning.put(host, running - 1);
+            }
+            PriorityQueue<Request<?>> deferred = mDeferred.get(host);
+            if (deferred != null) {
+                next = deferred.poll();
+                if (deferred.isEmpty()) {
+                    mDeferred.remove(host);
+                }
+            }
+        }
+        if (next != null) {
+            mNetworkQueue.add(next);
+        }
+    }
+
+    private static String getHost(Request<?> request) {
+        String url = request.getUrl();
+        if (!TextUtils.isEmpty(url)) {
+            Uri uri = Uri.parse(url);
+            if (uri != null && uri.getHost() != null) {
+                return uri.getHost();
+            }
+        }
+        return "";
+    }
+}
@@ -31,6 +31,9 @@ import java.util.concurrent.BlockingQueue;
  * specified {@link Network} interface. Responses are committed to cache, if
  * eligible, using a specified {@link Cache} interface. Valid responses and
  * errors are posted back to the caller via a {@link ResponseDelivery}.
+ *
+ * Requests past their deadline are dropped with a {@link TimeoutError}, and requests
+ * for a host already served by enough dispatchers are held back by a {@link HostScheduler}.
  */
 public class NetworkDispatcher extends Thread {
     /** The queue of requests to service. */
@@ -41,6 +44,8 @@ public class NetworkDispatcher extends Thread {
     private final Cache mCache;
     /** For posting responses and errors. */
     private final ResponseDelivery mDelivery;
+    /** Caps the requests per host, null for no cap. */
+    private final HostScheduler mScheduler;
     /** Used for telling us to die. */
     private volatile boolean mQuit = false;
 
@@ -56,10 +61,27 @@ public class NetworkDispatcher extends Thread {
     public NetworkDispatcher(BlockingQueue<Request<?>> queue,
             Network network, Cache cache,
             ResponseDelivery delivery) {
+        this(queue, network, cache, delivery, null);
+    }
+
+    /**
+     * Creates a new network dispatcher thread.  You must call {@link #start()}
+     * in order to begin processing.
+     *
+     * @param queue Queue of incoming requests for triage
+     * @param network Network interface to use for performing requests
+     * @param cache Cache interface to use for writing responses to cache
+     * @param delivery Delivery interface to use for posting responses
+     * @param scheduler Scheduler shared by the dispatchers of the queue, or null
+     */
+    public NetworkDispatcher(BlockingQueue<Request<?>> queue,
+            Network network, Cache cache,
+            ResponseDelivery delivery, HostScheduler scheduler) {
         mQueue = queue;
         mNetwork = network;
         mCache = cache;
         mDelivery = delivery;
+        mScheduler = scheduler;
     }
 
     /**
@@ -96,16 +118,40 @@ public class NetworkDispatcher extends Thread {
                 continue;
             }
 
-            try {
-                request.addMarker("network-queue-take");
+            request.addMarker("network-queue-take");
 
-                // If the request was cancelled already, do not perform the
-                // network request.
-                if (request.isCanceled()) {
-                    request.finish("network-discard-cancelled");
-                    continue;
+            // If the request was cancelled already, do not perform the
+            // network request.
+            if (request.isCanceled()) {
+                request.finish("network-discard-cancelled");
+                continue;
+            }
+
+            // Its caller no longer waits for a request past its deadline. The requests coalesced
+            // on it may, the queue performs the first of them in its place.
+            RequestQueue queue = request.getRequestQueue();
+            if (request.isPastDeadline()) {
+                request.addMarker("network-discard-deadline");
+                if (queue != null) {
+                    queue.postExpired(request, new TimeoutError());
+                } else {
+                    mDelivery.postError(request, new TimeoutError());
                 }
+                continue;
+            }
 
+            // Requests with a body are coalesced here, see RequestQueue#add(Request).
+            if (queue != null && queue.coalesceDispatched(request)) {
+                continue;
+            }
+
+            // The scheduler puts the request back when a request for its host completes.
+            if (mScheduler != null && !mScheduler.acquire(request)) {
+                request.addMarker("network-host-deferred");
+                continue;
+            }
+
+            try {
                 addTrafficStatsTag(request);
 
                 // Perform the network request.
@@ -113,14 +159,21 @@ public class NetworkDispatcher extends Thread {
                 request.addMarker("network-http-complete");
 
                 // If the server returned 304 AND we delivered a response already,
-                // we're done -- don't deliver a second identical response.
+                // we're done -- don't deliver a second identical response. The network
+                // refreshed the cache entry already.
                 if (networkResponse.notModified && request.hasHadResponseDelivered()) {
                     request.finish("not-modified");
                     continue;
                 }
 
-                // Parse the response here on the worker thread.
-                Response<?> response = request.parseNetworkResponse(networkResponse);
+                Response<?> response;
+                if (networkResponse instanceof StreamedNetworkResponse) {
+                    // Parsed and cached by the network while the body was received.
+                    response = ((StreamedNetworkResponse) networkResponse).response;
+                } else {
+                    // Parse the response here on the worker thread.
+                    response = request.parseNetworkResponse(networkResponse);
+                }
                 request.addMarker("network-parse-complete");
 
                 if(response != null){
@@ -145,6 +198,10 @@ public class NetworkDispatcher extends Thread {
                 VolleyError volleyError = new VolleyError(e);
                 volleyError.setNetworkTimeMs(SystemClock.elapsedRealtime() - startTimeMs);
                 mDelivery.postError(request, volleyError);
+            } finally {
+                if (mScheduler != null) {
+                    mScheduler.release(request);
+                }
             }
         }
     }
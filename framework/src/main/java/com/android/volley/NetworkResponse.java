@@ -30,7 +30,8 @@ public class NetworkResponse {
      * @param statusCode the HTTP status code
      * @param data Response body
      * @param headers Headers returned with this response, or null for none
-     * @param notModified True if the server returned a 304 and the data was already in cache
+     * @param notModified True if the server returned a 304, or the cached data again, and the
+     *        data was already in cache
      * @param networkTimeMs Round-trip network time to receive network response
      */
     public NetworkResponse(int statusCode, byte[] data, Map<String, String> headers,
@@ -64,7 +65,7 @@ public class NetworkResponse {
     /** Response headers. */
     public final Map<String, String> headers;
 
-    /** True if the server returned a 304 (Not Modified). */
+    /** True if the server returned a 304 (Not Modified) or the same body as the cache entry. */
     public final boolean notModified;
 
     /** Network roundtrip time in milliseconds. */
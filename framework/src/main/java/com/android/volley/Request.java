@@ -87,6 +87,18 @@ public abstract class Request<T> implements Comparable<Request<T>>,RequestWrappe
     /** Whether or not responses to this request should be cached. */
     private boolean mRefreshNeeded = true;
 
+    /** Whether or not a large body of this request may be sent gzipped. */
+    private boolean mShouldCompressBody = false;
+
+    /** Whether or not this request may share the response of an identical one in flight, null for the default. */
+    private Boolean mShouldCoalesce;
+
+    /** The priority of this request, null for the one of {@link #getPriority()}. */
+    private Priority mPriority;
+
+    /** Time in {@link SystemClock#elapsedRealtime()} after which this request is dropped, 0 for none. */
+    private long mDeadlineMs = 0;
+
     /** Whether or not this request has been canceled. */
     private boolean mCanceled = false;
 
@@ -263,6 +275,13 @@ public abstract class Request<T> implements Comparable<Request<T>>,RequestWrappe
         return this;
     }
 
+    /**
+     * Returns the queue this request was added to, or null.
+     */
+    public RequestQueue getRequestQueue() {
+        return mRequestQueue;
+    }
+
     /**
      * Sets the sequence number of this request.  Used by {@link RequestQueue}.
      *
@@ -297,6 +316,50 @@ public abstract class Request<T> implements Comparable<Request<T>>,RequestWrappe
         return getUrl();
     }
 
+    /**
+     * Returns the key identical requests in flight at the same time are coalesced on, or
+     * null if this request is always performed on its own. Together with the body, see
+     * {@link #getCoalescingBody()}, it must determine the parsed response, so subclasses
+     * parsing to a type or size given at construction should add it to the key.
+     */
+    public String getCoalescingKey() {
+        return getMethod() + ":" + getClass().getName() + ":" + getUrl();
+    }
+
+    /**
+     * Returns true if the method of this request sends a body, which identical requests
+     * must also share to be coalesced.
+     */
+    @SuppressWarnings("deprecation")
+    boolean hasCoalescingBody() {
+        switch (mMethod) {
+            case Method.DEPRECATED_GET_OR_POST:
+            case Method.POST:
+            case Method.PUT:
+            case Method.PATCH:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns the body identical requests must also share to be coalesced, null for none.
+     */
+    @SuppressWarnings("deprecation")
+    byte[] getCoalescingBody() throws AuthFailureError {
+        switch (mMethod) {
+            case Method.DEPRECATED_GET_OR_POST:
+                return getPostBody();
+            case Method.POST:
+            case Method.PUT:
+            case Method.PATCH:
+                return getBody();
+            default:
+                return null;
+        }
+    }
+
     /**
      * Annotates this request with an entry retrieved for it from cache.
      * Used for cache coherency support.
@@ -489,6 +552,45 @@ public abstract class Request<T> implements Comparable<Request<T>>,RequestWrappe
         return mShouldCache;
     }
 
+    /**
+     * Set whether or not a large body of this request may be sent gzipped, with a
+     * "Content-Encoding: gzip" header. Only enable this for servers that accept it.
+     */
+    public final Request<?> setShouldCompressBody(boolean shouldCompressBody) {
+        mShouldCompressBody = shouldCompressBody;
+        return this;
+    }
+
+    /**
+     * Returns true if a large body of this request may be sent gzipped.
+     */
+    public final boolean shouldCompressBody() {
+        return mShouldCompressBody;
+    }
+
+    /**
+     * Set whether or not this request may share the response of an identical request
+     * already in flight instead of being performed again, see {@link #getCoalescingKey()}.
+     * The listeners of coalesced requests receive the same response object. By default only
+     * GET and HEAD requests are coalesced, the other methods may change state on the server.
+     *
+     * @return This Request object to allow for chaining.
+     */
+    public final Request<?> setShouldCoalesce(boolean shouldCoalesce) {
+        mShouldCoalesce = shouldCoalesce;
+        return this;
+    }
+
+    /**
+     * Returns true if this request may share the response of an identical one in flight.
+     */
+    public final boolean shouldCoalesce() {
+        if (mShouldCoalesce != null) {
+            return mShouldCoalesce;
+        }
+        return mMethod == Method.GET || mMethod == Method.HEAD;
+    }
+
     /**
      * Priority values.  Requests will be processed from higher priorities to
      * lower priorities, in FIFO order.
@@ -500,11 +602,41 @@ public abstract class Request<T> implements Comparable<Request<T>>,RequestWrappe
         IMMEDIATE
     }
 
+    /**
+     * Set the {@link Priority} of this request. Requests for content on screen should be
+     * {@link Priority#HIGH}, prefetches {@link Priority#LOW}.
+     *
+     * @return This Request object to allow for chaining.
+     */
+    public final Request<?> setPriority(Priority priority) {
+        mPriority = priority;
+        return this;
+    }
+
     /**
      * Returns the {@link Priority} of this request; {@link Priority#NORMAL} by default.
      */
     public Priority getPriority() {
-        return Priority.NORMAL;
+        return mPriority != null ? mPriority : Priority.NORMAL;
+    }
+
+    /**
+     * Set how long this request may wait for a network dispatcher. If it has not been sent
+     * when the time is up, it is dropped with a {@link TimeoutError}.
+     *
+     * @param timeoutMs The time from now in milliseconds, 0 for no deadline.
+     * @return This Request object to allow for chaining.
+     */
+    public final Request<?> setDeadline(long timeoutMs) {
+        mDeadlineMs = timeoutMs > 0 ? SystemClock.elapsedRealtime() + timeoutMs : 0;
+        return this;
+    }
+
+    /**
+     * Returns true if this request has a deadline and it has passed.
+     */
+    public final boolean isPastDeadline() {
+        return mDeadlineMs > 0 && SystemClock.elapsedRealtime() > mDeadlineMs;
     }
 
     /**
@@ -20,8 +20,11 @@ import android.os.Handler;
 import android.os.Looper;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -61,6 +64,24 @@ public class RequestQueue {
     private final Map<String, Queue<Request<?>>> mWaitingRequests =
             new HashMap<String, Queue<Request<?>>>();
 
+    /**
+     * Requests in flight which identical requests may share the response of, by coalescing
+     * key, see {@link Request#getCoalescingKey()}. Guarded by itself, as are
+     * {@link #mInFlightByRequest} and {@link #mCoalescedRequests}.
+     */
+    private final Map<String, InFlightRequest> mInFlightRequests =
+            new HashMap<String, InFlightRequest>();
+
+    /** The same flights by the request performed for them. */
+    private final Map<Request<?>, InFlightRequest> mInFlightByRequest =
+            new IdentityHashMap<Request<?>, InFlightRequest>();
+
+    /**
+     * Requests waiting for, or delivered, the response of an identical request, which were
+     * coalesced before they were dispatched.
+     */
+    private final Set<Request<?>> mCoalescedRequests = new HashSet<Request<?>>();
+
     /**
      * The set of all requests currently being processed by this RequestQueue. A Request
      * will be in this set if it is waiting in any queue or currently being processed by
@@ -77,7 +98,7 @@ public class RequestQueue {
         new PriorityBlockingQueue<Request<?>>();
 
     /** Number of network request dispatcher threads to start. */
-    private static final int DEFAULT_NETWORK_THREAD_POOL_SIZE = 4;
+    public static final int DEFAULT_NETWORK_THREAD_POOL_SIZE = 4;
 
     /** Cache interface for retrieving and storing responses. */
     private final Cache mCache;
@@ -86,11 +107,14 @@ public class RequestQueue {
     private final Network mNetwork;
 
     /** Response delivery mechanism. */
-    private final ResponseDelivery mDelivery;
+    private final CoalescingDelivery mDelivery;
 
     /** The network dispatchers. */
     private NetworkDispatcher[] mDispatchers;
 
+    /** Caps the requests the network dispatchers perform for one host at the same time. */
+    private final HostScheduler mHostScheduler;
+
     /** The cache dispatcher. */
     private CacheDispatcher mCacheDispatcher;
 
@@ -110,7 +134,9 @@ public class RequestQueue {
         mCache = cache;
         mNetwork = network;
         mDispatchers = new NetworkDispatcher[threadPoolSize];
-        mDelivery = delivery;
+        mDelivery = new CoalescingDelivery(delivery);
+        // one dispatcher stays free for the other hosts, unless that leaves one for a host
+        mHostScheduler = new HostScheduler(mNetworkQueue, Math.max(2, threadPoolSize - 1));
     }
 
     /**
@@ -147,7 +173,7 @@ public class RequestQueue {
         // Create network dispatchers (and corresponding threads) up to the pool size.
         for (int i = 0; i < mDispatchers.length; i++) {
             NetworkDispatcher networkDispatcher = new NetworkDispatcher(mNetworkQueue, mNetwork,
-                    mCache, mDelivery);
+                    mCache, mDelivery, mHostScheduler);
             mDispatchers[i] = networkDispatcher;
             networkDispatcher.start();
         }
@@ -174,6 +200,13 @@ public class RequestQueue {
         return mSequenceGenerator.incrementAndGet();
     }
 
+    /**
+     * Sets how many requests the network dispatchers perform for one host at the same time.
+     */
+    public void setMaxRequestsPerHost(int maxRequestsPerHost) {
+        mHostScheduler.setMaxRequestsPerHost(maxRequestsPerHost);
+    }
+
     /**
      * Gets the {@link Cache} instance being used.
      */
@@ -235,10 +268,82 @@ public class RequestQueue {
         request.setSequence(getSequenceNumber());
         request.addMarker("add-to-queue");
 
+        // Share the response of an identical request in flight, if any. Requests with a body
+        // are coalesced by the network dispatcher, not to build and hash it on this thread.
+        if (request.shouldCoalesce() && !request.hasCoalescingBody() && coalesce(request, true)) {
+            return request;
+        }
+
+        dispatch(request);
+        return request;
+    }
+
+    /**
+     * Called by the network dispatchers before performing a request with a body, see
+     * {@link #add(Request)}.
+     * @return true if the request waits for the response of another one and must not be performed
+     */
+    boolean coalesceDispatched(Request<?> request) {
+        if (!request.shouldCoalesce() || !request.hasCoalescingBody()) {
+            return false;
+        }
+        synchronized (mInFlightRequests) {
+            if (mInFlightByRequest.containsKey(request)) {
+                // put back by the host scheduler, or promoted
+                return false;
+            }
+        }
+        return coalesce(request, false);
+    }
+
+    /**
+     * Attaches the request to an identical request in flight, or records it as in flight.
+     * @param undispatched Whether the request was neither dispatched nor staged by cache key yet
+     * @return true if the request waits for the response of another one
+     */
+    private boolean coalesce(Request<?> request, boolean undispatched) {
+        String key = request.getCoalescingKey();
+        if (key == null) {
+            return false;
+        }
+        byte[] body;
+        try {
+            body = request.getCoalescingBody();
+        } catch (AuthFailureError e) {
+            return false;
+        }
+        if (body != null) {
+            key = key + "#" + body.length + ":" + Arrays.hashCode(body);
+        }
+        synchronized (mInFlightRequests) {
+            InFlightRequest inFlight = mInFlightRequests.get(key);
+            if (inFlight == null) {
+                putInFlight(new InFlightRequest(key, request, body));
+                return false;
+            }
+            if (!Arrays.equals(inFlight.body, body)) {
+                return false;
+            }
+            inFlight.followers.add(request);
+            if (undispatched) {
+                mCoalescedRequests.add(request);
+            }
+        }
+        request.addMarker("coalesced");
+        if (VolleyLog.DEBUG) {
+            VolleyLog.v("Request for key=%s is in flight, sharing its response.", key);
+        }
+        return true;
+    }
+
+    /**
+     * Sends the request to the cache or network queue.
+     */
+    private void dispatch(Request<?> request) {
         // If the request is uncacheable, skip the cache queue and go straight to the network.
         if (!request.shouldCache()) {
             mNetworkQueue.add(request);
-            return request;
+            return;
         }
 
         // Insert request into stage if there's already a request with the same cache key in flight.
@@ -261,7 +366,6 @@ public class RequestQueue {
                 mWaitingRequests.put(cacheKey, null);
                 mCacheQueue.add(request);
             }
-            return request;
         }
     }
 
@@ -283,6 +387,13 @@ public class RequestQueue {
           }
         }
 
+        synchronized (mInFlightRequests) {
+            if (mCoalescedRequests.remove(request)) {
+                // it was never dispatched, nor staged by cache key
+                return;
+            }
+        }
+
         if (request.shouldCache()) {
             synchronized (mWaitingRequests) {
                 String cacheKey = request.getCacheKey();
@@ -298,6 +409,149 @@ public class RequestQueue {
                 }
             }
         }
+
+        if (request.shouldCoalesce()) {
+            releaseFollowers(request);
+        }
+    }
+
+    /**
+     * Called when a request in flight finished without a final response, e.g. because it
+     * was canceled before it reached the network. Requests waiting for its response are
+     * finished if it delivered them one, otherwise the first of them is dispatched in its
+     * place and the others wait for that one.
+     */
+    private void releaseFollowers(Request<?> request) {
+        List<Request<?>> finished = new ArrayList<Request<?>>();
+        Request<?> promoted = null;
+        boolean undispatched = false;
+        synchronized (mInFlightRequests) {
+            InFlightRequest inFlight = removeInFlight(request);
+            if (inFlight == null) {
+                return;
+            }
+            Iterator<Request<?>> iterator = inFlight.followers.iterator();
+            while (iterator.hasNext()) {
+                Request<?> follower = iterator.next();
+                if (follower.isCanceled() || follower.hasHadResponseDelivered()) {
+                    // canceled, or the intermediate response was all there is
+                    iterator.remove();
+                    finished.add(follower);
+                } else if (promoted == null) {
+                    iterator.remove();
+                    promoted = follower;
+                }
+            }
+            if (promoted != null) {
+                undispatched = mCoalescedRequests.remove(promoted);
+                InFlightRequest next = new InFlightRequest(inFlight.key, promoted, inFlight.body);
+                next.followers.addAll(inFlight.followers);
+                putInFlight(next);
+            }
+        }
+        for (Request<?> follower : finished) {
+            follower.finish("coalesced-released");
+        }
+        if (promoted != null) {
+            promoted.addMarker("coalesced-promoted");
+            if (undispatched) {
+                dispatch(promoted);
+            } else {
+                // coalesced by a network dispatcher, it passed the cache already
+                mNetworkQueue.add(promoted);
+            }
+        }
+    }
+
+    /**
+     * Fails a request past its deadline on its own. The requests waiting for its response
+     * may still be in time, the first of them is performed in its place once it finished.
+     */
+    void postExpired(Request<?> request, VolleyError error) {
+        mDelivery.mDelegate.postError(request, error);
+    }
+
+    private void putInFlight(InFlightRequest inFlight) {
+        mInFlightRequests.put(inFlight.key, inFlight);
+        mInFlightByRequest.put(inFlight.request, inFlight);
+    }
+
+    private InFlightRequest removeInFlight(Request<?> request) {
+        InFlightRequest inFlight = mInFlightByRequest.remove(request);
+        if (inFlight != null) {
+            mInFlightRequests.remove(inFlight.key);
+        }
+        return inFlight;
+    }
+
+    /**
+     * A request in flight and the identical requests waiting for its response.
+     */
+    private static class InFlightRequest {
+        private final String key;
+        private final Request<?> request;
+        private final byte[] body;
+        private final List<Request<?>> followers = new LinkedList<Request<?>>();
+
+        private InFlightRequest(String key, Request<?> request, byte[] body) {
+            this.key = key;
+            this.request = request;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Delivers every response and error of a request in flight to the requests waiting
+     * for it as well. A final one ends the flight, later identical requests are performed
+     * again.
+     */
+    private class CoalescingDelivery implements ResponseDelivery {
+        private final ResponseDelivery mDelegate;
+
+        private CoalescingDelivery(ResponseDelivery delegate) {
+            mDelegate = delegate;
+        }
+
+        @Override
+        public void postResponse(Request<?> request, Response<?> response) {
+            postResponse(request, response, null);
+        }
+
+        @Override
+        public void postResponse(Request<?> request, Response<?> response, Runnable runnable) {
+            List<Request<?>> followers = getFollowers(request, !response.intermediate);
+            mDelegate.postResponse(request, response, runnable);
+            if (followers != null) {
+                for (Request<?> follower : followers) {
+                    mDelegate.postResponse(follower, response);
+                }
+            }
+        }
+
+        @Override
+        public void postError(Request<?> request, VolleyError error) {
+            List<Request<?>> followers = getFollowers(request, true);
+            mDelegate.postError(request, error);
+            if (followers != null) {
+                for (Request<?> follower : followers) {
+                    mDelegate.postError(follower, error);
+                }
+            }
+        }
+
+        private List<Request<?>> getFollowers(Request<?> request, boolean last) {
+            if (!request.shouldCoalesce()) {
+                return null;
+            }
+            synchronized (mInFlightRequests) {
+                InFlightRequest inFlight = last
+                        ? removeInFlight(request) : mInFlightByRequest.get(request);
+                if (inFlight == null) {
+                    return null;
+                }
+                return inFlight.followers.isEmpty() ? null : new ArrayList<Request<?>>(inFlight.followers);
+            }
+        }
     }
 
     public  <T> void addRequestFinishedListener(RequestFinishedListener<T> listener) {
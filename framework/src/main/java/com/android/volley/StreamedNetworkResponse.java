@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.volley;
+
+import java.util.Map;
+
+/**
+ * A {@link NetworkResponse} whose body was parsed by the {@link Network} while it was
+ * received, see {@link com.android.volley.toolbox.StreamingRequest}. The body itself
+ * is not kept, the cache entry has already been written if the request should be cached.
+ */
+public class StreamedNetworkResponse extends NetworkResponse {
+    /**
+     * @param statusCode the HTTP status code
+     * @param headers Headers returned with this response
+     * @param response The parsed response
+     * @param networkTimeMs Round-trip network time to receive and parse the response
+     */
+    public StreamedNetworkResponse(int statusCode, Map<String, String> headers,
+            Response<?> response, long networkTimeMs) {
+        super(statusCode, null, headers, false, networkTimeMs);
+        this.response = response;
+    }
+
+    /** The response parsed from the stream. */
+    public final Response<?> response;
+}
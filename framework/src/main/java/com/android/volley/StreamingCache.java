@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.volley;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A {@link Cache} that can store an entry while its data is still being received.
+ */
+public interface StreamingCache extends Cache {
+    /**
+     * Opens a stream for the data of an entry, the data of the given entry is ignored.
+     * The entry replaces the one of the key when the stream is closed, unless
+     * {@link EntryOutputStream#abort()} was called before.
+     * @param key Cache key
+     * @param entry Metadata of the entry
+     * @throws IOException if the entry cannot be written
+     */
+    public EntryOutputStream openOutputStream(String key, Entry entry) throws IOException;
+
+    /**
+     * Stream for the data of a cache entry.
+     */
+    public static abstract class EntryOutputStream extends OutputStream {
+        /**
+         * Discards the data written so far, closing the stream afterwards stores nothing.
+         */
+        public abstract void abort();
+    }
+}
@@ -26,6 +26,7 @@ package com.android.volley.entry;
 import android.text.TextUtils;
 import android.util.Log;
 
+import com.android.volley.toolbox.ByteArrayPool;
 import com.loopj.android.http.AsyncHttpClient;
 import com.loopj.android.http.RequestParams;
 import com.loopj.android.http.ResponseHandlerInterface;
@@ -41,19 +42,31 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
 /**
  * Simplified multipart entity mainly used for sending one or more files.
+ * Files are read while the entity is written, they are never held in memory.
  */
 public class SimpleMultipartEntity implements HttpEntity {
 
+    /**
+     * Receives the progress of {@link #writeTo(OutputStream)}, on the writing thread.
+     */
+    public interface ProgressListener {
+        public void onProgress(long bytesWritten, long totalSize);
+    }
+
     private static final String LOG_TAG = "SimpleMultipartEntity";
 
     private static final String STR_CR_LF = "\r\n";
     private static final byte[] CR_LF = STR_CR_LF.getBytes();
+    private static final int FILE_BUFFER_SIZE = 16 * 1024;
+
     private static final byte[] TRANSFER_ENCODING_BINARY =
             ("Content-Transfer-Encoding: binary" + STR_CR_LF).getBytes();
 
@@ -76,6 +89,8 @@ public class SimpleMultipartEntity implements HttpEntity {
 
     private long totalSize;
 
+    private ProgressListener progressListener;
+
     public SimpleMultipartEntity() {
         final StringBuilder buf = new StringBuilder();
         final Random rand = new Random();
@@ -88,6 +103,10 @@ public class SimpleMultipartEntity implements HttpEntity {
         boundaryEnd = ("--" + boundary + "--" + STR_CR_LF).getBytes();
     }
 
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
     public void addPart(String key, String value, String contentType) {
         try {
             out.write(boundaryLine);
@@ -135,10 +154,15 @@ public class SimpleMultipartEntity implements HttpEntity {
         out.write(CR_LF);
 
         // Stream (file)
-        final byte[] tmp = new byte[4096];
-        int l;
-        while ((l = inputStream.read(tmp)) != -1) {
-            out.write(tmp, 0, l);
+        final ByteArrayPool pool = ByteArrayPool.getDefault();
+        final byte[] tmp = pool.getBuf(4096);
+        try {
+            int l;
+            while ((l = inputStream.read(tmp)) != -1) {
+                out.write(tmp, 0, l);
+            }
+        } finally {
+            pool.returnBuf(tmp);
         }
 
         out.write(CR_LF);
@@ -171,7 +195,9 @@ public class SimpleMultipartEntity implements HttpEntity {
 
     private void updateProgress(long count) {
         bytesWritten += count;
-        //progressHandler.sendProgressMessage(bytesWritten, totalSize);
+        if (progressListener != null) {
+            progressListener.onProgress(bytesWritten, totalSize);
+        }
     }
 
     private class FilePart {
@@ -214,17 +240,28 @@ public class SimpleMultipartEntity implements HttpEntity {
             out.write(header);
             updateProgress(header.length);
 
+            ByteArrayPool pool = ByteArrayPool.getDefault();
             FileInputStream inputStream = new FileInputStream(file);
-            final byte[] tmp = new byte[4096];
-            int bytesRead;
-            while ((bytesRead = inputStream.read(tmp)) != -1) {
-                out.write(tmp, 0, bytesRead);
-                updateProgress(bytesRead);
+            try {
+                FileChannel channel = inputStream.getChannel();
+                final byte[] tmp = pool.getBuf(FILE_BUFFER_SIZE);
+                try {
+                    ByteBuffer buffer = ByteBuffer.wrap(tmp);
+                    int bytesRead;
+                    while ((bytesRead = channel.read(buffer)) != -1) {
+                        out.write(tmp, 0, bytesRead);
+                        buffer.clear();
+                        updateProgress(bytesRead);
+                    }
+                } finally {
+                    pool.returnBuf(tmp);
+                }
+            } finally {
+                AsyncHttpClient.silentCloseInputStream(inputStream);
             }
             out.write(CR_LF);
             updateProgress(CR_LF.length);
             out.flush();
-            AsyncHttpClient.silentCloseInputStream(inputStream);
         }
     }
 
@@ -273,7 +310,7 @@ public class SimpleMultipartEntity implements HttpEntity {
     @Override
     public void writeTo(final OutputStream outstream) throws IOException {
         bytesWritten = 0;
-        totalSize = (int) getContentLength();
+        totalSize = getContentLength();
         out.writeTo(outstream);
         updateProgress(out.size());
 
@@ -26,8 +26,11 @@ import com.android.volley.NetworkError;
 import com.android.volley.NetworkResponse;
 import com.android.volley.NoConnectionError;
 import com.android.volley.Request;
+import com.android.volley.Response;
 import com.android.volley.RetryPolicy;
 import com.android.volley.ServerError;
+import com.android.volley.StreamedNetworkResponse;
+import com.android.volley.StreamingCache;
 import com.android.volley.TimeoutError;
 import com.android.volley.VolleyError;
 import com.android.volley.VolleyLog;
@@ -40,10 +43,12 @@ import org.apache.http.StatusLine;
 import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.impl.cookie.DateUtils;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.SocketTimeoutException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -59,8 +64,6 @@ public class BasicNetwork implements Network {
 
     private static int SLOW_REQUEST_THRESHOLD_MS = 3000;
 
-    private static int DEFAULT_POOL_SIZE = 4096;
-
     protected final HttpStack mHttpStack;
 
     protected final ByteArrayPool mPool;
@@ -69,9 +72,9 @@ public class BasicNetwork implements Network {
      * @param httpStack HTTP stack to be used
      */
     public BasicNetwork(HttpStack httpStack) {
-        // If a pool isn't passed in, then build a small default pool that will give us a lot of
-        // benefit and not use too much memory.
-        this(httpStack, new ByteArrayPool(DEFAULT_POOL_SIZE));
+        // If a pool isn't passed in, then share the default pool with the cache and the
+        // multipart writers.
+        this(httpStack, ByteArrayPool.getDefault());
     }
 
     /**
@@ -113,10 +116,32 @@ public class BasicNetwork implements Network {
                     // have to use the header fields from the cache entry plus
                     // the new ones from the response.
                     // http://www.w3.org/Protocols/rfc2616/rfc2616-sec10.html#sec10.3.5
-                    entry.responseHeaders.putAll(responseHeaders);
-                    return new NetworkResponse(HttpStatus.SC_NOT_MODIFIED, entry.data,
-                            entry.responseHeaders, true,
+                    // The cached map may be immutable, e.g. empty when read from disk.
+                    Map<String, String> mergedHeaders =
+                            new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+                    if (entry.responseHeaders != null) {
+                        mergedHeaders.putAll(entry.responseHeaders);
+                    }
+                    mergedHeaders.putAll(responseHeaders);
+                    NetworkResponse notModified = new NetworkResponse(HttpStatus.SC_NOT_MODIFIED,
+                            entry.data, mergedHeaders, true,
                             SystemClock.elapsedRealtime() - requestStart);
+                    refreshCacheEntry(request, notModified);
+                    return notModified;
+                }
+
+                // Parse the body while it is received if the request asks for it.
+                if (statusCode >= 200 && statusCode <= 299 && httpResponse.getEntity() != null
+                        && request instanceof StreamingRequest
+                        && ((StreamingRequest<?>) request).shouldStream()) {
+                    NetworkResponse headersResponse = new NetworkResponse(statusCode, null,
+                            responseHeaders, false);
+                    Response<?> response = streamEntity(request, (StreamingRequest<?>) request,
+                            httpResponse.getEntity(), headersResponse);
+                    long requestLifetime = SystemClock.elapsedRealtime() - requestStart;
+                    logSlowRequests(requestLifetime, request, null, statusLine);
+                    return new StreamedNetworkResponse(statusCode, responseHeaders, response,
+                            requestLifetime);
                 }
 
                 // Some responses such as 204s do not have content.  We must check.
@@ -135,8 +160,17 @@ public class BasicNetwork implements Network {
                 if (statusCode < 200 || statusCode > 299) {
                     throw new IOException();
                 }
-                return new NetworkResponse(statusCode, responseContents, responseHeaders, false,
-                        SystemClock.elapsedRealtime() - requestStart);
+                // A revalidation without validators may return the cached body again.
+                Entry entry = request.getCacheEntry();
+                boolean unchanged = entry != null && entry.data != null
+                        && Arrays.equals(entry.data, responseContents);
+                NetworkResponse networkResponse = new NetworkResponse(statusCode, responseContents,
+                        responseHeaders, unchanged, SystemClock.elapsedRealtime() - requestStart);
+                if (unchanged) {
+                    request.addMarker("network-unchanged");
+                    refreshCacheEntry(request, networkResponse);
+                }
+                return networkResponse;
             } catch (SocketTimeoutException e) {
                 attemptRetryOnException("socket", request, new TimeoutError());
             } catch (ConnectTimeoutException e) {
@@ -203,6 +237,25 @@ public class BasicNetwork implements Network {
         request.addMarker(String.format("%s-retry [timeout=%s]", logPrefix, oldTimeout));
     }
 
+    /**
+     * Updates the TTLs and headers of the cache entry of a revalidated request whose content
+     * did not change. Only needed once the cached response was delivered, the dispatcher
+     * does not parse such a response and so does not cache it.
+     */
+    private void refreshCacheEntry(Request<?> request, NetworkResponse networkResponse) {
+        if (!request.shouldCache() || !request.hasHadResponseDelivered()
+                || request.getRequestQueue() == null) {
+            return;
+        }
+        Cache.Entry entry = request instanceof StreamingRequest
+                ? ((StreamingRequest<?>) request).parseCacheHeaders(networkResponse)
+                : HttpHeaderParser.parseCacheHeaders(networkResponse);
+        if (entry != null) {
+            request.getRequestQueue().getCache().put(request.getCacheKey(), entry);
+            request.addMarker("network-cache-refreshed");
+        }
+    }
+
     private void addCacheHeaders(Map<String, String> headers, Cache.Entry entry) {
         // If there's no cache entry, we're done.
         if (entry == null) {
@@ -216,6 +269,10 @@ public class BasicNetwork implements Network {
         if (entry.lastModified > 0) {
             Date refTime = new Date(entry.lastModified);
             headers.put("If-Modified-Since", DateUtils.formatDate(refTime));
+        } else if (entry.serverDate > 0) {
+            // the content was current when it was served
+            Date refTime = new Date(entry.serverDate);
+            headers.put("If-Modified-Since", DateUtils.formatDate(refTime));
         }
     }
 
@@ -254,6 +311,159 @@ public class BasicNetwork implements Network {
         }
     }
 
+    /**
+     * Hands the content of the HttpEntity to the parser of the request, writing the bytes to
+     * the cache as they are read.
+     */
+    private Response<?> streamEntity(Request<?> request, StreamingRequest<?> streamingRequest,
+            HttpEntity entity, NetworkResponse response) throws IOException, ServerError {
+        StreamingCache.EntryOutputStream cacheStream =
+                openCacheStream(request, streamingRequest, response);
+        boolean cached = false;
+        byte[] buffer = null;
+        try {
+            InputStream in = entity.getContent();
+            if (in == null) {
+                throw new ServerError();
+            }
+            TeeInputStream body = new TeeInputStream(in, cacheStream);
+            Response<?> parsed = streamingRequest.parseNetworkStream(response, body);
+            if (body.mReadFailure != null) {
+                // The parser reports a failed read as a parse error, it is a network error.
+                throw body.mReadFailure;
+            }
+            if (parsed != null && parsed.isSuccess() && cacheStream != null) {
+                // The parser may stop before the end, the cache needs the whole body.
+                buffer = mPool.getBuf(1024);
+                while (body.read(buffer) != -1) {
+                }
+                cached = body.mCacheFailure == null;
+            }
+            return parsed;
+        } finally {
+            if (cacheStream != null) {
+                if (!cached) {
+                    cacheStream.abort();
+                }
+                try {
+                    cacheStream.close();
+                } catch (IOException e) {
+                    VolleyLog.d("Could not cache %s: %s", request.getCacheKey(), e.toString());
+                }
+            }
+            try {
+                entity.consumeContent();
+            } catch (IOException e) {
+                VolleyLog.v("Error occured when calling consumingContent");
+            }
+            mPool.returnBuf(buffer);
+        }
+    }
+
+    /**
+     * Opens the cache entry the body of a streamed request is written to, or returns null
+     * if it should not or cannot be cached.
+     */
+    private StreamingCache.EntryOutputStream openCacheStream(Request<?> request,
+            StreamingRequest<?> streamingRequest, NetworkResponse response) {
+        if (!request.shouldCache() || request.getRequestQueue() == null) {
+            return null;
+        }
+        Cache cache = request.getRequestQueue().getCache();
+        if (!(cache instanceof StreamingCache)) {
+            return null;
+        }
+        Cache.Entry entry = streamingRequest.parseCacheHeaders(response);
+        if (entry == null) {
+            return null;
+        }
+        try {
+            return ((StreamingCache) cache).openOutputStream(request.getCacheKey(), entry);
+        } catch (IOException e) {
+            VolleyLog.d("Could not cache %s: %s", request.getCacheKey(), e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Copies the bytes read to the cache, and remembers read failures the parser hides.
+     * A failed cache write only stops the copying.
+     */
+    private static class TeeInputStream extends FilterInputStream {
+        private StreamingCache.EntryOutputStream mCacheStream;
+        private IOException mReadFailure;
+        private IOException mCacheFailure;
+
+        private TeeInputStream(InputStream in, StreamingCache.EntryOutputStream cacheStream) {
+            super(in);
+            mCacheStream = cacheStream;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b;
+            try {
+                b = in.read();
+            } catch (IOException e) {
+                mReadFailure = e;
+                throw e;
+            }
+            if (b != -1 && mCacheStream != null) {
+                try {
+                    mCacheStream.write(b);
+                } catch (IOException e) {
+                    onCacheFailure(e);
+                }
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            int result;
+            try {
+                result = in.read(buffer, offset, count);
+            } catch (IOException e) {
+                mReadFailure = e;
+                throw e;
+            }
+            if (result > 0 && mCacheStream != null) {
+                try {
+                    mCacheStream.write(buffer, offset, result);
+                } catch (IOException e) {
+                    onCacheFailure(e);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public long skip(long byteCount) throws IOException {
+            // Skipped bytes still have to reach the cache.
+            byte[] buffer = new byte[(int) Math.min(byteCount, 1024)];
+            long skipped = 0;
+            while (skipped < byteCount) {
+                int count = read(buffer, 0, (int) Math.min(buffer.length, byteCount - skipped));
+                if (count == -1) {
+                    break;
+                }
+                skipped += count;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void onCacheFailure(IOException e) {
+            mCacheFailure = e;
+            mCacheStream.abort();
+            mCacheStream = null;
+        }
+    }
+
     /**
      * Converts Headers[] to Map<String, String>.
      */
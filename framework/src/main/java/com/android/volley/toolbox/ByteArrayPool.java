@@ -16,11 +16,9 @@
 
 package com.android.volley.toolbox;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * ByteArrayPool is a source and repository of <code>byte[]</code> objects. Its purpose is to
@@ -49,15 +47,29 @@ import java.util.List;
  * <p>
  * This class ensures that the total size of the buffers in its recycling pool never exceeds a
  * certain byte limit. When a buffer is returned that would cause the pool to exceed the limit,
- * least-recently-used buffers are disposed.
+ * it is disposed.
+ * <p>
+ * Buffers are kept in buckets of power-of-two sizes, each a lock-free stack, so threads
+ * getting and returning buffers never block each other. Every thread also keeps one small
+ * buffer per bucket to itself, which it gets back without touching the shared stacks.
  */
 public class ByteArrayPool {
-    /** The buffer pool, arranged both by last use and by buffer size */
-    private List<byte[]> mBuffersByLastUse = new LinkedList<byte[]>();
-    private List<byte[]> mBuffersBySize = new ArrayList<byte[]>(64);
+    /** Smallest bucket, smaller requests get a buffer of this size. */
+    private static final int MIN_BUCKET_SHIFT = 8;
+
+    /** Largest bucket a thread keeps a buffer of for itself. */
+    private static final int MAX_THREAD_LOCAL_SHIFT = 14;
+
+    /** Size limit of {@link #getDefault()}. */
+    private static final int DEFAULT_SIZE_LIMIT = 256 * 1024;
+
+    private static volatile ByteArrayPool sDefault;
+
+    /** The buffer pool, one stack of buffers of at least 1 << (i + MIN_BUCKET_SHIFT) bytes per bucket */
+    private final AtomicReference<Node>[] mBuckets;
 
-    /** The total size of the buffers in the pool */
-    private int mCurrentSize = 0;
+    /** The total size of the buffers in the stacks */
+    private final AtomicInteger mCurrentSize = new AtomicInteger();
 
     /**
      * The maximum aggregate size of the buffers in the pool. Old buffers are discarded to stay
@@ -65,19 +77,42 @@ public class ByteArrayPool {
      */
     private final int mSizeLimit;
 
-    /** Compares buffers by size */
-    protected static final Comparator<byte[]> BUF_COMPARATOR = new Comparator<byte[]>() {
+    /** One buffer per small bucket, owned by the calling thread. Not counted in the size. */
+    private final ThreadLocal<byte[][]> mThreadBuffers = new ThreadLocal<byte[][]>() {
         @Override
-        public int compare(byte[] lhs, byte[] rhs) {
-            return lhs.length - rhs.length;
+        protected byte[][] initialValue() {
+            return new byte[MAX_THREAD_LOCAL_SHIFT - MIN_BUCKET_SHIFT + 1][];
         }
     };
 
+    private final AtomicLong mHitCount = new AtomicLong();
+    private final AtomicLong mMissCount = new AtomicLong();
+
     /**
      * @param sizeLimit the maximum size of the pool, in bytes
      */
+    @SuppressWarnings("unchecked")
     public ByteArrayPool(int sizeLimit) {
         mSizeLimit = sizeLimit;
+        int bucketCount = Math.max(0, floorShift(sizeLimit) - MIN_BUCKET_SHIFT + 1);
+        mBuckets = new AtomicReference[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            mBuckets[i] = new AtomicReference<Node>();
+        }
+    }
+
+    /**
+     * Returns the pool shared by the network, the disk cache and the multipart writers.
+     */
+    public static ByteArrayPool getDefault() {
+        if (sDefault == null) {
+            synchronized (ByteArrayPool.class) {
+                if (sDefault == null) {
+                    sDefault = new ByteArrayPool(DEFAULT_SIZE_LIMIT);
+                }
+            }
+        }
+        return sDefault;
     }
 
     /**
@@ -88,47 +123,113 @@ public class ByteArrayPool {
      *        larger.
      * @return a byte[] buffer is always returned.
      */
-    public synchronized byte[] getBuf(int len) {
-        for (int i = 0; i < mBuffersBySize.size(); i++) {
-            byte[] buf = mBuffersBySize.get(i);
-            if (buf.length >= len) {
-                mCurrentSize -= buf.length;
-                mBuffersBySize.remove(i);
-                mBuffersByLastUse.remove(buf);
+    public byte[] getBuf(int len) {
+        int shift = Math.max(MIN_BUCKET_SHIFT, ceilShift(len));
+        int bucket = shift - MIN_BUCKET_SHIFT;
+        if (bucket >= mBuckets.length) {
+            mMissCount.incrementAndGet();
+            return new byte[len];
+        }
+        if (shift <= MAX_THREAD_LOCAL_SHIFT) {
+            byte[][] threadBuffers = mThreadBuffers.get();
+            byte[] buf = threadBuffers[bucket];
+            if (buf != null) {
+                threadBuffers[bucket] = null;
+                mHitCount.incrementAndGet();
                 return buf;
             }
         }
-        return new byte[len];
+        AtomicReference<Node> top = mBuckets[bucket];
+        Node node;
+        do {
+            node = top.get();
+            if (node == null) {
+                mMissCount.incrementAndGet();
+                // rounded up, so the buffer can serve every request of its bucket later
+                return new byte[1 << shift];
+            }
+        } while (!top.compareAndSet(node, node.next));
+        mCurrentSize.addAndGet(-node.buf.length);
+        mHitCount.incrementAndGet();
+        return node.buf;
     }
 
     /**
-     * Returns a buffer to the pool, throwing away old buffers if the pool would exceed its allotted
+     * Returns a buffer to the pool, throwing it away if the pool would exceed its allotted
      * size.
      *
      * @param buf the buffer to return to the pool.
      */
-    public synchronized void returnBuf(byte[] buf) {
-        if (buf == null || buf.length > mSizeLimit) {
+    public void returnBuf(byte[] buf) {
+        if (buf == null || buf.length > mSizeLimit || buf.length < (1 << MIN_BUCKET_SHIFT)) {
             return;
         }
-        mBuffersByLastUse.add(buf);
-        int pos = Collections.binarySearch(mBuffersBySize, buf, BUF_COMPARATOR);
-        if (pos < 0) {
-            pos = -pos - 1;
+        int shift = floorShift(buf.length);
+        int bucket = shift - MIN_BUCKET_SHIFT;
+        if (bucket >= mBuckets.length) {
+            return;
+        }
+        if (shift <= MAX_THREAD_LOCAL_SHIFT) {
+            byte[][] threadBuffers = mThreadBuffers.get();
+            if (threadBuffers[bucket] == null) {
+                threadBuffers[bucket] = buf;
+                return;
+            }
         }
-        mBuffersBySize.add(pos, buf);
-        mCurrentSize += buf.length;
-        trim();
+        if (mCurrentSize.addAndGet(buf.length) > mSizeLimit) {
+            mCurrentSize.addAndGet(-buf.length);
+            return;
+        }
+        AtomicReference<Node> top = mBuckets[bucket];
+        Node node = new Node(buf);
+        do {
+            node.next = top.get();
+        } while (!top.compareAndSet(node.next, node));
+    }
+
+    /**
+     * @return the number of buffers served from the pool.
+     */
+    public long getHitCount() {
+        return mHitCount.get();
+    }
+
+    /**
+     * @return the number of buffers allocated because the pool had none of the size.
+     */
+    public long getMissCount() {
+        return mMissCount.get();
     }
 
     /**
-     * Removes buffers from the pool until it is under its size limit.
+     * @return the total size of the buffers in the shared stacks, in bytes.
      */
-    private synchronized void trim() {
-        while (mCurrentSize > mSizeLimit) {
-            byte[] buf = mBuffersByLastUse.remove(0);
-            mBuffersBySize.remove(buf);
-            mCurrentSize -= buf.length;
+    public int getCurrentSize() {
+        return mCurrentSize.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ByteArrayPool[hits=" + mHitCount.get() + ", misses=" + mMissCount.get()
+                + ", size=" + mCurrentSize.get() + "/" + mSizeLimit + "]";
+    }
+
+    /** @return the smallest shift with 1 << shift >= n */
+    private static int ceilShift(int n) {
+        return n <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(n - 1);
+    }
+
+    /** @return the largest shift with 1 << shift <= n */
+    private static int floorShift(int n) {
+        return n <= 0 ? -1 : 31 - Integer.numberOfLeadingZeros(n);
+    }
+
+    private static class Node {
+        private final byte[] buf;
+        private Node next;
+
+        private Node(byte[] buf) {
+            this.buf = buf;
         }
     }
 
@@ -16,12 +16,16 @@
 
 package com.android.volley.toolbox;
 
+import android.os.Process;
 import android.os.SystemClock;
 
-import com.android.volley.Cache;
+import com.android.volley.StreamingCache;
 import com.android.volley.VolleyLog;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
@@ -30,19 +34,46 @@ import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Cache implementation that caches files directly onto the hard disk in the specified
  * directory. The default disk usage size is 5MB, but is configurable.
+ *
+ * The headers of all entries are also appended to a journal file, so that
+ * {@link #initialize()} replays one memory-mapped file instead of opening every
+ * cache file. The directory is only scanned when the journal is missing or invalid.
+ *
+ * The index of entries and the journal are guarded by this, the cache files by a lock
+ * striped over the file names, so gets and puts of different keys do their I/O in
+ * parallel. Pruning runs in the background.
+ *
+ * Textual data is gzipped on disk and inflated again by {@link #get(String)}, so the
+ * same disk budget holds several times more JSON or HTML responses.
  */
-public class DiskBasedCache implements Cache {
+public class DiskBasedCache implements StreamingCache {
 
-    /** Map of the Key, CacheHeader pairs */
+    /** Map of the Key, CacheHeader pairs, guarded by this. */
     private final Map<String, CacheHeader> mEntries =
             new LinkedHashMap<String, CacheHeader>(16, .75f, true);
 
@@ -62,7 +93,64 @@ public class DiskBasedCache implements Cache {
     private static final float HYSTERESIS_FACTOR = 0.9f;
 
     /** Magic number for current version of cache file format. */
-    private static final int CACHE_MAGIC = 0x20150306;
+    private static final int CACHE_MAGIC = 0x20261019;
+
+    /** Magic number for current version of journal file format. */
+    private static final int JOURNAL_MAGIC = 0x20261018;
+
+    /** Journal file names, never produced by {@link #getFilenameForKey(String)}. */
+    private static final String JOURNAL_FILE = "journal";
+    private static final String JOURNAL_FILE_TMP = "journal.tmp";
+
+    /** Journal record types. */
+    private static final int JOURNAL_PUT = 1;
+    private static final int JOURNAL_REMOVE = 2;
+
+    /** The journal is compacted once it holds this many more records than live entries. */
+    private static final int JOURNAL_COMPACT_THRESHOLD = 2000;
+
+    /** Appends to the journal, null if the journal could not be written. */
+    private OutputStream mJournalWriter;
+
+    /** Number of records in the journal. */
+    private int mJournalRecordCount = 0;
+
+    /** Suffix of the files puts write before renaming them over the cache file. */
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    /** Data smaller than this is not worth the gzip header and trailer. */
+    private static final int MIN_COMPRESS_BYTES = 512;
+
+    /** Longer strings in a header are corrupt, keys and header values are far shorter. */
+    private static final int MAX_STRING_BYTES = 1024 * 1024;
+
+    /** Inflated data larger than this is not preallocated from the gzip trailer. */
+    private static final int MAX_PREALLOCATE_BYTES = 16 * 1024 * 1024;
+
+    /** Whether textual data is gzipped on disk. */
+    private final boolean mCompress;
+
+    /** Number of locks the cache files are striped over, a power of two. */
+    private static final int STRIPE_COUNT = 32;
+
+    /** Number of entries pruned between two acquisitions of the index lock. */
+    private static final int PRUNE_BATCH_SIZE = 16;
+
+    /** Locks of the cache files, see {@link #getStripe(String)}. */
+    private final Object[] mStripes = new Object[STRIPE_COUNT];
+
+    private final AtomicInteger mTempFileCounter = new AtomicInteger();
+
+    private final AtomicBoolean mPruneScheduled = new AtomicBoolean();
+
+    /** Prunes and deletes unreferenced files in the background, its thread exits when idle. */
+    private final Executor mPruneExecutor = new ThreadPoolExecutor(0, 1, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "Volley-CachePrune");
+        }
+    });
 
     /**
      * Constructs an instance of the DiskBasedCache at the specified directory.
@@ -70,8 +158,22 @@ public class DiskBasedCache implements Cache {
      * @param maxCacheSizeInBytes The maximum size of the cache in bytes.
      */
     public DiskBasedCache(File rootDirectory, int maxCacheSizeInBytes) {
+        this(rootDirectory, maxCacheSizeInBytes, true);
+    }
+
+    /**
+     * Constructs an instance of the DiskBasedCache at the specified directory.
+     * @param rootDirectory The root directory of the cache.
+     * @param maxCacheSizeInBytes The maximum size of the cache in bytes.
+     * @param compress Whether textual data is gzipped on disk.
+     */
+    public DiskBasedCache(File rootDirectory, int maxCacheSizeInBytes, boolean compress) {
         mRootDirectory = rootDirectory;
         mMaxCacheSizeInBytes = maxCacheSizeInBytes;
+        mCompress = compress;
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            mStripes[i] = new Object();
+        }
     }
 
     /**
@@ -91,11 +193,15 @@ public class DiskBasedCache implements Cache {
         File[] files = mRootDirectory.listFiles();
         if (files != null) {
             for (File file : files) {
-                file.delete();
+                // the temp files of puts in progress are renamed over their target soon
+                if (!isTempFile(file)) {
+                    file.delete();
+                }
             }
         }
         mEntries.clear();
         mTotalSize = 0;
+        rewriteJournal(false);
         VolleyLog.d("Cache cleared.");
     }
 
@@ -103,58 +209,110 @@ public class DiskBasedCache implements Cache {
      * Returns the cache entry with the specified key if it exists, null otherwise.
      */
     @Override
-    public synchronized Entry get(String key) {
-        CacheHeader entry = mEntries.get(key);
-        // if the entry does not exist, return.
-        if (entry == null) {
-            return null;
+    public Entry get(String key) {
+        File file = getFileForKey(key);
+        CacheHeader entry;
+        RandomAccessFile raf;
+        synchronized (getStripe(key)) {
+            entry = getEntry(key);
+            // if the entry does not exist, return.
+            if (entry == null) {
+                return null;
+            }
+            try {
+                // once open, a put renaming a new file over this one does not affect the read
+                raf = new RandomAccessFile(file, "r");
+            } catch (IOException e) {
+                VolleyLog.d("%s: %s", file.getAbsolutePath(), e.toString());
+                remove(entry);
+                return null;
+            }
         }
 
-        File file = getFileForKey(key);
-        CountingInputStream cis = null;
         try {
-            cis = new CountingInputStream(new FileInputStream(file));
-            CacheHeader.readHeader(cis); // eat header
-            byte[] data = streamToBytes(cis, (int) (file.length() - cis.bytesRead));
+            FileChannel channel = raf.getChannel();
+            // the header is already in memory, a file of another size was not written by us
+            if (channel.size() != entry.size || entry.headerLength <= 0) {
+                throw new IOException("Unexpected cache file size " + channel.size());
+            }
+            byte[] data = readFully(channel, entry.headerLength, (int) (entry.size - entry.headerLength));
+            if (entry.compressed) {
+                data = gunzip(data);
+            }
             return entry.toCacheEntry(data);
         } catch (IOException e) {
             VolleyLog.d("%s: %s", file.getAbsolutePath(), e.toString());
-            remove(key);
+            remove(entry);
             return null;
         } finally {
-            if (cis != null) {
-                try {
-                    cis.close();
-                } catch (IOException ioe) {
-                    return null;
-                }
-            }
+            try {
+                raf.close();
+            } catch (IOException ignored) { }
         }
     }
 
     /**
-     * Initializes the DiskBasedCache by scanning for all files currently in the
-     * specified root directory. Creates the root directory if necessary.
+     * Initializes the DiskBasedCache from its journal, or by scanning for all files
+     * currently in the specified root directory if there is no valid journal.
+     * Creates the root directory if necessary.
      */
     @Override
     public synchronized void initialize() {
         if (!mRootDirectory.exists()) {
             if (!mRootDirectory.mkdirs()) {
                 VolleyLog.e("Unable to create cache dir %s", mRootDirectory.getAbsolutePath());
+                return;
             }
+            rewriteJournal(true);
             return;
         }
 
+        long startTime = SystemClock.elapsedRealtime();
+        boolean complete;
+        try {
+            complete = readJournal();
+        } catch (IOException e) {
+            VolleyLog.d("Invalid cache journal, scanning %s: %s", mRootDirectory.getAbsolutePath(), e.toString());
+            mEntries.clear();
+            mTotalSize = 0;
+            scanDirectory();
+            complete = false;
+        }
+
+        if (complete && mJournalRecordCount < mEntries.size() + JOURNAL_COMPACT_THRESHOLD) {
+            openJournal();
+        } else {
+            rewriteJournal(true);
+        }
+        if (VolleyLog.DEBUG) {
+            VolleyLog.v("cache initialized, %d entries, %d bytes, %d ms",
+                    mEntries.size(), mTotalSize, SystemClock.elapsedRealtime() - startTime);
+        }
+    }
+
+    /**
+     * Builds the entries by reading the header of every file in the root directory.
+     */
+    private void scanDirectory() {
         File[] files = mRootDirectory.listFiles();
         if (files == null) {
             return;
         }
         for (File file : files) {
-            BufferedInputStream fis = null;
+            if (isJournalFile(file)) {
+                continue;
+            }
+            if (isTempFile(file)) {
+                // left by a put which did not finish
+                file.delete();
+                continue;
+            }
+            CountingInputStream cis = null;
             try {
-                fis = new BufferedInputStream(new FileInputStream(file));
-                CacheHeader entry = CacheHeader.readHeader(fis);
+                cis = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+                CacheHeader entry = CacheHeader.readHeader(cis);
                 entry.size = file.length();
+                entry.headerLength = cis.bytesRead;
                 putEntry(entry.key, entry);
             } catch (IOException e) {
                 if (file != null) {
@@ -162,8 +320,8 @@ public class DiskBasedCache implements Cache {
                 }
             } finally {
                 try {
-                    if (fis != null) {
-                        fis.close();
+                    if (cis != null) {
+                        cis.close();
                     }
                 } catch (IOException ignored) { }
             }
@@ -176,43 +334,243 @@ public class DiskBasedCache implements Cache {
      * @param fullExpire True to fully expire the entry, false to soft expire
      */
     @Override
-    public synchronized void invalidate(String key, boolean fullExpire) {
+    public void invalidate(String key, boolean fullExpire) {
+        // no stripe is held across the put, its pruning takes the stripes of other keys
+        CacheHeader header = getEntry(key);
+        if (header == null) {
+            return;
+        }
         Entry entry = get(key);
         if (entry != null) {
             entry.softTtl = 0;
             if (fullExpire) {
                 entry.ttl = 0;
             }
-            put(key, entry);
+            put(key, entry, header);
         }
-
     }
 
     /**
      * Puts the entry with the specified key into the cache.
      */
     @Override
-    public synchronized void put(String key, Entry entry) {
-        pruneIfNeeded(entry.data.length);
+    public void put(String key, Entry entry) {
+        put(key, entry, null);
+    }
+
+    /**
+     * @param replaces Only commit if the key still has this entry, null to always commit.
+     */
+    private void put(String key, Entry entry, CacheHeader replaces) {
+        EntryOutputStream os = null;
+        try {
+            os = openOutputStream(key, entry, replaces);
+            os.write(entry.data);
+        } catch (IOException e) {
+            if (os != null) {
+                os.abort();
+            }
+        } finally {
+            if (os != null) {
+                try {
+                    os.close();
+                } catch (IOException ignored) { }
+            }
+        }
+    }
+
+    /**
+     * Opens a stream for the data of the entry. The file is written under a temporary
+     * name and renamed over the old one when the stream is closed, so readers of the key
+     * never see a partially written file and only wait for the rename.
+     */
+    @Override
+    public EntryOutputStream openOutputStream(String key, Entry entry) throws IOException {
+        return openOutputStream(key, entry, null);
+    }
+
+    private EntryOutputStream openOutputStream(String key, Entry entry, CacheHeader replaces) throws IOException {
         File file = getFileForKey(key);
+        File tempFile = new File(mRootDirectory, file.getName() + TEMP_FILE_SUFFIX + mTempFileCounter.incrementAndGet());
+        CacheHeader e = new CacheHeader(key, entry);
+        e.compressed = mCompress && isCompressible(entry);
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        boolean success = e.writeHeader(header);
+        if (!success) {
+            VolleyLog.d("Failed to write header for %s", file.getAbsolutePath());
+            throw new IOException();
+        }
+        FileOutputStream fos = new FileOutputStream(tempFile);
         try {
-            FileOutputStream fos = new FileOutputStream(file);
-            CacheHeader e = new CacheHeader(key, entry);
-            boolean success = e.writeHeader(fos);
-            if (!success) {
+            header.writeTo(fos);
+        } catch (IOException ioe) {
+            fos.close();
+            deleteTempFile(tempFile);
+            throw ioe;
+        }
+        e.headerLength = header.size();
+        OutputStream os = new BufferedOutputStream(fos);
+        if (e.compressed) {
+            try {
+                os = new GZIPOutputStream(os, 8192);
+            } catch (IOException ioe) {
                 fos.close();
-                VolleyLog.d("Failed to write header for %s", file.getAbsolutePath());
-                throw new IOException();
+                deleteTempFile(tempFile);
+                throw ioe;
             }
-            fos.write(entry.data);
-            fos.close();
-            putEntry(key, e);
-            return;
-        } catch (IOException e) {
         }
-        boolean deleted = file.delete();
+        return new CacheEntryOutputStream(e, replaces, file, tempFile, os);
+    }
+
+    /**
+     * Returns whether the data of the entry is likely to shrink when gzipped, judging
+     * from its Content-Type. Images, audio, video and archives are already compressed.
+     */
+    private static boolean isCompressible(Entry entry) {
+        if (entry.data != null && entry.data.length < MIN_COMPRESS_BYTES) {
+            return false;
+        }
+        String contentType = null;
+        if (entry.responseHeaders != null) {
+            for (Map.Entry<String, String> header : entry.responseHeaders.entrySet()) {
+                if ("Content-Type".equalsIgnoreCase(header.getKey())) {
+                    contentType = header.getValue();
+                    break;
+                }
+            }
+        }
+        if (contentType == null) {
+            // most json apis, the usual content of this cache
+            return true;
+        }
+        contentType = contentType.toLowerCase();
+        if (contentType.startsWith("text/")) {
+            return true;
+        }
+        return contentType.contains("json") || contentType.contains("xml")
+                || contentType.contains("javascript") || contentType.contains("x-www-form-urlencoded");
+    }
+
+    /**
+     * Inflates the gzipped data of an entry. The trailer of a gzip stream holds the
+     * inflated size, so the result is allocated once.
+     */
+    private static byte[] gunzip(byte[] data) throws IOException {
+        if (data.length < 4) {
+            throw new IOException("Truncated gzip data");
+        }
+        int n = data.length;
+        int size = (data[n - 4] & 0xff) | (data[n - 3] & 0xff) << 8
+                | (data[n - 2] & 0xff) << 16 | (data[n - 1] & 0xff) << 24;
+        GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data), 8192);
+        try {
+            if (size < 0 || size > MAX_PREALLOCATE_BYTES) {
+                ByteArrayPool pool = ByteArrayPool.getDefault();
+                PoolingByteArrayOutputStream bytes = new PoolingByteArrayOutputStream(pool, n * 4);
+                byte[] buffer = pool.getBuf(8192);
+                try {
+                    int count;
+                    while ((count = in.read(buffer)) != -1) {
+                        bytes.write(buffer, 0, count);
+                    }
+                    return bytes.toByteArray();
+                } finally {
+                    pool.returnBuf(buffer);
+                    bytes.close();
+                }
+            }
+            byte[] result = new byte[size];
+            int pos = 0;
+            int count;
+            while (pos < size && (count = in.read(result, pos, size - pos)) != -1) {
+                pos += count;
+            }
+            if (pos != size || in.read() != -1) {
+                throw new IOException("Unexpected gzip data size");
+            }
+            return result;
+        } finally {
+            in.close();
+        }
+    }
+
+    private void deleteTempFile(File tempFile) {
+        boolean deleted = tempFile.delete();
         if (!deleted) {
-            VolleyLog.d("Could not clean up file %s", file.getAbsolutePath());
+            VolleyLog.d("Could not clean up file %s", tempFile.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Writes the data of an entry to its temp file and commits it on close.
+     */
+    private class CacheEntryOutputStream extends EntryOutputStream {
+        private final CacheHeader mHeader;
+        private final CacheHeader mReplaces;
+        private final File mFile;
+        private final File mTempFile;
+        private final OutputStream mOutputStream;
+        private long mDataLength = 0;
+        private boolean mAborted = false;
+        private boolean mClosed = false;
+
+        private CacheEntryOutputStream(CacheHeader header, CacheHeader replaces, File file, File tempFile,
+                OutputStream os) {
+            mHeader = header;
+            mReplaces = replaces;
+            mFile = file;
+            mTempFile = tempFile;
+            mOutputStream = os;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            mOutputStream.write(b);
+            mDataLength++;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int count) throws IOException {
+            mOutputStream.write(buffer, offset, count);
+            mDataLength += count;
+        }
+
+        @Override
+        public void abort() {
+            mAborted = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (mClosed) {
+                return;
+            }
+            mClosed = true;
+            try {
+                mOutputStream.close();
+            } catch (IOException e) {
+                mAborted = true;
+            }
+            if (mAborted) {
+                deleteTempFile(mTempFile);
+                return;
+            }
+            // the data may have been gzipped on its way to the file
+            mHeader.size = mHeader.compressed ? mTempFile.length() : mHeader.headerLength + mDataLength;
+            synchronized (getStripe(mHeader.key)) {
+                if (mReplaces != null && getEntry(mHeader.key) != mReplaces) {
+                    // put again or removed since the data was read, this copy is stale
+                    deleteTempFile(mTempFile);
+                    return;
+                }
+                if (!mTempFile.renameTo(mFile)) {
+                    VolleyLog.d("Could not rename %s", mTempFile.getAbsolutePath());
+                    deleteTempFile(mTempFile);
+                    throw new IOException();
+                }
+                putEntryAndJournal(mHeader);
+            }
+            pruneIfNeeded();
         }
     }
 
@@ -220,12 +578,29 @@ public class DiskBasedCache implements Cache {
      * Removes the specified key from the cache if it exists.
      */
     @Override
-    public synchronized void remove(String key) {
-        boolean deleted = getFileForKey(key).delete();
-        removeEntry(key);
-        if (!deleted) {
-            VolleyLog.d("Could not delete cache entry for key=%s, filename=%s",
-                    key, getFilenameForKey(key));
+    public void remove(String key) {
+        synchronized (getStripe(key)) {
+            boolean deleted = getFileForKey(key).delete();
+            removeEntryAndJournal(key);
+            if (!deleted) {
+                VolleyLog.d("Could not delete cache entry for key=%s, filename=%s",
+                        key, getFilenameForKey(key));
+            }
+        }
+    }
+
+    /**
+     * Removes the entry unless it was replaced in the meantime.
+     */
+    private void remove(CacheHeader entry) {
+        synchronized (getStripe(entry.key)) {
+            if (removeEntryIfSame(entry)) {
+                boolean deleted = getFileForKey(entry.key).delete();
+                if (!deleted) {
+                    VolleyLog.d("Could not delete cache entry for key=%s, filename=%s",
+                            entry.key, getFilenameForKey(entry.key));
+                }
+            }
         }
     }
 
@@ -249,46 +624,117 @@ public class DiskBasedCache implements Cache {
     }
 
     /**
-     * Prunes the cache to fit the amount of bytes specified.
-     * @param neededSpace The amount of bytes we are trying to fit into the cache.
+     * Returns the lock of the file of the key. Lock order: the stripe, then the index
+     * (this), never the other way round.
      */
-    private void pruneIfNeeded(int neededSpace) {
-        if ((mTotalSize + neededSpace) < mMaxCacheSizeInBytes) {
+    private Object getStripe(String key) {
+        return getStripeForFile(getFilenameForKey(key));
+    }
+
+    private Object getStripeForFile(String filename) {
+        return mStripes[filename.hashCode() & (STRIPE_COUNT - 1)];
+    }
+
+    /**
+     * Starts pruning in the background once the cache is full. The puts only prune
+     * inline if the background pruning does not keep up, so this is never called
+     * holding a stripe: pruning takes the stripes of other keys.
+     */
+    private void pruneIfNeeded() {
+        long totalSize = getTotalSize();
+        if (totalSize < mMaxCacheSizeInBytes) {
             return;
         }
+        if (totalSize >= 2L * mMaxCacheSizeInBytes) {
+            prune();
+        } else if (mPruneScheduled.compareAndSet(false, true)) {
+            mPruneExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    try {
+                        prune();
+                    } finally {
+                        mPruneScheduled.set(false);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Prunes the least recently used entries until the cache is under the high water
+     * mark, a few entries at a time so that gets and puts go on in between.
+     */
+    private void prune() {
         if (VolleyLog.DEBUG) {
             VolleyLog.v("Pruning old cache entries.");
         }
 
-        long before = mTotalSize;
+        long before = getTotalSize();
         int prunedFiles = 0;
         long startTime = SystemClock.elapsedRealtime();
 
-        Iterator<Map.Entry<String, CacheHeader>> iterator = mEntries.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<String, CacheHeader> entry = iterator.next();
-            CacheHeader e = entry.getValue();
-            boolean deleted = getFileForKey(e.key).delete();
-            if (deleted) {
-                mTotalSize -= e.size;
-            } else {
-               VolleyLog.d("Could not delete cache entry for key=%s, filename=%s",
-                       e.key, getFilenameForKey(e.key));
-            }
-            iterator.remove();
-            prunedFiles++;
-
-            if ((mTotalSize + neededSpace) < mMaxCacheSizeInBytes * HYSTERESIS_FACTOR) {
-                break;
+        List<CacheHeader> victims;
+        while (!(victims = getPruneVictims()).isEmpty()) {
+            for (CacheHeader e : victims) {
+                remove(e);
+                prunedFiles++;
             }
         }
 
         if (VolleyLog.DEBUG) {
             VolleyLog.v("pruned %d files, %d bytes, %d ms",
-                    prunedFiles, (mTotalSize - before), SystemClock.elapsedRealtime() - startTime);
+                    prunedFiles, (getTotalSize() - before), SystemClock.elapsedRealtime() - startTime);
         }
     }
 
+    /**
+     * Returns the next least recently used entries to prune, empty once the cache is
+     * under the high water mark.
+     */
+    private synchronized List<CacheHeader> getPruneVictims() {
+        List<CacheHeader> victims = new ArrayList<CacheHeader>(PRUNE_BATCH_SIZE);
+        long totalSize = mTotalSize;
+        Iterator<CacheHeader> iterator = mEntries.values().iterator();
+        while (iterator.hasNext() && victims.size() < PRUNE_BATCH_SIZE
+                && totalSize >= mMaxCacheSizeInBytes * HYSTERESIS_FACTOR) {
+            CacheHeader e = iterator.next();
+            victims.add(e);
+            totalSize -= e.size;
+        }
+        return victims;
+    }
+
+    private synchronized long getTotalSize() {
+        return mTotalSize;
+    }
+
+    private synchronized CacheHeader getEntry(String key) {
+        return mEntries.get(key);
+    }
+
+    private synchronized void putEntryAndJournal(CacheHeader entry) {
+        putEntry(entry.key, entry);
+        journalPut(entry);
+    }
+
+    private synchronized void removeEntryAndJournal(String key) {
+        if (mEntries.containsKey(key)) {
+            removeEntry(key);
+            journalRemove(key);
+        }
+    }
+
+    private synchronized boolean removeEntryIfSame(CacheHeader entry) {
+        if (mEntries.get(entry.key) != entry) {
+            return false;
+        }
+        removeEntry(entry.key);
+        journalRemove(entry.key);
+        return true;
+    }
+
     /**
      * Puts the entry with the specified key into the cache.
      * @param key The key to identify the entry by.
@@ -315,11 +761,249 @@ public class DiskBasedCache implements Cache {
         }
     }
 
+    /**
+     * Reads length bytes at position with positioned reads, which do not move the channel.
+     */
+    private static byte[] readFully(FileChannel channel, long position, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, position + buffer.position());
+            if (count == -1) {
+                throw new IOException("Expected " + length + " bytes, read " + buffer.position() + " bytes");
+            }
+        }
+        return bytes;
+    }
+
+    private static boolean isTempFile(File file) {
+        return file.getName().indexOf(TEMP_FILE_SUFFIX) >= 0;
+    }
+
+    private static boolean isJournalFile(File file) {
+        String name = file.getName();
+        return JOURNAL_FILE.equals(name) || JOURNAL_FILE_TMP.equals(name);
+    }
+
+    /**
+     * Replays the journal into the entries.
+     *
+     * @return false if the journal ends with a partially written record.
+     * @throws IOException if there is no valid journal.
+     */
+    private boolean readJournal() throws IOException {
+        File journal = new File(mRootDirectory, JOURNAL_FILE);
+        RandomAccessFile raf = new RandomAccessFile(journal, "r");
+        try {
+            InputStream is;
+            try {
+                is = new ByteBufferInputStream(raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length()));
+            } catch (IOException e) {
+                is = new BufferedInputStream(new FileInputStream(raf.getFD()));
+            }
+            if (readInt(is) != JOURNAL_MAGIC || readInt(is) != CACHE_MAGIC) {
+                throw new IOException("Unknown journal format");
+            }
+
+            mJournalRecordCount = 0;
+            while (true) {
+                int op = is.read();
+                if (op == -1) {
+                    return true;
+                }
+                try {
+                    if (op == JOURNAL_PUT) {
+                        CacheHeader entry = CacheHeader.readHeader(is);
+                        entry.size = readLong(is);
+                        entry.headerLength = readLong(is);
+                        putEntry(entry.key, entry);
+                    } else if (op == JOURNAL_REMOVE) {
+                        removeEntry(readString(is));
+                    } else {
+                        return false;
+                    }
+                } catch (IOException e) {
+                    // the process died while appending the last record
+                    return false;
+                }
+                mJournalRecordCount++;
+            }
+        } finally {
+            try {
+                raf.close();
+            } catch (IOException ignored) { }
+        }
+    }
+
+    /**
+     * Opens the journal for appending.
+     */
+    private void openJournal() {
+        try {
+            mJournalWriter = new BufferedOutputStream(
+                    new FileOutputStream(new File(mRootDirectory, JOURNAL_FILE), true));
+        } catch (IOException e) {
+            abandonJournal(e);
+        }
+    }
+
+    private void closeJournal() {
+        if (mJournalWriter != null) {
+            try {
+                mJournalWriter.close();
+            } catch (IOException ignored) { }
+            mJournalWriter = null;
+        }
+    }
+
+    /**
+     * Writes a journal holding only the current entries, replaces the old one and deletes
+     * the files no entry refers to.
+     * @param deleteTempFiles Also delete temp files, only while no put can be in progress.
+     */
+    private void rewriteJournal(boolean deleteTempFiles) {
+        closeJournal();
+        File journal = new File(mRootDirectory, JOURNAL_FILE);
+        File journalTmp = new File(mRootDirectory, JOURNAL_FILE_TMP);
+        try {
+            OutputStream os = new BufferedOutputStream(new FileOutputStream(journalTmp));
+            try {
+                writeInt(os, JOURNAL_MAGIC);
+                writeInt(os, CACHE_MAGIC);
+                for (CacheHeader entry : mEntries.values()) {
+                    writeJournalPut(os, entry);
+                }
+            } finally {
+                os.close();
+            }
+            if (!journalTmp.renameTo(journal)) {
+                throw new IOException("Could not rename " + journalTmp.getAbsolutePath());
+            }
+            mJournalRecordCount = mEntries.size();
+        } catch (IOException e) {
+            abandonJournal(e);
+            return;
+        }
+        deleteUnreferencedFiles(deleteTempFiles);
+        openJournal();
+    }
+
+    /**
+     * Files written without a journal record, e.g. when the process died after the write.
+     * They are deleted in the background under their stripe: the index lock held here
+     * may not take a stripe, and a put may have renamed its file without adding its entry yet.
+     */
+    private void deleteUnreferencedFiles(boolean deleteTempFiles) {
+        File[] files = mRootDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Set<String> names = new HashSet<String>();
+        for (String key : mEntries.keySet()) {
+            names.add(getFilenameForKey(key));
+        }
+        final List<File> unreferenced = new ArrayList<File>();
+        for (File file : files) {
+            if (isJournalFile(file)) {
+                continue;
+            }
+            if (isTempFile(file)) {
+                if (deleteTempFiles) {
+                    file.delete();
+                }
+            } else if (!names.contains(file.getName())) {
+                unreferenced.add(file);
+            }
+        }
+        if (unreferenced.isEmpty()) {
+            return;
+        }
+        mPruneExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (File file : unreferenced) {
+                    synchronized (getStripeForFile(file.getName())) {
+                        if (!isReferenced(file.getName())) {
+                            file.delete();
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    private synchronized boolean isReferenced(String filename) {
+        for (String key : mEntries.keySet()) {
+            if (getFilenameForKey(key).equals(filename)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stops journaling, the next start scans the directory instead.
+     */
+    private void abandonJournal(IOException e) {
+        VolleyLog.d("Cache journal disabled: %s", e.toString());
+        closeJournal();
+        new File(mRootDirectory, JOURNAL_FILE).delete();
+        new File(mRootDirectory, JOURNAL_FILE_TMP).delete();
+    }
+
+    private static void writeJournalPut(OutputStream os, CacheHeader entry) throws IOException {
+        os.write(JOURNAL_PUT);
+        if (!entry.writeHeader(os)) {
+            throw new IOException("Failed to write header for " + entry.key);
+        }
+        writeLong(os, entry.size);
+        writeLong(os, entry.headerLength);
+    }
+
+    private void journalPut(CacheHeader entry) {
+        if (mJournalWriter == null) {
+            return;
+        }
+        try {
+            writeJournalPut(mJournalWriter, entry);
+            mJournalWriter.flush();
+            mJournalRecordCount++;
+        } catch (IOException e) {
+            abandonJournal(e);
+            return;
+        }
+        compactJournalIfNeeded();
+    }
+
+    private void journalRemove(String key) {
+        if (mJournalWriter == null) {
+            return;
+        }
+        try {
+            mJournalWriter.write(JOURNAL_REMOVE);
+            writeString(mJournalWriter, key);
+            mJournalWriter.flush();
+            mJournalRecordCount++;
+        } catch (IOException e) {
+            abandonJournal(e);
+            return;
+        }
+        compactJournalIfNeeded();
+    }
+
+    private void compactJournalIfNeeded() {
+        if (mJournalRecordCount >= mEntries.size() + JOURNAL_COMPACT_THRESHOLD) {
+            rewriteJournal(false);
+        }
+    }
+
     /**
      * Reads the contents of an InputStream into a byte[].
      * */
-    private static byte[] streamToBytes(InputStream in, int length) throws IOException {
-        byte[] bytes = new byte[length];
+    private static void streamToBytes(InputStream in, byte[] bytes, int length) throws IOException {
+        if (length < 0 || length > bytes.length) {
+            throw new IOException("Unexpected length " + length);
+        }
         int count;
         int pos = 0;
         while (pos < length && ((count = in.read(bytes, pos, length - pos)) != -1)) {
@@ -328,7 +1012,6 @@ public class DiskBasedCache implements Cache {
         if (pos != length) {
             throw new IOException("Expected " + length + " bytes, read " + pos + " bytes");
         }
-        return bytes;
     }
 
     /**
@@ -340,6 +1023,10 @@ public class DiskBasedCache implements Cache {
          * serialized to disk. */
         public long size;
 
+        /** The length of the header in the cache file, the data follows it. (This is
+         * not serialized to the cache file, only to the journal.) */
+        public long headerLength;
+
         /** The key that identifies the cache entry. */
         public String key;
 
@@ -361,6 +1048,9 @@ public class DiskBasedCache implements Cache {
         /** Headers from the response resulting in this cache entry. */
         public Map<String, String> responseHeaders;
 
+        /** Whether the data in the cache file is gzipped. */
+        public boolean compressed;
+
         private CacheHeader() { }
 
         /**
@@ -370,7 +1060,7 @@ public class DiskBasedCache implements Cache {
          */
         public CacheHeader(String key, Entry entry) {
             this.key = key;
-            this.size = entry.data.length;
+            this.size = entry.data == null ? 0 : entry.data.length;
             this.etag = entry.etag;
             this.serverDate = entry.serverDate;
             this.lastModified = entry.lastModified;
@@ -401,6 +1091,7 @@ public class DiskBasedCache implements Cache {
             entry.ttl = readLong(is);
             entry.softTtl = readLong(is);
             entry.responseHeaders = readStringStringMap(is);
+            entry.compressed = read(is) != 0;
 
             return entry;
         }
@@ -434,6 +1125,7 @@ public class DiskBasedCache implements Cache {
                 writeLong(os, ttl);
                 writeLong(os, softTtl);
                 writeStringStringMap(responseHeaders, os);
+                os.write(compressed ? 1 : 0);
                 os.flush();
                 return true;
             } catch (IOException e) {
@@ -444,6 +1136,29 @@ public class DiskBasedCache implements Cache {
 
     }
 
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int count) throws IOException {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            count = Math.min(count, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+
     private static class CountingInputStream extends FilterInputStream {
         private int bytesRead = 0;
 
@@ -536,9 +1251,18 @@ public class DiskBasedCache implements Cache {
     }
 
     static String readString(InputStream is) throws IOException {
-        int n = (int) readLong(is);
-        byte[] b = streamToBytes(is, n);
-        return new String(b, "UTF-8");
+        long n = readLong(is);
+        if (n < 0 || n > MAX_STRING_BYTES) {
+            throw new IOException("Unexpected string length " + n);
+        }
+        ByteArrayPool pool = ByteArrayPool.getDefault();
+        byte[] b = pool.getBuf((int) n);
+        try {
+            streamToBytes(is, b, (int) n);
+            return new String(b, 0, (int) n, "UTF-8");
+        } finally {
+            pool.returnBuf(b);
+        }
     }
 
     static void writeStringStringMap(Map<String, String> map, OutputStream os) throws IOException {
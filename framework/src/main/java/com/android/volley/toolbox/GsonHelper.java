@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright 2013-2014 Toaker framework-master
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.android.volley.toolbox;
+
+import android.os.Process;
+
+import com.android.volley.VolleyLog;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Decorator for framework-master
+ *
+ * The Gson shared by the request layer. Gson is thread safe and caches the type adapter
+ * of every type it parsed, so one instance is built for the process instead of one per
+ * request. It binds {@link JsonModel} types with their own adapters through
+ * {@link JsonModelAdapterFactory}.
+ *
+ * @author Toaker [Toaker](ToakerQin@gmail.com)
+ *         [Toaker](http://www.toaker.com)
+ * @Time Create by 2026/10/18 21:05
+ */
+public final class GsonHelper {
+
+    private static volatile Gson sGson = new GsonBuilder()
+            .registerTypeAdapterFactory(JsonModelAdapterFactory.INSTANCE)
+            .create();
+
+    private GsonHelper() {
+    }
+
+    public static Gson getGson() {
+        return sGson;
+    }
+
+    /**
+     * Replace the shared Gson, e.g. one built by a GsonBuilder with custom type adapters.
+     * Register {@link JsonModelAdapterFactory#INSTANCE} on it to keep the model adapters.
+     * Set it before the first request and before {@link #prewarm(Class[])}.
+     *
+     * @param gson
+     */
+    public static void setGson(Gson gson) {
+        if (gson == null) {
+            throw new IllegalArgumentException("gson may not be null");
+        }
+        sGson = gson;
+    }
+
+    /**
+     * Build the type adapters of the response types on a background thread, so the first
+     * response of each type does not pay for the reflection.
+     *
+     * @param types
+     */
+    public static void prewarm(final Class<?>... types) {
+        if (types == null || types.length == 0) {
+            return;
+        }
+        final Gson gson = sGson;
+        Thread thread = new Thread("Gson-Prewarm") {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                for (Class<?> type : types) {
+                    try {
+                        gson.getAdapter(type);
+                    } catch (RuntimeException e) {
+                        VolleyLog.e(e, "Could not prewarm %s", type.getName());
+                    }
+                }
+            }
+        };
+        thread.start();
+    }
+
+    /**
+     * Parse the bytes of a response without decoding them into a String first.
+     *
+     * @param data
+     * @param charset
+     * @param type
+     * @return
+     */
+    public static <T> T fromJson(byte[] data, String charset, Class<T> type)
+            throws UnsupportedEncodingException, JsonSyntaxException, JsonIOException {
+        return fromJson(new ByteArrayInputStream(data), charset, type);
+    }
+
+    /**
+     * Parse a response while it is read from the stream.
+     *
+     * @param in
+     * @param charset
+     * @param type
+     * @return
+     */
+    public static <T> T fromJson(InputStream in, String charset, Class<T> type)
+            throws UnsupportedEncodingException, JsonSyntaxException, JsonIOException {
+        InputStreamReader reader = new InputStreamReader(in, charset);
+        return sGson.fromJson(reader, type);
+    }
+}
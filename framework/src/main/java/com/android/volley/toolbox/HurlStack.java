@@ -30,15 +30,21 @@ import org.apache.http.message.BasicHeader;
 import org.apache.http.message.BasicHttpResponse;
 import org.apache.http.message.BasicStatusLine;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLSocketFactory;
@@ -49,6 +55,12 @@ import javax.net.ssl.SSLSocketFactory;
 public class HurlStack implements HttpStack {
 
     private static final String HEADER_CONTENT_TYPE = "Content-Type";
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+    private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+
+    /** Bodies of at least this size are gzipped if the request allows it. */
+    private static final int MIN_COMPRESS_BODY_BYTES = 1024;
 
     /**
      * An interface for transforming URLs before use.
@@ -91,6 +103,11 @@ public class HurlStack implements HttpStack {
         HashMap<String, String> map = new HashMap<String, String>();
         map.putAll(request.getHeaders());
         map.putAll(additionalHeaders);
+        if (!containsHeader(map, HEADER_ACCEPT_ENCODING)) {
+            // set explicitly, HttpURLConnection then leaves the body compressed and we
+            // inflate it in entityFromConnection
+            map.put(HEADER_ACCEPT_ENCODING, "gzip");
+        }
         if (mUrlRewriter != null) {
             String rewritten = mUrlRewriter.rewriteUrl(url);
             if (rewritten == null) {
@@ -115,9 +132,16 @@ public class HurlStack implements HttpStack {
         StatusLine responseStatus = new BasicStatusLine(protocolVersion,
                 connection.getResponseCode(), connection.getResponseMessage());
         BasicHttpResponse response = new BasicHttpResponse(responseStatus);
-        response.setEntity(entityFromConnection(connection));
+        HttpEntity entity = entityFromConnection(connection);
+        response.setEntity(entity);
+        boolean decoded = entity.getContentEncoding() == null && connection.getContentEncoding() != null;
         for (Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
             if (header.getKey() != null) {
+                if (decoded && (HEADER_CONTENT_ENCODING.equalsIgnoreCase(header.getKey())
+                        || HEADER_CONTENT_LENGTH.equalsIgnoreCase(header.getKey()))) {
+                    // describe the inflated body the entity returns
+                    continue;
+                }
                 Header h = new BasicHeader(header.getKey(), header.getValue().get(0));
                 response.addHeader(h);
             }
@@ -130,7 +154,7 @@ public class HurlStack implements HttpStack {
      * @param connection
      * @return an HttpEntity populated with data from <code>connection</code>.
      */
-    private static HttpEntity entityFromConnection(HttpURLConnection connection) {
+    private static HttpEntity entityFromConnection(HttpURLConnection connection) throws IOException {
         BasicHttpEntity entity = new BasicHttpEntity();
         InputStream inputStream;
         try {
@@ -138,13 +162,49 @@ public class HurlStack implements HttpStack {
         } catch (IOException ioe) {
             inputStream = connection.getErrorStream();
         }
-        entity.setContent(inputStream);
-        entity.setContentLength(connection.getContentLength());
-        entity.setContentEncoding(connection.getContentEncoding());
+        String contentEncoding = connection.getContentEncoding();
+        if (inputStream != null && ("gzip".equalsIgnoreCase(contentEncoding)
+                || "deflate".equalsIgnoreCase(contentEncoding))) {
+            inputStream = decodeStream(inputStream, contentEncoding);
+            entity.setContent(inputStream);
+            // the inflated length is unknown until the stream is read
+            entity.setContentLength(-1);
+        } else {
+            entity.setContent(inputStream);
+            entity.setContentLength(connection.getContentLength());
+            entity.setContentEncoding(contentEncoding);
+        }
         entity.setContentType(connection.getContentType());
         return entity;
     }
 
+    /**
+     * Wraps the stream of a gzip or deflate encoded body in one that inflates it while
+     * it is read. Bodies of HEAD, 204 and 304 responses are empty despite the header.
+     */
+    private static InputStream decodeStream(InputStream inputStream, String contentEncoding)
+            throws IOException {
+        PushbackInputStream pushback = new PushbackInputStream(inputStream, 1);
+        int first = pushback.read();
+        if (first == -1) {
+            return pushback;
+        }
+        pushback.unread(first);
+        if ("gzip".equalsIgnoreCase(contentEncoding)) {
+            return new GZIPInputStream(pushback, 8192);
+        }
+        return new InflaterInputStream(pushback);
+    }
+
+    private static boolean containsHeader(Map<String, String> headers, String name) {
+        for (String headerName : headers.keySet()) {
+            if (name.equalsIgnoreCase(headerName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Create an {@link HttpURLConnection} for the specified {@code url}.
      */
@@ -233,13 +293,54 @@ public class HurlStack implements HttpStack {
 
     private static void addBodyIfExists(HttpURLConnection connection, Request<?> request)
             throws IOException, AuthFailureError {
+        if (request instanceof StreamingBodyRequest
+                && ((StreamingBodyRequest) request).hasStreamingBody()) {
+            addStreamingBody(connection, (StreamingBodyRequest) request, request);
+            return;
+        }
         byte[] body = request.getBody();
         if (body != null) {
             connection.setDoOutput(true);
             connection.addRequestProperty(HEADER_CONTENT_TYPE, request.getBodyContentType());
+            if (request.shouldCompressBody() && body.length >= MIN_COMPRESS_BODY_BYTES
+                    && connection.getRequestProperty(HEADER_CONTENT_ENCODING) == null) {
+                body = gzip(body);
+                connection.addRequestProperty(HEADER_CONTENT_ENCODING, "gzip");
+            }
             DataOutputStream out = new DataOutputStream(connection.getOutputStream());
             out.write(body);
             out.close();
         }
     }
+
+    /**
+     * Writes the body straight to the connection, HttpURLConnection would otherwise
+     * buffer all of it to compute the Content-Length.
+     */
+    private static void addStreamingBody(HttpURLConnection connection,
+            StreamingBodyRequest streamingRequest, Request<?> request)
+            throws IOException, AuthFailureError {
+        long length = streamingRequest.getStreamingBodyLength();
+        connection.setDoOutput(true);
+        if (length >= 0 && length <= Integer.MAX_VALUE) {
+            connection.setFixedLengthStreamingMode((int) length);
+        } else {
+            connection.setChunkedStreamingMode(0);
+        }
+        connection.addRequestProperty(HEADER_CONTENT_TYPE, request.getBodyContentType());
+        OutputStream out = connection.getOutputStream();
+        try {
+            streamingRequest.writeBody(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4 + 64);
+        GZIPOutputStream out = new GZIPOutputStream(bytes);
+        out.write(body);
+        out.close();
+        return bytes.toByteArray();
+    }
 }
@@ -79,6 +79,7 @@ public class ImageRequest extends Request<Bitmap> {
         mMaxWidth = maxWidth;
         mMaxHeight = maxHeight;
         mScaleType = scaleType;
+        setPriority(Priority.LOW);
     }
 
     /**
@@ -92,8 +93,9 @@ public class ImageRequest extends Request<Bitmap> {
                 ScaleType.CENTER_INSIDE, decodeConfig, errorListener);
     }
     @Override
-    public Priority getPriority() {
-        return Priority.LOW;
+    public String getCoalescingKey() {
+        // the same url decoded to another size is another response
+        return super.getCoalescingKey() + ":" + mMaxWidth + "x" + mMaxHeight + ":" + mScaleType + ":" + mDecodeConfig;
     }
 
     /**
@@ -15,10 +15,13 @@
  *******************************************************************************/
 package com.android.volley.toolbox;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
 import android.util.Log;
 
 import com.android.volley.AuthFailureError;
+import com.android.volley.Cache;
 import com.android.volley.DefaultRetryPolicy;
 import com.android.volley.ListenerWrapper;
 import com.android.volley.NetworkResponse;
@@ -28,11 +31,12 @@ import com.android.volley.Response;
 import com.android.volley.VolleyLog;
 import com.android.volley.entry.MultiPartEntity;
 import com.android.volley.entry.SimpleMultipartEntity;
-import com.google.gson.Gson;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.Map;
@@ -43,7 +47,9 @@ import java.util.Map;
  *         [Toaker](http://www.toaker.com)
  *  Create by 2015/4/8 14:24
  */
-public class JsonDataRequest<T extends ResponseWrapper> extends Request<T> {
+public class JsonDataRequest<T extends ResponseWrapper> extends Request<T> implements StreamingRequest<T>, StreamingBodyRequest {
+
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
 
     private RequestParameter params;
 
@@ -51,16 +57,19 @@ public class JsonDataRequest<T extends ResponseWrapper> extends Request<T> {
 
     private String mBodyContentType;
 
-    private Gson    mJsonUtils;
-
     protected Class<T>  mTypeClass;
 
+    private boolean mStreaming = false;
+
+    private SimpleMultipartEntity mMultipartEntity;
+
+    private int mLastProgressPercent = -1;
+
     public JsonDataRequest(Class<T> tClass,int method, String url, RequestParameter params,ListenerWrapper<T> listener,boolean cache,boolean needRefresh) {
         super(method, url, listener);
         this.mTypeClass = tClass;
         this.params = params;
         this.mListener = listener;
-        mJsonUtils = new Gson();
         setRetryPolicy(new DefaultRetryPolicy(8000, 0, 1.0f));
         setRefreshNeeded(needRefresh);
         setShouldCache(cache);
@@ -81,20 +90,62 @@ public class JsonDataRequest<T extends ResponseWrapper> extends Request<T> {
     @Override
     protected Response<T> parseNetworkResponse(NetworkResponse networkResponse) {
         try {
-            VolleyLog.v("++++++:" + new String(networkResponse.data, HttpHeaderParser.parseCharset(networkResponse.headers)));
-            String result = new String(networkResponse.data, HttpHeaderParser.parseCharset(networkResponse.headers));
-            T instanceResponse = mJsonUtils.fromJson(result, mTypeClass);
+            String charset = HttpHeaderParser.parseCharset(networkResponse.headers);
+            if (VolleyLog.DEBUG) {
+                VolleyLog.v("++++++:%s", new String(networkResponse.data, charset));
+            }
+            T instanceResponse = GsonHelper.fromJson(networkResponse.data, charset, mTypeClass);
             return Response.success(instanceResponse, HttpHeaderParserWrapper.parseCacheHeaders(networkResponse));
         } catch (Exception e) {
             return Response.error(new ParseError(e));
         }
     }
 
+    /**
+     * Parse the response while it is downloaded instead of after, for large responses.
+     *
+     * @param streaming
+     * @return
+     */
+    public JsonDataRequest<T> setStreaming(boolean streaming) {
+        this.mStreaming = streaming;
+        return this;
+    }
+
+    @Override
+    public boolean shouldStream() {
+        return mStreaming;
+    }
+
+    @Override
+    public Response<T> parseNetworkStream(NetworkResponse networkResponse, InputStream in) throws IOException {
+        try {
+            T instanceResponse = GsonHelper.fromJson(in, HttpHeaderParser.parseCharset(networkResponse.headers), mTypeClass);
+            return Response.success(instanceResponse, null);
+        } catch (Exception e) {
+            return Response.error(new ParseError(e));
+        }
+    }
+
+    @Override
+    public Cache.Entry parseCacheHeaders(NetworkResponse networkResponse) {
+        return HttpHeaderParserWrapper.parseCacheHeaders(networkResponse);
+    }
+
     @Override
     protected void deliverResponse(T response) {
         mListener.onResponse(response,getResponse().isCache());
     }
 
+    @Override
+    public String getCoalescingKey() {
+        if (params != null && !params.getFileParams().isEmpty()) {
+            // uploads are never identical, the multipart boundary is random
+            return null;
+        }
+        return super.getCoalescingKey() + ":" + mTypeClass.getName();
+    }
+
     @Override
     public String getUrl() {
         switch (getMethod()) {
@@ -141,47 +192,102 @@ public class JsonDataRequest<T extends ResponseWrapper> extends Request<T> {
 
     @Override
     public String getBodyContentType() {
-        if(params == null || params.getFileParams().isEmpty() || TextUtils.isEmpty(mBodyContentType)){
-            return super.getBodyContentType();
-        }
-        if(getMethod() != Method.POST){
+        if(!hasStreamingBody()){
             return super.getBodyContentType();
         }
+        getMultipartEntity();
         return mBodyContentType;
 
     }
 
+    @Override
+    public boolean hasStreamingBody() {
+        return params != null && !params.getFileParams().isEmpty() && getMethod() == Method.POST;
+    }
+
+    @Override
+    public long getStreamingBodyLength() {
+        return getMultipartEntity().getContentLength();
+    }
+
+    @Override
+    public void writeBody(OutputStream out) throws IOException {
+        mLastProgressPercent = -1;
+        getMultipartEntity().writeTo(out);
+    }
+
+    /**
+     * The files are read when the entity is written, the same entity serves every retry.
+     *
+     * @return
+     */
+    private synchronized SimpleMultipartEntity getMultipartEntity() {
+        if (mMultipartEntity == null) {
+            SimpleMultipartEntity entity = new SimpleMultipartEntity();
+            for (Map.Entry<String, String> entry : params.getStringParams().entrySet()) {
+                entity.addPart(entry.getKey(), entry.getValue());
+            }
+            for (Map.Entry<String, File> entry : params.getFileParams().entrySet()) {
+                entity.addPart(entry.getKey(), entry.getValue());
+            }
+            entity.setProgressListener(new SimpleMultipartEntity.ProgressListener() {
+                @Override
+                public void onProgress(long bytesWritten, long totalSize) {
+                    postProgress(bytesWritten, totalSize);
+                }
+            });
+            mBodyContentType = entity.getContentType().getValue();
+            mMultipartEntity = entity;
+        }
+        return mMultipartEntity;
+    }
+
+    /**
+     * Posts the upload progress to {@link ListenerWrapper#onLoading(long, long)} on the main
+     * thread, once per percent.
+     */
+    private void postProgress(final long bytesWritten, final long totalSize) {
+        if (mListener == null) {
+            return;
+        }
+        int percent = totalSize > 0 ? (int) (bytesWritten * 100 / totalSize) : 0;
+        if (percent == mLastProgressPercent) {
+            return;
+        }
+        mLastProgressPercent = percent;
+        sMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!isCanceled()) {
+                    mListener.onLoading(totalSize, bytesWritten);
+                }
+            }
+        });
+    }
+
     @Override
     public byte[] getBody() throws AuthFailureError {
         return parseBody();
     }
 
+    /**
+     * The whole body in memory, only used by stacks which cannot stream it, see
+     * {@link #writeBody(OutputStream)}.
+     *
+     * @return
+     * @throws AuthFailureError
+     */
     public byte[] parseBody() throws AuthFailureError{
 
-        if(params == null || params.getFileParams().isEmpty()){
+        if(!hasStreamingBody()){
             return super.getBody();
         }
-        if(getMethod() != Method.POST){
-            return super.getBody();
-        }
-        SimpleMultipartEntity entity = new SimpleMultipartEntity();
-//        MultiPartEntity multipartEntity = new MultiPartEntity();
-        for (Map.Entry<String, String> entry : params.getStringParams().entrySet()) {
-            entity.addPart(entry.getKey(), entry.getValue());
-        }
-        //int currentIndex = 0;
-        //int lastIndex = params.getFileParams().entrySet().size() - 1;
-        for (Map.Entry<String, File> entry : params.getFileParams().entrySet()) {
-            entity.addPart(entry.getKey(),entry.getValue());
-            //currentIndex++;
-        }
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         try{
-            entity.writeTo(bos);
+            writeBody(bos);
         } catch (IOException e) {
             Log.e("", "IOException writing to ByteArrayOutputStream");
         }
-        mBodyContentType = entity.getContentType().getName();
         return bos.toByteArray();
     }
 }
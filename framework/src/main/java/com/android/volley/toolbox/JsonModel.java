@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright 2013-2014 Toaker framework-master
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.android.volley.toolbox;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Decorator for framework-master
+ *
+ * Marks a response model that is bound by its own {@link JsonModelAdapter} instead of
+ * Gson's reflective binding. {@link JsonModelAdapterFactory} looks the adapter up once
+ * per type: the class named by {@link #adapter()}, or else the {@code <Model>$$JsonAdapter}
+ * next to the model that the json-compiler annotation processor generates.
+ *
+ * @author Toaker [Toaker](ToakerQin@gmail.com)
+ *         [Toaker](http://www.toaker.com)
+ * @Time Create by 2026/10/18 23:40
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface JsonModel {
+
+    /**
+     * @return the adapter of the model, or JsonModelAdapter.class for the generated one
+     */
+    @SuppressWarnings("rawtypes")
+    Class<? extends JsonModelAdapter> adapter() default JsonModelAdapter.class;
+}
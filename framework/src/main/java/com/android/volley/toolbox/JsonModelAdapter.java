@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright 2013-2014 Toaker framework-master
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.android.volley.toolbox;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Decorator for framework-master
+ *
+ * Base class of the adapters of {@link JsonModel} types. A subclass binds the fields by
+ * name with plain assignments, so reading a model costs the tokenizing only. Fields of
+ * other types are read with the adapters of {@link #getGson()}, which is set before the
+ * adapter is used. A subclass needs a public no-arg constructor.
+ *
+ * The json-compiler annotation processor generates the adapter of a model annotated with a
+ * plain {@code @JsonModel}. An adapter can also be written by hand and named by the
+ * annotation:
+ *
+ * <pre>
+ * &#64;JsonModel(adapter = UserAdapter.class)
+ * public class User {
+ *     long id;
+ *     String name;
+ * }
+ *
+ * public final class UserAdapter extends JsonModelAdapter&lt;User&gt; {
+ *     protected User newInstance() {
+ *         return new User();
+ *     }
+ *     protected boolean readField(JsonReader in, String name, User user) throws IOException {
+ *         if ("id".equals(name)) {
+ *             user.id = in.nextLong();
+ *         } else if ("name".equals(name)) {
+ *             user.name = TypeAdapters.STRING.read(in);
+ *         } else {
+ *             return false;
+ *         }
+ *         return true;
+ *     }
+ *     protected void writeFields(JsonWriter out, User user) throws IOException {
+ *         out.name("id").value(user.id);
+ *         out.name("name").value(user.name);
+ *     }
+ * }
+ * </pre>
+ *
+ * @author Toaker [Toaker](ToakerQin@gmail.com)
+ *         [Toaker](http://www.toaker.com)
+ * @Time Create by 2026/10/18 23:40
+ */
+public abstract class JsonModelAdapter<T> extends TypeAdapter<T> {
+
+    private Gson mGson;
+
+    void setGson(Gson gson) {
+        mGson = gson;
+    }
+
+    /**
+     * @return the Gson this adapter was created for
+     */
+    protected Gson getGson() {
+        return mGson;
+    }
+
+    /**
+     * @return a new empty model
+     */
+    protected abstract T newInstance();
+
+    /**
+     * Reads the value of one field into the model.
+     *
+     * @param in positioned at the value
+     * @param name the name of the field in the json
+     * @param model
+     * @return false if the field is unknown, its value is skipped then
+     * @throws IOException
+     */
+    protected abstract boolean readField(JsonReader in, String name, T model) throws IOException;
+
+    /**
+     * Writes the fields of a non-null model as name/value pairs.
+     *
+     * @param out
+     * @param model
+     * @throws IOException
+     */
+    protected abstract void writeFields(JsonWriter out, T model) throws IOException;
+
+    @Override
+    public T read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        T model = newInstance();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (!readField(in, name, model)) {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return model;
+    }
+
+    @Override
+    public void write(JsonWriter out, T model) throws IOException {
+        if (model == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        writeFields(out, model);
+        out.endObject();
+    }
+}
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright 2013-2014 Toaker framework-master
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.android.volley.toolbox;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Decorator for framework-master
+ *
+ * Provides the {@link JsonModelAdapter} of every {@link JsonModel} type. Registered
+ * factories come before Gson's reflective one, so {@link Gson#getAdapter(Class)} returns
+ * the model's own adapter and unannotated types keep the reflective binding. The shared
+ * Gson of {@link GsonHelper} registers it already.
+ *
+ * @author Toaker [Toaker](ToakerQin@gmail.com)
+ *         [Toaker](http://www.toaker.com)
+ * @Time Create by 2026/10/18 23:40
+ */
+public final class JsonModelAdapterFactory implements TypeAdapterFactory {
+
+    /** Suffix of the adapters generated for {@link JsonModel} types. */
+    public static final String GENERATED_SUFFIX = "$$JsonAdapter";
+
+    public static final JsonModelAdapterFactory INSTANCE = new JsonModelAdapterFactory();
+
+    private JsonModelAdapterFactory() {
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        JsonModel model = rawType.getAnnotation(JsonModel.class);
+        if (model == null) {
+            return null;
+        }
+        Class<?> adapterClass = model.adapter();
+        if (adapterClass == JsonModelAdapter.class) {
+            adapterClass = findGeneratedAdapter(rawType);
+        }
+        JsonModelAdapter<T> adapter;
+        try {
+            adapter = (JsonModelAdapter<T>) adapterClass.newInstance();
+        } catch (InstantiationException e) {
+            throw new JsonIOException("Could not create " + adapterClass.getName(), e);
+        } catch (IllegalAccessException e) {
+            throw new JsonIOException("Could not create " + adapterClass.getName(), e);
+        }
+        adapter.setGson(gson);
+        return adapter;
+    }
+
+    private static Class<?> findGeneratedAdapter(Class<?> modelClass) {
+        String name = modelClass.getName() + GENERATED_SUFFIX;
+        try {
+            return Class.forName(name, true, modelClass.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new JsonIOException("No adapter generated for " + modelClass.getName()
+                    + ", is json-compiler on the annotation processor path?", e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright 2013-2014 Toaker framework-master
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.android.volley.toolbox;
+
+/**
+ * Decorator for framework-master
+ *
+ * A {@link ResponseWrapper} of one page of a list. The list fragments read the paging of
+ * the response through it instead of looking up the {@code page_num} ... fields by
+ * reflection.
+ *
+ * @author Toaker [Toaker](ToakerQin@gmail.com)
+ *         [Toaker](http://www.toaker.com)
+ * @Time Create by 2026/10/19 00:20
+ */
+public interface PagedResponseWrapper extends ResponseWrapper {
+
+    /**
+     * @return the number of this page
+     */
+    public int getPageNum();
+
+    /**
+     * @return the number of items of a page
+     */
+    public int getPageSize();
+
+    /**
+     * @return the number of the last page
+     */
+    public int getTotalPage();
+
+    /**
+     * @return the number of items of all pages
+     */
+    public int getTotalCount();
+}
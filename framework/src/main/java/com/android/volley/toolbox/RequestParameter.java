@@ -76,6 +76,18 @@ public final class RequestParameter {
         return this;
     }
 
+    /**
+     * @return a copy that can be changed without changing the parameters of a request
+     * already made with this one
+     */
+    public RequestParameter copy() {
+        RequestParameter copy = new RequestParameter();
+        copy.mHttpMethod = mHttpMethod;
+        copy.mStringParams.putAll(mStringParams);
+        copy.mFileParams.putAll(mFileParams);
+        return copy;
+    }
+
     public int getMethod() {
         return mHttpMethod;
     }
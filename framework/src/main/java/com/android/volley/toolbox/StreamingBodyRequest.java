@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright 2013-2014 Toaker framework-master
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.android.volley.toolbox;
+
+import com.android.volley.AuthFailureError;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Decorator for framework-master
+ *
+ * Implemented by a {@link com.android.volley.Request} whose body is too large to be built
+ * in memory, e.g. a file upload. {@link HurlStack} then writes it straight to the
+ * connection in fixed-length or chunked streaming mode instead of calling
+ * {@link com.android.volley.Request#getBody()}.
+ *
+ * @author Toaker [Toaker](ToakerQin@gmail.com)
+ *         [Toaker](http://www.toaker.com)
+ * @Time Create by 2026/10/18 23:05
+ */
+public interface StreamingBodyRequest {
+
+    /**
+     * @return true to write the body of this request with {@link #writeBody(OutputStream)}.
+     */
+    public boolean hasStreamingBody();
+
+    /**
+     * @return the length of the body in bytes, or -1 if unknown to send it chunked.
+     * @throws AuthFailureError
+     */
+    public long getStreamingBodyLength() throws AuthFailureError;
+
+    /**
+     * Writes the body on the network thread, again for every retry.
+     *
+     * @param out The connection stream
+     * @throws IOException if the body cannot be written
+     * @throws AuthFailureError
+     */
+    public void writeBody(OutputStream out) throws IOException, AuthFailureError;
+}
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright 2013-2014 Toaker framework-master
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.android.volley.toolbox;
+
+import com.android.volley.Cache;
+import com.android.volley.NetworkResponse;
+import com.android.volley.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decorator for framework-master
+ *
+ * Implemented by a {@link com.android.volley.Request} whose body can be parsed while it is
+ * received. {@link BasicNetwork} then hands the connection stream to
+ * {@link #parseNetworkStream(NetworkResponse, InputStream)} instead of buffering the whole
+ * body, and writes the bytes to the cache as they pass by.
+ *
+ * @author Toaker [Toaker](ToakerQin@gmail.com)
+ *         [Toaker](http://www.toaker.com)
+ * @Time Create by 2026/10/18 21:40
+ */
+public interface StreamingRequest<T> {
+
+    /**
+     * @return true to parse the body of this request from the stream.
+     */
+    public boolean shouldStream();
+
+    /**
+     * Parses the body on the network thread while it is received. The returned response
+     * needs no cache entry, the body was cached already.
+     *
+     * @param response The status and headers, without data
+     * @param in The body
+     * @return
+     * @throws IOException if the body cannot be read
+     */
+    public Response<T> parseNetworkStream(NetworkResponse response, InputStream in) throws IOException;
+
+    /**
+     * @param response The status and headers, without data
+     * @return the metadata of the cache entry of the body, or null to not cache it.
+     */
+    public Cache.Entry parseCacheHeaders(NetworkResponse response);
+}
@@ -15,24 +15,15 @@
  *******************************************************************************/
 package com.android.volley.toolbox;
 
+import com.android.volley.DefaultRetryPolicy;
 import com.android.volley.ListenerWrapper;
-import com.android.volley.ParseError;
-import com.android.volley.VolleyError;
-import com.google.gson.Gson;
-import com.loopj.android.http.AsyncHttpClient;
-import com.loopj.android.http.AsyncHttpResponseHandler;
-import com.loopj.android.http.RequestParams;
-import com.toaker.framework.app.Framework;
-
-import org.apache.http.Header;
-
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.UnsupportedEncodingException;
-import java.util.HashMap;
-import java.util.Map;
+import com.android.volley.Request;
+import com.toaker.framework.utils.VolleyHelper;
 
 /**
+ * Uploads the files of a {@link RequestParameter} through the shared request queue. The
+ * files are streamed to the connection, see {@link StreamingBodyRequest}, and the progress
+ * is reported to {@link ListenerWrapper#onLoading(long, long)}.
  *
  * author Toaker [Toaker](ToakerQin@gmail.com)
  *         [Toaker](http://www.toaker.com)
@@ -40,63 +31,25 @@ import java.util.Map;
  */
 public class UploadFileTask<T extends ResponseWrapper> {
 
-    Class<T> mClassType;
-
-    String url;
-
-    RequestParameter mRequestParameter;
-
-    ListenerWrapper<T> mListener;
+    /**
+     * Socket timeout while waiting for the response of an upload.
+     */
+    private static final int UPLOAD_TIMEOUT_MS = 30 * 1000;
 
-    AsyncHttpClient    mAsyncHttpClient;
-
-    RequestParams mRequestParams;
+    JsonDataRequest<T> mRequest;
 
     public UploadFileTask(Class<T> classType,String url,RequestParameter params,ListenerWrapper<T> listenerWrapper) {
-        mClassType = classType;
-        this.url = url;
-        mRequestParameter = params;
-        mListener = listenerWrapper;
-        mAsyncHttpClient = new AsyncHttpClient();
-        mRequestParams = new RequestParams(mRequestParameter.getStringParams());
-        parserParams();
-    }
-
-    private void parserParams() {
-        try {
-            for (Map.Entry<String,File> entry:mRequestParameter.getFileParams().entrySet()){
-                mRequestParams.put(entry.getKey(),entry.getValue());
-            }
-        } catch (FileNotFoundException e) {
-        }
+        mRequest = new JsonDataRequest<T>(classType, Request.Method.POST, url, params, listenerWrapper, false);
+        mRequest.setRetryPolicy(new DefaultRetryPolicy(UPLOAD_TIMEOUT_MS, 0, 1.0f));
+        mRequest.setShouldCoalesce(false);
     }
 
     public void start(){
-        mAsyncHttpClient.post(Framework.getInstance().getContext(),
-                url,mRequestParams,new AsyncHttpResponseHandler() {
-                    @Override
-                    public void onSuccess(int statusCode, Header[] headers, byte[] responseBody) {
-                        if(statusCode != 200){
-                            mListener.onError(VolleyErrorWrapper.allocate(new VolleyError("statusCode error :" + statusCode)));
-                            return;
-                        }
-                        Map<String,String> h = new HashMap<>();
-                        for (Header header:headers){
-                            h.put(header.getName(),header.getValue());
-                        }
-                        try {
-                            String result = new String(responseBody,HttpHeaderParser.parseCharset(h));
-                            mListener.onSuccess(new Gson().fromJson(result,mClassType));
-                        } catch (UnsupportedEncodingException e) {
-                            mListener.onError(VolleyErrorWrapper.allocate(new ParseError(e)));
-                        }
-                    }
+        VolleyHelper.getRequestQueue().add(mRequest);
+    }
 
-                    @Override
-                    public void onFailure(int statusCode, Header[] headers, byte[] responseBody, Throwable error) {
-                        mListener.onError(VolleyErrorWrapper.allocate(new VolleyError(error)));
-                    }
-                });
+    public void cancel(){
+        mRequest.cancel();
     }
 
 }
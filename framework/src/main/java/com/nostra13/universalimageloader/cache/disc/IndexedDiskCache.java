@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.disc;
+
+/**
+ * Disk cache which keeps the keys of its files in memory, so it can tell whether an image is cached without
+ * touching the file system
+ */
+public interface IndexedDiskCache extends DiskCache {
+	/**
+	 * Checks whether image is cached on disk. Images whose files were deleted outside of this cache may still be
+	 * reported as cached, so use {@link #get(String)} to read the image.
+	 *
+	 * @param imageUri Original image URI
+	 * @return <b>true</b> - if image is cached on disk
+	 */
+	boolean contains(String imageUri);
+}
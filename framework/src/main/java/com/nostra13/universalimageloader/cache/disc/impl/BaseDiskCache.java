@@ -16,7 +16,7 @@
 package com.nostra13.universalimageloader.cache.disc.impl;
 
 import android.graphics.Bitmap;
-import com.nostra13.universalimageloader.cache.disc.DiskCache;
+import com.nostra13.universalimageloader.cache.disc.IndexedDiskCache;
 import com.nostra13.universalimageloader.cache.disc.naming.FileNameGenerator;
 import com.nostra13.universalimageloader.core.DefaultConfigurationFactory;
 import com.nostra13.universalimageloader.utils.IoUtils;
@@ -27,15 +27,18 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
- * Base disk cache.
+ * Base disk cache. Keeps names of cached files in memory (listed from cache directories on first use), so
+ * {@link #contains(String)} doesn't touch the file system.
  *
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
  * @see FileNameGenerator
  * @since 1.0.0
  */
-public abstract class BaseDiskCache implements DiskCache {
+public abstract class BaseDiskCache implements IndexedDiskCache {
 	/** {@value */
 	public static final int DEFAULT_BUFFER_SIZE = 32 * 1024; // 32 Kb
 	/** {@value */
@@ -56,6 +59,10 @@ public abstract class BaseDiskCache implements DiskCache {
 	protected Bitmap.CompressFormat compressFormat = DEFAULT_COMPRESS_FORMAT;
 	protected int compressQuality = DEFAULT_COMPRESS_QUALITY;
 
+	/** Names of cached files, <b>null</b> until cache directories are listed */
+	private Set<String> cachedFileNames;
+	private final Object indexLock = new Object();
+
 	/** @param cacheDir Directory for file caching */
 	public BaseDiskCache(File cacheDir) {
 		this(cacheDir, null);
@@ -98,6 +105,14 @@ public abstract class BaseDiskCache implements DiskCache {
 		return getFile(imageUri);
 	}
 
+	@Override
+	public boolean contains(String imageUri) {
+		String fileName = fileNameGenerator.generate(imageUri);
+		synchronized (indexLock) {
+			return getCachedFileNames().contains(fileName);
+		}
+	}
+
 	@Override
 	public boolean save(String imageUri, InputStream imageStream, IoUtils.CopyListener listener) throws IOException {
 		File imageFile = getFile(imageUri);
@@ -118,6 +133,9 @@ public abstract class BaseDiskCache implements DiskCache {
 				tmpFile.delete();
 			}
 		}
+		if (loaded) {
+			addToIndex(imageFile);
+		}
 		return loaded;
 	}
 
@@ -139,12 +157,17 @@ public abstract class BaseDiskCache implements DiskCache {
 			}
 		}
 		bitmap.recycle();
+		if (savedSuccessfully) {
+			addToIndex(imageFile);
+		}
 		return savedSuccessfully;
 	}
 
 	@Override
 	public boolean remove(String imageUri) {
-		return getFile(imageUri).delete();
+		File imageFile = getFile(imageUri);
+		removeFromIndex(imageFile);
+		return imageFile.delete();
 	}
 
 	@Override
@@ -160,6 +183,9 @@ public abstract class BaseDiskCache implements DiskCache {
 				f.delete();
 			}
 		}
+		synchronized (indexLock) {
+			cachedFileNames = null; // files of reserve directory are still there
+		}
 	}
 
 	/** Returns file object (not null) for incoming image URI. File object can reference to non-existing file. */
@@ -174,6 +200,45 @@ public abstract class BaseDiskCache implements DiskCache {
 		return new File(dir, fileName);
 	}
 
+	/** Removes file of cache from the index, call it if the file is deleted not by {@link #remove(String)} */
+	protected void removeFromIndex(File file) {
+		synchronized (indexLock) {
+			if (cachedFileNames != null) {
+				cachedFileNames.remove(file.getName());
+			}
+		}
+	}
+
+	private void addToIndex(File file) {
+		synchronized (indexLock) {
+			if (cachedFileNames != null) {
+				cachedFileNames.add(file.getName());
+			}
+		}
+	}
+
+	private Set<String> getCachedFileNames() {
+		if (cachedFileNames == null) {
+			cachedFileNames = new HashSet<String>();
+			listFileNames(cacheDir, cachedFileNames);
+			if (reserveCacheDir != null) {
+				listFileNames(reserveCacheDir, cachedFileNames);
+			}
+		}
+		return cachedFileNames;
+	}
+
+	private static void listFileNames(File dir, Set<String> fileNames) {
+		String[] names = dir.list();
+		if (names != null) {
+			for (String name : names) {
+				if (!name.endsWith(TEMP_IMAGE_POSTFIX)) {
+					fileNames.add(name);
+				}
+			}
+		}
+	}
+
 	public void setBufferSize(int bufferSize) {
 		this.bufferSize = bufferSize;
 	}
@@ -84,6 +84,7 @@ public class LimitedAgeDiskCache extends BaseDiskCache {
 
 			if (System.currentTimeMillis() - loadingDate > maxFileAge) {
 				file.delete();
+				removeFromIndex(file);
 				loadingDates.remove(file);
 			} else if (!cached) {
 				loadingDates.put(file, loadingDate);
@@ -454,6 +454,18 @@ final class DiskLruCache implements Closeable {
 		return new Snapshot(key, entry.sequenceNumber, files, ins, entry.lengths);
 	}
 
+	/**
+	 * Returns true if there is a readable entry named {@code key}. Unlike
+	 * {@link #get(String)} it opens no files and doesn't move the entry in the
+	 * LRU queue.
+	 */
+	public synchronized boolean contains(String key) {
+		checkNotClosed();
+		validateKey(key);
+		Entry entry = lruEntries.get(key);
+		return entry != null && entry.readable;
+	}
+
 	/**
 	 * Returns an editor for the entry named {@code key}, or null if another
 	 * edit is in progress.
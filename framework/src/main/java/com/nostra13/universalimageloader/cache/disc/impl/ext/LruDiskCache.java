@@ -16,7 +16,7 @@
 package com.nostra13.universalimageloader.cache.disc.impl.ext;
 
 import android.graphics.Bitmap;
-import com.nostra13.universalimageloader.cache.disc.DiskCache;
+import com.nostra13.universalimageloader.cache.disc.IndexedDiskCache;
 import com.nostra13.universalimageloader.cache.disc.naming.FileNameGenerator;
 import com.nostra13.universalimageloader.utils.IoUtils;
 import com.nostra13.universalimageloader.utils.L;
@@ -36,7 +36,7 @@ import java.io.OutputStream;
  * @see FileNameGenerator
  * @since 1.9.2
  */
-public class LruDiskCache implements DiskCache {
+public class LruDiskCache implements IndexedDiskCache {
 	/** {@value */
 	public static final int DEFAULT_BUFFER_SIZE = 32 * 1024; // 32 Kb
 	/** {@value */
@@ -142,6 +142,11 @@ public class LruDiskCache implements DiskCache {
 		}
 	}
 
+	@Override
+	public boolean contains(String imageUri) {
+		return cache.contains(getKey(imageUri));
+	}
+
 	@Override
 	public boolean save(String imageUri, InputStream imageStream, IoUtils.CopyListener listener) throws IOException {
 		DiskLruCache.Editor editor = cache.edit(getKey(imageUri));
@@ -66,6 +66,24 @@ public abstract class BaseMemoryCache implements MemoryCache {
 		softMap.clear();
 	}
 
+	/**
+	 * Removes the value from the cache by identity
+	 *
+	 * @return the key of the value or <b>null</b> if the value isn't cached
+	 */
+	protected String removeValue(Bitmap value) {
+		synchronized (softMap) {
+			for (Iterator<Map.Entry<String, Reference<Bitmap>>> it = softMap.entrySet().iterator(); it.hasNext(); ) {
+				Map.Entry<String, Reference<Bitmap>> entry = it.next();
+				if (entry.getValue().get() == value) {
+					it.remove();
+					return entry.getKey();
+				}
+			}
+		}
+		return null;
+	}
+
 	/** Creates {@linkplain Reference not strong} reference of value */
 	protected abstract Reference<Bitmap> createReference(Bitmap value);
 }
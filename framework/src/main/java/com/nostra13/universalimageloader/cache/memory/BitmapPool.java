@@ -0,0 +1,266 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of mutable {@link Bitmap bitmaps} which are not displayed anymore, so a decode can write into one of them
+ * ({@link android.graphics.BitmapFactory.Options#inBitmap inBitmap}) instead of allocating a new bitmap. Memory caches
+ * implementing {@link BitmapPoolAware} put their evicted bitmaps here.<br />
+ * Bitmaps are looked up by config and size: since KitKat any bitmap big enough for the decoded image can be used,
+ * before KitKat only a bitmap of the same dimensions. The oldest bitmaps are dropped when the pool exceeds its size.
+ * Reuse works since Honeycomb, on older versions the pool stays empty.
+ */
+public class BitmapPool {
+
+	/** A pooled bitmap is not used for an image that needs less than 1/4 of its memory */
+	private static final int MAX_SIZE_MULTIPLE = 4;
+
+	/** Tells whether the bitmap cached under a memory cache key may still be displayed */
+	public interface InUseFilter {
+		boolean isInUse(String memoryCacheKey);
+	}
+
+	private final int maxSize;
+	/** Platform version, decides how bitmaps are looked up */
+	private final int sdkInt;
+	private int size;
+
+	/** Pooled bitmaps by config and size key, see {@link #getSizeKey(int, int, Bitmap.Config)} */
+	private final Map<Bitmap.Config, TreeMap<Integer, LinkedList<Bitmap>>> groups =
+			new HashMap<Bitmap.Config, TreeMap<Integer, LinkedList<Bitmap>>>();
+	/** Pooled bitmaps, the oldest first */
+	private final LinkedHashSet<Bitmap> order = new LinkedHashSet<Bitmap>();
+
+	private volatile InUseFilter inUseFilter;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong reusedBytes = new AtomicLong();
+
+	/** @param maxSize Maximum size of the pooled bitmaps (in bytes) */
+	public BitmapPool(int maxSize) {
+		this(maxSize, Build.VERSION.SDK_INT);
+	}
+
+	BitmapPool(int maxSize, int sdkInt) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize <= 0");
+		}
+		this.maxSize = maxSize;
+		this.sdkInt = sdkInt;
+	}
+
+	/** Sets the filter which keeps bitmaps that may still be displayed out of the pool */
+	public void setInUseFilter(InUseFilter inUseFilter) {
+		this.inUseFilter = inUseFilter;
+	}
+
+	/**
+	 * Puts a bitmap removed from a memory cache into the pool unless it is still in use.
+	 *
+	 * @return <b>true</b> - if the pool took the bitmap, <b>false</b> - if the caller still owns it
+	 */
+	public boolean offer(String memoryCacheKey, Bitmap bitmap) {
+		if (memoryCacheKey == null) return false;
+		InUseFilter filter = inUseFilter;
+		if (filter != null && filter.isInUse(memoryCacheKey)) return false;
+		return put(bitmap);
+	}
+
+	/**
+	 * Puts a bitmap nobody displays into the pool.
+	 *
+	 * @return <b>true</b> - if the pool took the bitmap, <b>false</b> - if it can't be reused
+	 */
+	public boolean put(Bitmap bitmap) {
+		if (sdkInt < Build.VERSION_CODES.HONEYCOMB || bitmap == null || bitmap.isRecycled()
+				|| !bitmap.isMutable() || bitmap.getConfig() == null) {
+			return false;
+		}
+		int byteCount = getByteCount(bitmap);
+		if (byteCount > maxSize) {
+			return false;
+		}
+		synchronized (this) {
+			if (!order.add(bitmap)) {
+				return true;
+			}
+			int sizeKey = getSizeKey(bitmap);
+			TreeMap<Integer, LinkedList<Bitmap>> group = groups.get(bitmap.getConfig());
+			if (group == null) {
+				group = new TreeMap<Integer, LinkedList<Bitmap>>();
+				groups.put(bitmap.getConfig(), group);
+			}
+			LinkedList<Bitmap> bitmaps = group.get(sizeKey);
+			if (bitmaps == null) {
+				bitmaps = new LinkedList<Bitmap>();
+				group.put(sizeKey, bitmaps);
+			}
+			bitmaps.addLast(bitmap);
+			size += byteCount;
+			trimToSize(maxSize);
+		}
+		return true;
+	}
+
+	/**
+	 * Takes a bitmap an image of the given size and config can be decoded into.
+	 *
+	 * @return the bitmap, it is not in the pool anymore, or <b>null</b> if the pool has none
+	 */
+	public Bitmap get(int width, int height, Bitmap.Config config) {
+		if (sdkInt < Build.VERSION_CODES.HONEYCOMB || width <= 0 || height <= 0 || config == null) {
+			return null;
+		}
+		Bitmap bitmap = null;
+		synchronized (this) {
+			TreeMap<Integer, LinkedList<Bitmap>> group = groups.get(config);
+			if (group != null) {
+				int sizeKey = getSizeKey(width, height, config);
+				Integer key;
+				if (sdkInt >= Build.VERSION_CODES.KITKAT) {
+					key = group.ceilingKey(sizeKey);
+					if (key != null && key / MAX_SIZE_MULTIPLE > sizeKey) {
+						key = null;
+					}
+				} else {
+					key = group.containsKey(sizeKey) ? sizeKey : null;
+				}
+				if (key != null) {
+					bitmap = removeFromGroup(group, key);
+					order.remove(bitmap);
+					size -= getByteCount(bitmap);
+				}
+			}
+		}
+		if (bitmap == null) {
+			missCount.incrementAndGet();
+		} else {
+			hitCount.incrementAndGet();
+			reusedBytes.addAndGet(getByteCount(bitmap));
+		}
+		return bitmap;
+	}
+
+	/** Drops all pooled bitmaps */
+	public synchronized void clear() {
+		trimToSize(-1);
+	}
+
+	/** Returns the number of {@link #get(int, int, Bitmap.Config)} calls which returned a bitmap */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/** Returns the number of {@link #get(int, int, Bitmap.Config)} calls which returned <b>null</b> */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/** Returns the memory of all bitmaps decodes were written into instead of new ones (in bytes) */
+	public long getReusedBytes() {
+		return reusedBytes.get();
+	}
+
+	/** Returns the size of the pooled bitmaps (in bytes) */
+	public synchronized int getSize() {
+		return size;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	private void trimToSize(int maxSize) {
+		Iterator<Bitmap> it = order.iterator();
+		while (size > maxSize && it.hasNext()) {
+			Bitmap bitmap = it.next();
+			it.remove();
+			TreeMap<Integer, LinkedList<Bitmap>> group = groups.get(bitmap.getConfig());
+			Integer sizeKey = getSizeKey(bitmap);
+			LinkedList<Bitmap> bitmaps = group.get(sizeKey);
+			bitmaps.remove(bitmap);
+			if (bitmaps.isEmpty()) {
+				group.remove(sizeKey);
+			}
+			size -= getByteCount(bitmap);
+		}
+	}
+
+	private static Bitmap removeFromGroup(TreeMap<Integer, LinkedList<Bitmap>> group, Integer key) {
+		LinkedList<Bitmap> bitmaps = group.get(key);
+		Bitmap bitmap = bitmaps.removeFirst();
+		if (bitmaps.isEmpty()) {
+			group.remove(key);
+		}
+		return bitmap;
+	}
+
+	/** Returns the memory needed since KitKat, the packed dimensions before */
+	private int getSizeKey(int width, int height, Bitmap.Config config) {
+		if (sdkInt >= Build.VERSION_CODES.KITKAT) {
+			return width * height * getBytesPerPixel(config);
+		}
+		return (width << 16) | (height & 0xFFFF);
+	}
+
+	/** Returns the memory of the bitmap since KitKat, its packed dimensions before */
+	private int getSizeKey(Bitmap bitmap) {
+		if (sdkInt >= Build.VERSION_CODES.KITKAT) {
+			return getByteCount(bitmap);
+		}
+		return getSizeKey(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+	}
+
+	private static int getBytesPerPixel(Bitmap.Config config) {
+		switch (config) {
+			case ALPHA_8:
+				return 1;
+			case RGB_565:
+			case ARGB_4444:
+				return 2;
+			case ARGB_8888:
+			default:
+				return 4;
+		}
+	}
+
+	@TargetApi(Build.VERSION_CODES.KITKAT)
+	private int getByteCount(Bitmap bitmap) {
+		if (sdkInt >= Build.VERSION_CODES.KITKAT) {
+			return bitmap.getAllocationByteCount();
+		}
+		return bitmap.getRowBytes() * bitmap.getHeight();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("BitmapPool[size=%d, maxSize=%d, hits=%d, misses=%d, reusedBytes=%d]", size, maxSize,
+				hitCount.get(), missCount.get(), reusedBytes.get());
+	}
+}
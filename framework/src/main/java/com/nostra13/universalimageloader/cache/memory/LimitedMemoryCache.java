@@ -35,7 +35,7 @@ import java.util.concurrent.atomic.AtomicInteger;
  * @see BaseMemoryCache
  * @since 1.0.0
  */
-public abstract class LimitedMemoryCache extends BaseMemoryCache {
+public abstract class LimitedMemoryCache extends BaseMemoryCache implements BitmapPoolAware {
 
 	private static final int MAX_NORMAL_CACHE_SIZE_IN_MB = 16;
 	private static final int MAX_NORMAL_CACHE_SIZE = MAX_NORMAL_CACHE_SIZE_IN_MB * 1024 * 1024;
@@ -51,6 +51,8 @@ public abstract class LimitedMemoryCache extends BaseMemoryCache {
 	 */
 	private final List<Bitmap> hardCache = Collections.synchronizedList(new LinkedList<Bitmap>());
 
+	private volatile BitmapPool bitmapPool;
+
 	/** @param sizeLimit Maximum size for cache (in bytes) */
 	public LimitedMemoryCache(int sizeLimit) {
 		this.sizeLimit = sizeLimit;
@@ -72,6 +74,7 @@ public abstract class LimitedMemoryCache extends BaseMemoryCache {
 				Bitmap removedValue = removeNext();
 				if (hardCache.remove(removedValue)) {
 					curCacheSize = cacheSize.addAndGet(-getSize(removedValue));
+					reuse(removedValue);
 				}
 			}
 			hardCache.add(value);
@@ -102,6 +105,22 @@ public abstract class LimitedMemoryCache extends BaseMemoryCache {
 		super.clear();
 	}
 
+	@Override
+	public void setBitmapPool(BitmapPool bitmapPool) {
+		this.bitmapPool = bitmapPool;
+	}
+
+	/** Puts an evicted value into the pool, a value which is still displayed stays weakly cached */
+	private void reuse(Bitmap value) {
+		BitmapPool pool = bitmapPool;
+		if (pool == null) return;
+
+		String key = removeValue(value);
+		if (key != null && !pool.offer(key, value)) {
+			super.put(key, value);
+		}
+	}
+
 	protected int getSizeLimit() {
 		return sizeLimit;
 	}
@@ -2,6 +2,8 @@ package com.nostra13.universalimageloader.cache.memory.impl;
 
 import android.graphics.Bitmap;
 
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
+import com.nostra13.universalimageloader.cache.memory.BitmapPoolAware;
 import com.nostra13.universalimageloader.cache.memory.MemoryCache;
 
 import java.util.Collection;
@@ -12,14 +14,14 @@ import java.util.Map;
 /**
  * A cache that holds strong references to a limited number of Bitmaps. Each time a Bitmap is accessed, it is moved to
  * the head of a queue. When a Bitmap is added to a full cache, the Bitmap at the end of that queue is evicted and may
- * become eligible for garbage collection.<br />
+ * become eligible for garbage collection, or is put into the {@link BitmapPool} if one is set.<br />
  * <br />
  * <b>NOTE:</b> This cache uses only strong references for stored Bitmaps.
  *
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
  * @since 1.8.1
  */
-public class LruMemoryCache implements MemoryCache {
+public class LruMemoryCache implements MemoryCache, BitmapPoolAware {
 
 	private final LinkedHashMap<String, Bitmap> map;
 
@@ -27,6 +29,8 @@ public class LruMemoryCache implements MemoryCache {
 	/** Size of this cache in bytes */
 	private int size;
 
+	private volatile BitmapPool bitmapPool;
+
 	/** @param maxSize Maximum sum of the sizes of the Bitmaps in this cache */
 	public LruMemoryCache(int maxSize) {
 		if (maxSize <= 0) {
@@ -66,16 +70,22 @@ public class LruMemoryCache implements MemoryCache {
 			}
 		}
 
-		trimToSize(maxSize);
+		trimToSize(maxSize, true);
 		return true;
 	}
 
+	@Override
+	public void setBitmapPool(BitmapPool bitmapPool) {
+		this.bitmapPool = bitmapPool;
+	}
+
 	/**
 	 * Remove the eldest entries until the total of remaining entries is at or below the requested size.
 	 *
 	 * @param maxSize the maximum size of the cache before returning. May be -1 to evict even 0-sized elements.
+	 * @param reuse   whether to put evicted bitmaps into the bitmap pool
 	 */
-	private void trimToSize(int maxSize) {
+	private void trimToSize(int maxSize, boolean reuse) {
 		while (true) {
 			String key;
 			Bitmap value;
@@ -97,6 +107,10 @@ public class LruMemoryCache implements MemoryCache {
 				map.remove(key);
 				size -= sizeOf(key, value);
 			}
+			BitmapPool pool = bitmapPool;
+			if (reuse && pool != null) {
+				pool.offer(key, value);
+			}
 		}
 	}
 
@@ -125,7 +139,7 @@ public class LruMemoryCache implements MemoryCache {
 
 	@Override
 	public void clear() {
-		trimToSize(-1); // -1 will evict 0-sized elements
+		trimToSize(-1, false); // -1 will evict 0-sized elements
 	}
 
 	/**
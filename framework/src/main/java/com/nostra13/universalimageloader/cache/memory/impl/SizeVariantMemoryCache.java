@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+
+import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.utils.MemoryCacheUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decorator for {@link MemoryCache}. Indexes cached keys by image URI, so if there is no Bitmap for requested
+ * {@linkplain MemoryCacheUtils#generateKey(String, ImageSize) URI and size} then the smallest Bitmap of this URI which
+ * is at least as big as requested size is returned instead of decoding image again (e.g. a list thumbnail is taken
+ * from the Bitmap of the detail screen). Sizes of cached Bitmaps are compared, not target sizes of their keys, because
+ * decoded Bitmap may be smaller than its target size.<br />
+ * A bigger immutable Bitmap is returned as is unless it's more than 2 times bigger than needed, otherwise a scaled
+ * copy is returned and cached for requested key. Mutable Bitmaps are always copied because they may be put into the
+ * {@linkplain com.nostra13.universalimageloader.cache.memory.BitmapPool bitmap pool} when evicted by their own key.
+ * <br />
+ * <b>NOTE:</b> Memory cache keys don't include pre-processors and decoding options, so this decorator is used only if
+ * {@link com.nostra13.universalimageloader.core.ImageLoaderConfiguration.Builder#reuseBiggerImageSizesInMemory()}
+ * is set.<br />
+ * <b>NOTE:</b> Used for internal needs. Normally you don't need to use this class.
+ */
+public class SizeVariantMemoryCache implements MemoryCache {
+
+	/** Bigger immutable Bitmap is shared if needed size is at least this part of its size */
+	private static final float MIN_SHARED_SCALE = 0.5f;
+	/** Minimum number of indexed image URIs which makes the index drop evicted keys */
+	private static final int MIN_PRUNE_THRESHOLD = 128;
+
+	private final MemoryCache cache;
+	/** Cached keys and sizes of their Bitmaps by image URI, may contain keys already evicted from cache */
+	private final Map<String, Map<String, ImageSize>> variants = new HashMap<String, Map<String, ImageSize>>();
+	private int pruneThreshold = MIN_PRUNE_THRESHOLD;
+
+	public SizeVariantMemoryCache(MemoryCache cache) {
+		this.cache = cache;
+	}
+
+	@Override
+	public boolean put(String key, Bitmap value) {
+		boolean cached = cache.put(key, value);
+		if (cached) {
+			String imageUri = MemoryCacheUtils.getImageUri(key);
+			if (imageUri != null) {
+				addVariant(imageUri, key, new ImageSize(value.getWidth(), value.getHeight()));
+			}
+		}
+		return cached;
+	}
+
+	@Override
+	public Bitmap get(String key) {
+		Bitmap bitmap = cache.get(key);
+		if (bitmap != null) return bitmap;
+
+		ImageSize targetSize = MemoryCacheUtils.getImageSize(key);
+		if (targetSize == null) return null;
+		String imageUri = MemoryCacheUtils.getImageUri(key);
+
+		while (true) {
+			String variantKey = findBiggerVariant(imageUri, key, targetSize);
+			if (variantKey == null) return null;
+			Bitmap variant = cache.get(variantKey);
+			if (variant == null || variant.isRecycled()) {
+				removeVariant(imageUri, variantKey); // evicted meanwhile
+				continue;
+			}
+			if (variant.getWidth() < targetSize.getWidth() || variant.getHeight() < targetSize.getHeight()) {
+				// replaced meanwhile by smaller Bitmap
+				addVariant(imageUri, variantKey, new ImageSize(variant.getWidth(), variant.getHeight()));
+				continue;
+			}
+			return fitVariant(key, targetSize, variant);
+		}
+	}
+
+	@Override
+	public Bitmap remove(String key) {
+		String imageUri = MemoryCacheUtils.getImageUri(key);
+		if (imageUri != null) {
+			removeVariant(imageUri, key);
+		}
+		return cache.remove(key);
+	}
+
+	@Override
+	public void clear() {
+		synchronized (variants) {
+			variants.clear();
+		}
+		cache.clear();
+	}
+
+	@Override
+	public Collection<String> keys() {
+		return cache.keys();
+	}
+
+	/** Returns key of the smallest cached Bitmap which is at least as big as target size in both dimensions */
+	private String findBiggerVariant(String imageUri, String key, ImageSize targetSize) {
+		synchronized (variants) {
+			Map<String, ImageSize> sizes = variants.get(imageUri);
+			if (sizes == null) return null;
+
+			String bestKey = null;
+			long bestArea = Long.MAX_VALUE;
+			for (Map.Entry<String, ImageSize> entry : sizes.entrySet()) {
+				ImageSize size = entry.getValue();
+				if (size.getWidth() < targetSize.getWidth() || size.getHeight() < targetSize.getHeight()) continue;
+				long area = (long) size.getWidth() * size.getHeight();
+				if (area < bestArea && !entry.getKey().equals(key)) {
+					bestKey = entry.getKey();
+					bestArea = area;
+				}
+			}
+			return bestKey;
+		}
+	}
+
+	private Bitmap fitVariant(String key, ImageSize targetSize, Bitmap variant) {
+		float scale = Math.max((float) targetSize.getWidth() / variant.getWidth(),
+				(float) targetSize.getHeight() / variant.getHeight());
+		if (!variant.isMutable() && scale >= MIN_SHARED_SCALE) {
+			return variant;
+		}
+
+		int width = Math.max(1, Math.round(variant.getWidth() * scale));
+		int height = Math.max(1, Math.round(variant.getHeight() * scale));
+		Bitmap bitmap = Bitmap.createScaledBitmap(variant, width, height, true);
+		if (bitmap != variant) {
+			put(key, bitmap);
+		}
+		return bitmap;
+	}
+
+	private void addVariant(String imageUri, String key, ImageSize size) {
+		synchronized (variants) {
+			Map<String, ImageSize> sizes = variants.get(imageUri);
+			if (sizes == null) {
+				sizes = new HashMap<String, ImageSize>(4);
+				variants.put(imageUri, sizes);
+			}
+			sizes.put(key, size);
+			if (variants.size() > pruneThreshold) {
+				pruneEvicted();
+			}
+		}
+	}
+
+	private void removeVariant(String imageUri, String key) {
+		synchronized (variants) {
+			Map<String, ImageSize> sizes = variants.get(imageUri);
+			if (sizes != null) {
+				sizes.remove(key);
+				if (sizes.isEmpty()) {
+					variants.remove(imageUri);
+				}
+			}
+		}
+	}
+
+	/** Drops keys evicted by decorated cache from index, so index doesn't grow beyond cache size */
+	private void pruneEvicted() {
+		Collection<String> cachedKeys = cache.keys();
+		List<String> emptyUris = new ArrayList<String>();
+		for (Map.Entry<String, Map<String, ImageSize>> entry : variants.entrySet()) {
+			Map<String, ImageSize> sizes = entry.getValue();
+			sizes.keySet().retainAll(cachedKeys);
+			if (sizes.isEmpty()) {
+				emptyUris.add(entry.getKey());
+			}
+		}
+		for (String imageUri : emptyUris) {
+			variants.remove(imageUri);
+		}
+		pruneThreshold = Math.max(MIN_PRUNE_THRESHOLD, 2 * variants.size());
+	}
+}
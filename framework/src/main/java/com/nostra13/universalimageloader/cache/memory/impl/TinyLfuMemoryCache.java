@@ -0,0 +1,403 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
+import com.nostra13.universalimageloader.cache.memory.BitmapPoolAware;
+import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memory cache with limited size which keeps frequently used Bitmaps even if a lot of other Bitmaps were displayed
+ * once in the meantime (W-TinyLFU).<br />
+ * New Bitmaps enter a small LRU window. Bitmaps evicted from the window are admitted to the main LRU part only if
+ * they were requested more often than the Bitmaps they would evict; request frequencies are estimated by a compact
+ * count-min sketch which halves all counts periodically, so old popularity fades. So fast scrolling through images
+ * shown once doesn't flush images shown again and again (e.g. avatars).<br />
+ * Bitmaps bigger than the window compete for the main part right away.<br />
+ * Keys of big caches are spread over segments with their own locks, eviction is O(1). Evicted Bitmaps are put into
+ * the {@link BitmapPool} if one is set.
+ * <br />
+ * <b>NOTE:</b> This cache uses only strong references for stored Bitmaps.
+ */
+public class TinyLfuMemoryCache implements MemoryCache, BitmapPoolAware {
+
+	public static final int DEFAULT_SEGMENT_COUNT = 4;
+
+	/** Minimum size of a segment, smaller caches get fewer segments so big Bitmaps still fit */
+	private static final int MIN_SEGMENT_SIZE = 16 * 1024 * 1024;
+	/** Part of cache size for the window of new Bitmaps (in percents) */
+	private static final int WINDOW_PERCENT = 20;
+	/** Expected minimum Bitmap size, defines the number of sketch counters */
+	private static final int MIN_ENTRY_SIZE = 16 * 1024;
+
+	private final Segment[] segments;
+	private final int segmentMask;
+	private final int maxSize;
+
+	private volatile BitmapPool bitmapPool;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+	private final AtomicLong rejectionCount = new AtomicLong();
+
+	/** @param maxSize Maximum sum of the sizes of the Bitmaps in this cache */
+	public TinyLfuMemoryCache(int maxSize) {
+		this(maxSize, DEFAULT_SEGMENT_COUNT);
+	}
+
+	/**
+	 * @param maxSize      Maximum sum of the sizes of the Bitmaps in this cache
+	 * @param segmentCount Maximum number of segments (power of 2 up to 256), each holds an equal part of cache size.
+	 *                     A segment holds at least 16 MB, so caches up to 32 MB have only one. Bitmaps bigger than
+	 *                     80% of a segment aren't cached.
+	 */
+	public TinyLfuMemoryCache(int maxSize, int segmentCount) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize <= 0");
+		}
+		if (segmentCount <= 0 || segmentCount > 256 || (segmentCount & (segmentCount - 1)) != 0) {
+			throw new IllegalArgumentException("segmentCount must be a power of 2 up to 256");
+		}
+		this.maxSize = maxSize;
+		segmentCount = Math.min(segmentCount, Integer.highestOneBit(Math.max(1, maxSize / MIN_SEGMENT_SIZE)));
+		this.segmentMask = segmentCount - 1;
+		this.segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			segments[i] = new Segment(maxSize / segmentCount);
+		}
+	}
+
+	@Override
+	public Bitmap get(String key) {
+		if (key == null) {
+			throw new NullPointerException("key == null");
+		}
+
+		int hash = hash(key);
+		Bitmap value = segmentFor(hash).get(key, hash);
+		if (value == null) {
+			missCount.incrementAndGet();
+		} else {
+			hitCount.incrementAndGet();
+		}
+		return value;
+	}
+
+	/**
+	 * Caches {@code Bitmap} for {@code key} in the window of new Bitmaps.
+	 *
+	 * @return <b>false</b> - if Bitmap is too big for this cache or wasn't admitted right away
+	 */
+	@Override
+	public boolean put(String key, Bitmap value) {
+		if (key == null || value == null) {
+			throw new NullPointerException("key == null || value == null");
+		}
+
+		List<Map.Entry<String, Bitmap>> evicted = new ArrayList<Map.Entry<String, Bitmap>>(2);
+		int hash = hash(key);
+		boolean cached = segmentFor(hash).put(key, hash, value, sizeOf(value), evicted);
+		BitmapPool pool = bitmapPool;
+		if (pool != null) {
+			for (Map.Entry<String, Bitmap> entry : evicted) {
+				pool.offer(entry.getKey(), entry.getValue());
+			}
+		}
+		return cached;
+	}
+
+	@Override
+	public void setBitmapPool(BitmapPool bitmapPool) {
+		this.bitmapPool = bitmapPool;
+	}
+
+	@Override
+	public Bitmap remove(String key) {
+		if (key == null) {
+			throw new NullPointerException("key == null");
+		}
+
+		return segmentFor(hash(key)).remove(key);
+	}
+
+	@Override
+	public Collection<String> keys() {
+		Collection<String> keys = new HashSet<String>();
+		for (Segment segment : segments) {
+			segment.collectKeys(keys);
+		}
+		return keys;
+	}
+
+	@Override
+	public void clear() {
+		for (Segment segment : segments) {
+			segment.clear();
+		}
+	}
+
+	/** Returns the number of {@link #get(String)} calls which returned a Bitmap */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/** Returns the number of {@link #get(String)} calls which returned <b>null</b> */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/** Returns part of {@link #get(String)} calls which returned a Bitmap, 0 if there were no calls */
+	public float getHitRatio() {
+		long hits = hitCount.get();
+		long requests = hits + missCount.get();
+		return requests == 0 ? 0f : (float) hits / requests;
+	}
+
+	/** Returns the number of cached Bitmaps evicted to make room for more frequently used ones */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	/** Returns the number of new Bitmaps which were dropped because cached ones are used more frequently */
+	public long getRejectionCount() {
+		return rejectionCount.get();
+	}
+
+	/** Returns the sum of the sizes of the Bitmaps in this cache */
+	public int getSize() {
+		int size = 0;
+		for (Segment segment : segments) {
+			size += segment.getSize();
+		}
+		return size;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	private Segment segmentFor(int hash) {
+		return segments[(hash >>> 24) & segmentMask];
+	}
+
+	private static int hash(String key) {
+		int h = key.hashCode();
+		h = (h ^ (h >>> 16)) * 0x45d9f3b;
+		return h ^ (h >>> 16);
+	}
+
+	private static int sizeOf(Bitmap value) {
+		return value.getRowBytes() * value.getHeight();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("TinyLfuCache[maxSize=%d, hitRatio=%.2f, evictions=%d, rejections=%d]", maxSize,
+				getHitRatio(), evictionCount.get(), rejectionCount.get());
+	}
+
+	/** Part of the cache guarded by its own lock */
+	private final class Segment {
+
+		private final LinkedHashMap<String, Bitmap> window = new LinkedHashMap<String, Bitmap>(0, 0.75f, true);
+		private final LinkedHashMap<String, Bitmap> main = new LinkedHashMap<String, Bitmap>(0, 0.75f, true);
+		private final int windowMaxSize;
+		private final int mainMaxSize;
+		private int windowSize;
+		private int mainSize;
+		private final FrequencySketch sketch;
+
+		Segment(int maxSize) {
+			windowMaxSize = (int) ((long) maxSize * WINDOW_PERCENT / 100);
+			mainMaxSize = maxSize - windowMaxSize;
+			sketch = new FrequencySketch(maxSize / MIN_ENTRY_SIZE);
+		}
+
+		synchronized Bitmap get(String key, int hash) {
+			sketch.increment(hash);
+			Bitmap value = window.get(key);
+			if (value == null) {
+				value = main.get(key);
+			}
+			return value;
+		}
+
+		synchronized boolean put(String key, int hash, Bitmap value, int size,
+				List<Map.Entry<String, Bitmap>> evicted) {
+			if (size > mainMaxSize) return false;
+
+			remove(key);
+			if (size > windowMaxSize) {
+				// would flush the whole window and still not fit. A rejected Bitmap is about to be displayed, so it
+				// isn't pooled.
+				return admit(key, value, size, evicted);
+			}
+			window.put(key, value);
+			windowSize += size;
+			while (windowSize > windowMaxSize && !window.isEmpty()) {
+				Map.Entry<String, Bitmap> eldest = window.entrySet().iterator().next();
+				String candidateKey = eldest.getKey();
+				Bitmap candidate = eldest.getValue();
+				window.remove(candidateKey);
+				int candidateSize = sizeOf(candidate);
+				windowSize -= candidateSize;
+				if (!admit(candidateKey, candidate, candidateSize, evicted)) {
+					evicted.add(new AbstractMap.SimpleImmutableEntry<String, Bitmap>(candidateKey, candidate));
+				}
+			}
+			return window.containsKey(key) || main.containsKey(key);
+		}
+
+		/**
+		 * Moves Bitmap to main part if it's used more frequently than the Bitmaps it would evict
+		 *
+		 * @return <b>false</b> - if Bitmap was rejected
+		 */
+		private boolean admit(String key, Bitmap value, int size, List<Map.Entry<String, Bitmap>> evicted) {
+			int victimCount = 0;
+			int freedSize = 0;
+			if (mainSize + size > mainMaxSize) {
+				int frequency = sketch.frequency(hash(key));
+				Iterator<Map.Entry<String, Bitmap>> it = main.entrySet().iterator();
+				while (mainSize - freedSize + size > mainMaxSize) {
+					Map.Entry<String, Bitmap> victim = it.next(); // main part can hold the Bitmap, see put()
+					if (sketch.frequency(hash(victim.getKey())) >= frequency) {
+						rejectionCount.incrementAndGet();
+						return false;
+					}
+					victimCount++;
+					freedSize += sizeOf(victim.getValue());
+				}
+			}
+			Iterator<Map.Entry<String, Bitmap>> it = main.entrySet().iterator();
+			for (int i = 0; i < victimCount; i++) {
+				Map.Entry<String, Bitmap> victim = it.next();
+				evicted.add(new AbstractMap.SimpleImmutableEntry<String, Bitmap>(victim));
+				it.remove();
+			}
+			mainSize -= freedSize;
+			evictionCount.addAndGet(victimCount);
+			main.put(key, value);
+			mainSize += size;
+			return true;
+		}
+
+		synchronized Bitmap remove(String key) {
+			Bitmap previous = window.remove(key);
+			if (previous != null) {
+				windowSize -= sizeOf(previous);
+				return previous;
+			}
+			previous = main.remove(key);
+			if (previous != null) {
+				mainSize -= sizeOf(previous);
+			}
+			return previous;
+		}
+
+		synchronized void collectKeys(Collection<String> keys) {
+			keys.addAll(window.keySet());
+			keys.addAll(main.keySet());
+		}
+
+		synchronized void clear() {
+			window.clear();
+			main.clear();
+			windowSize = 0;
+			mainSize = 0;
+		}
+
+		synchronized int getSize() {
+			return windowSize + mainSize;
+		}
+	}
+
+	/**
+	 * Count-min sketch of 4-bit counters, four counters per key in one of 16 counter groups of a long. All counters are
+	 * halved after 10 increments per long, so the sketch keeps recent frequencies only.
+	 */
+	private static final class FrequencySketch {
+
+		private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+				0xcbf29ce484222325L};
+		private static final long RESET_MASK = 0x7777777777777777L;
+		private static final int MAX_COUNT = 15;
+
+		private final long[] table;
+		private final int tableMask;
+		private final int sampleSize;
+		private int additions;
+
+		FrequencySketch(int expectedEntries) {
+			int size = Integer.highestOneBit(Math.max(expectedEntries, 16) - 1) << 1;
+			table = new long[size];
+			tableMask = size - 1;
+			sampleSize = 10 * size;
+		}
+
+		int frequency(int hash) {
+			int start = (hash & 3) << 2;
+			int frequency = MAX_COUNT;
+			for (int i = 0; i < 4; i++) {
+				int offset = (start + i) << 2;
+				int count = (int) ((table[indexOf(hash, i)] >>> offset) & 0xF);
+				frequency = Math.min(frequency, count);
+			}
+			return frequency;
+		}
+
+		void increment(int hash) {
+			int start = (hash & 3) << 2;
+			boolean added = false;
+			for (int i = 0; i < 4; i++) {
+				int index = indexOf(hash, i);
+				int offset = (start + i) << 2;
+				if (((table[index] >>> offset) & 0xF) != MAX_COUNT) {
+					table[index] += 1L << offset;
+					added = true;
+				}
+			}
+			if (added && ++additions == sampleSize) {
+				reset();
+			}
+		}
+
+		private void reset() {
+			for (int i = 0; i < table.length; i++) {
+				table[i] = (table[i] >>> 1) & RESET_MASK;
+			}
+			additions /= 2;
+		}
+
+		private int indexOf(int hash, int i) {
+			long h = (hash + SEEDS[i]) * SEEDS[i];
+			h += h >>> 32;
+			return (int) h & tableMask;
+		}
+	}
+}
@@ -25,6 +25,7 @@ import com.nostra13.universalimageloader.cache.disc.impl.UnlimitedDiskCache;
 import com.nostra13.universalimageloader.cache.disc.impl.ext.LruDiskCache;
 import com.nostra13.universalimageloader.cache.disc.naming.FileNameGenerator;
 import com.nostra13.universalimageloader.cache.disc.naming.HashCodeFileNameGenerator;
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
 import com.nostra13.universalimageloader.cache.memory.MemoryCache;
 import com.nostra13.universalimageloader.cache.memory.impl.LruMemoryCache;
 import com.nostra13.universalimageloader.core.assist.QueueProcessingType;
@@ -147,6 +148,11 @@ public class DefaultConfigurationFactory {
 		return new BaseImageDecoder(loggingEnabled);
 	}
 
+	/** Creates default implementation of {@link ImageDecoder} - {@link BaseImageDecoder} which reuses pooled bitmaps */
+	public static ImageDecoder createImageDecoder(boolean loggingEnabled, BitmapPool bitmapPool) {
+		return new BaseImageDecoder(loggingEnabled, bitmapPool);
+	}
+
 	/** Creates default implementation of {@link BitmapDisplayer} - {@link SimpleBitmapDisplayer} */
 	public static BitmapDisplayer createBitmapDisplayer() {
 		return new SimpleBitmapDisplayer();
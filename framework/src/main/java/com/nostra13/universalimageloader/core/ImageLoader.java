@@ -224,6 +224,7 @@ public class ImageLoader {
 			} else {
 				imageAware.setImageDrawable(null);
 			}
+			engine.onImageDisplayed(imageAware, null);
 			listener.onLoadingComplete(uri, imageAware.getWrappedView(), null);
 			return;
 		}
@@ -250,13 +251,16 @@ public class ImageLoader {
 				}
 			} else {
 				options.getDisplayer().display(bmp, imageAware, LoadedFrom.MEMORY_CACHE);
+				engine.onImageDisplayed(imageAware, memoryCacheKey);
 				listener.onLoadingComplete(uri, imageAware.getWrappedView(), bmp);
 			}
 		} else {
 			if (options.shouldShowImageOnLoading()) {
 				imageAware.setImageDrawable(options.getImageOnLoading(configuration.resources));
+				engine.onImageDisplayed(imageAware, null);
 			} else if (options.isResetViewBeforeLoading()) {
 				imageAware.setImageDrawable(null);
+				engine.onImageDisplayed(imageAware, null);
 			}
 
 			ImageLoadingInfo imageLoadingInfo = new ImageLoadingInfo(uri, imageAware, targetSize, memoryCacheKey,
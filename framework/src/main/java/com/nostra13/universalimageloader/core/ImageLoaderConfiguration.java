@@ -20,8 +20,11 @@ import android.content.res.Resources;
 import android.util.DisplayMetrics;
 import com.nostra13.universalimageloader.cache.disc.DiskCache;
 import com.nostra13.universalimageloader.cache.disc.naming.FileNameGenerator;
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
+import com.nostra13.universalimageloader.cache.memory.BitmapPoolAware;
 import com.nostra13.universalimageloader.cache.memory.MemoryCache;
 import com.nostra13.universalimageloader.cache.memory.impl.FuzzyKeyMemoryCache;
+import com.nostra13.universalimageloader.cache.memory.impl.SizeVariantMemoryCache;
 import com.nostra13.universalimageloader.core.assist.FlushedInputStream;
 import com.nostra13.universalimageloader.core.assist.ImageSize;
 import com.nostra13.universalimageloader.core.assist.QueueProcessingType;
@@ -67,6 +70,7 @@ public final class ImageLoaderConfiguration {
 	final QueueProcessingType tasksProcessingType;
 
 	final MemoryCache memoryCache;
+	final BitmapPool bitmapPool;
 	final DiskCache diskCache;
 	final ImageDownloader downloader;
 	final ImageDecoder decoder;
@@ -89,6 +93,7 @@ public final class ImageLoaderConfiguration {
 		tasksProcessingType = builder.tasksProcessingType;
 		diskCache = builder.diskCache;
 		memoryCache = builder.memoryCache;
+		bitmapPool = builder.bitmapPool;
 		defaultDisplayImageOptions = builder.defaultDisplayImageOptions;
 		downloader = builder.downloader;
 		decoder = builder.decoder;
@@ -127,6 +132,21 @@ public final class ImageLoaderConfiguration {
 		return new Builder(context).build();
 	}
 
+	/** Returns the number of decodes which wrote into a pooled bitmap, 0 if no bitmap pool is used */
+	public long getBitmapPoolHitCount() {
+		return bitmapPool == null ? 0 : bitmapPool.getHitCount();
+	}
+
+	/** Returns the number of decodes which found no fitting pooled bitmap, 0 if no bitmap pool is used */
+	public long getBitmapPoolMissCount() {
+		return bitmapPool == null ? 0 : bitmapPool.getMissCount();
+	}
+
+	/** Returns the memory decodes reused from the bitmap pool (in bytes), 0 if no bitmap pool is used */
+	public long getBitmapPoolReusedBytes() {
+		return bitmapPool == null ? 0 : bitmapPool.getReusedBytes();
+	}
+
 	ImageSize getMaxImageSize() {
 		DisplayMetrics displayMetrics = resources.getDisplayMetrics();
 
@@ -177,6 +197,7 @@ public final class ImageLoaderConfiguration {
 		private int threadPoolSize = DEFAULT_THREAD_POOL_SIZE;
 		private int threadPriority = DEFAULT_THREAD_PRIORITY;
 		private boolean denyCacheImageMultipleSizesInMemory = false;
+		private boolean reuseBiggerImageSizesInMemory = false;
 		private QueueProcessingType tasksProcessingType = DEFAULT_TASK_PROCESSING_TYPE;
 
 		private int memoryCacheSize = 0;
@@ -184,6 +205,7 @@ public final class ImageLoaderConfiguration {
 		private int diskCacheFileCount = 0;
 
 		private MemoryCache memoryCache = null;
+		private BitmapPool bitmapPool = null;
 		private DiskCache diskCache = null;
 		private FileNameGenerator diskCacheFileNameGenerator = null;
 		private ImageDownloader downloader = null;
@@ -334,6 +356,19 @@ public final class ImageLoaderConfiguration {
 			return this;
 		}
 
+		/**
+		 * When you display an image in a small {@link android.widget.ImageView ImageView} and a bigger size of this
+		 * image (from identical URI) is already cached in memory then the image is decoded again for smaller size.<br />
+		 * So <b>the default behavior is to decode every size of one image from its source</b>. You can <b>allow</b> to
+		 * take smaller sizes from bigger Bitmaps cached in memory (or their scaled copies) by calling <b>this</b>
+		 * method, see {@link SizeVariantMemoryCache}. Enable it only if all images of one URI are displayed with
+		 * identical pre-processors and decoding options: memory cache keys don't include them.
+		 */
+		public Builder reuseBiggerImageSizesInMemory() {
+			this.reuseBiggerImageSizesInMemory = true;
+			return this;
+		}
+
 		/**
 		 * Sets type of queue processing for tasks for loading and displaying images.<br />
 		 * Default value - {@link QueueProcessingType#FIFO}
@@ -511,6 +546,23 @@ public final class ImageLoaderConfiguration {
 			return this;
 		}
 
+		/**
+		 * Sets maximum size of the {@link BitmapPool pool} of bitmaps evicted from memory cache (in bytes). Decoding
+		 * writes into pooled bitmaps instead of allocating new ones.<br />
+		 * Default value - no pool, evicted bitmaps are left to the garbage collector.<br />
+		 * <b>NOTE:</b> Bitmaps are pooled once memory cache evicts them and no view displays them. Don't use the pool if
+		 * you keep bitmaps got from {@link ImageLoader#loadImageSync(String)} or listeners after they were evicted.
+		 * Evictions are pooled by memory caches implementing
+		 * {@link com.nostra13.universalimageloader.cache.memory.BitmapPoolAware BitmapPoolAware}, and decodes use the
+		 * pool only with the default {@linkplain #imageDecoder(ImageDecoder) image decoder}.
+		 */
+		public Builder bitmapPoolSize(int bitmapPoolSize) {
+			if (bitmapPoolSize <= 0) throw new IllegalArgumentException("bitmapPoolSize must be a positive number");
+
+			this.bitmapPool = new BitmapPool(bitmapPoolSize);
+			return this;
+		}
+
 		/**
 		 * Sets utility which will be responsible for downloading of image.<br />
 		 * Default value -
@@ -583,14 +635,20 @@ public final class ImageLoaderConfiguration {
 			if (memoryCache == null) {
 				memoryCache = DefaultConfigurationFactory.createMemoryCache(context, memoryCacheSize);
 			}
+			if (bitmapPool != null && memoryCache instanceof BitmapPoolAware) {
+				((BitmapPoolAware) memoryCache).setBitmapPool(bitmapPool);
+			}
 			if (denyCacheImageMultipleSizesInMemory) {
 				memoryCache = new FuzzyKeyMemoryCache(memoryCache, MemoryCacheUtils.createFuzzyKeyComparator());
 			}
+			if (reuseBiggerImageSizesInMemory) {
+				memoryCache = new SizeVariantMemoryCache(memoryCache);
+			}
 			if (downloader == null) {
 				downloader = DefaultConfigurationFactory.createImageDownloader(context);
 			}
 			if (decoder == null) {
-				decoder = DefaultConfigurationFactory.createImageDecoder(writeLogs);
+				decoder = DefaultConfigurationFactory.createImageDecoder(writeLogs, bitmapPool);
 			}
 			if (defaultDisplayImageOptions == null) {
 				defaultDisplayImageOptions = DisplayImageOptions.createSimple();
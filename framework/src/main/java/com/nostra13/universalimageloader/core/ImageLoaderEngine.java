@@ -16,6 +16,9 @@
 package com.nostra13.universalimageloader.core;
 
 import android.view.View;
+import com.nostra13.universalimageloader.cache.disc.DiskCache;
+import com.nostra13.universalimageloader.cache.disc.IndexedDiskCache;
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
 import com.nostra13.universalimageloader.core.assist.FailReason;
 import com.nostra13.universalimageloader.core.assist.FlushedInputStream;
 import com.nostra13.universalimageloader.core.imageaware.ImageAware;
@@ -37,7 +40,7 @@ import java.util.concurrent.locks.ReentrantLock;
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
  * @since 1.7.1
  */
-class ImageLoaderEngine {
+class ImageLoaderEngine implements BitmapPool.InUseFilter {
 
 	final ImageLoaderConfiguration configuration;
 
@@ -48,6 +51,8 @@ class ImageLoaderEngine {
 	private final Map<Integer, String> cacheKeysForImageAwares = Collections
 			.synchronizedMap(new HashMap<Integer, String>());
 	private final Map<String, ReentrantLock> uriLocks = new WeakHashMap<String, ReentrantLock>();
+	/** Memory cache keys of the images views display, the views are weakly referenced */
+	private final Map<View, String> displayedKeys = new WeakHashMap<View, String>();
 
 	private final AtomicBoolean paused = new AtomicBoolean(false);
 	private final AtomicBoolean networkDenied = new AtomicBoolean(false);
@@ -62,6 +67,10 @@ class ImageLoaderEngine {
 		taskExecutorForCachedImages = configuration.taskExecutorForCachedImages;
 
 		taskDistributor = DefaultConfigurationFactory.createTaskDistributor();
+
+		if (configuration.bitmapPool != null) {
+			configuration.bitmapPool.setInUseFilter(this);
+		}
 	}
 
 	/** Submits task to execution pool */
@@ -69,8 +78,7 @@ class ImageLoaderEngine {
 		taskDistributor.execute(new Runnable() {
 			@Override
 			public void run() {
-				File image = configuration.diskCache.get(task.getLoadingUri());
-				boolean isImageCachedOnDisk = image != null && image.exists();
+				boolean isImageCachedOnDisk = isImageCachedOnDisk(task.getLoadingUri());
 				initExecutorsIfNeed();
 				if (isImageCachedOnDisk) {
 					taskExecutorForCachedImages.execute(task);
@@ -81,6 +89,16 @@ class ImageLoaderEngine {
 		});
 	}
 
+	/** Checks the in-memory index of disk cache if it has one, so routing a task doesn't stat the image file */
+	private boolean isImageCachedOnDisk(String uri) {
+		DiskCache diskCache = configuration.diskCache;
+		if (diskCache instanceof IndexedDiskCache) {
+			return ((IndexedDiskCache) diskCache).contains(uri);
+		}
+		File image = diskCache.get(uri);
+		return image != null && image.exists();
+	}
+
 	/** Submits task to execution pool */
 	void submit(ProcessAndDisplayImageTask task) {
 		initExecutorsIfNeed();
@@ -118,6 +136,34 @@ class ImageLoaderEngine {
 		cacheKeysForImageAwares.put(imageAware.getId(), memoryCacheKey);
 	}
 
+	/**
+	 * Remembers the image <b>imageAware</b> displays, so its bitmap isn't put into the
+	 * {@linkplain ImageLoaderConfiguration#bitmapPool bitmap pool} while it is displayed.
+	 *
+	 * @param memoryCacheKey Key of the displayed image or <b>null</b> if the view doesn't display an image anymore
+	 */
+	void onImageDisplayed(ImageAware imageAware, String memoryCacheKey) {
+		if (configuration.bitmapPool == null) return;
+
+		View view = imageAware.getWrappedView();
+		if (view != null) {
+			synchronized (displayedKeys) {
+				displayedKeys.put(view, memoryCacheKey);
+			}
+		}
+	}
+
+	/** Returns <b>true</b> if the image is loading or displayed in a view */
+	@Override
+	public boolean isInUse(String memoryCacheKey) {
+		if (cacheKeysForImageAwares.containsValue(memoryCacheKey)) {
+			return true;
+		}
+		synchronized (displayedKeys) {
+			return displayedKeys.containsValue(memoryCacheKey);
+		}
+	}
+
 	/**
 	 * Cancels the task of loading and displaying image for incoming <b>imageAware</b>.
 	 *
@@ -15,11 +15,14 @@
  *******************************************************************************/
 package com.nostra13.universalimageloader.core.decode;
 
+import android.annotation.TargetApi;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.BitmapFactory.Options;
 import android.graphics.Matrix;
 import android.media.ExifInterface;
+import android.os.Build;
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
 import com.nostra13.universalimageloader.core.assist.ImageScaleType;
 import com.nostra13.universalimageloader.core.assist.ImageSize;
 import com.nostra13.universalimageloader.core.download.ImageDownloader.Scheme;
@@ -27,6 +30,7 @@ import com.nostra13.universalimageloader.utils.ImageSizeUtils;
 import com.nostra13.universalimageloader.utils.IoUtils;
 import com.nostra13.universalimageloader.utils.L;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -45,8 +49,13 @@ public class BaseImageDecoder implements ImageDecoder {
 	protected static final String LOG_FLIP_IMAGE = "Flip image horizontally [%s]";
 	protected static final String ERROR_NO_IMAGE_STREAM = "No stream for image [%s]";
 	protected static final String ERROR_CANT_DECODE_IMAGE = "Image can't be decoded [%s]";
+	protected static final String LOG_REUSE_BITMAP_FAILED = "Pooled bitmap doesn't fit image, decode into new bitmap [%s]";
+
+	/** Buffer size of the image stream if it doesn't support mark, grows up to header size while reading header */
+	private static final int BUFFER_SIZE = 8 * 1024; // 8 Kb
 
 	protected final boolean loggingEnabled;
+	protected final BitmapPool bitmapPool;
 
 	/**
 	 * @param loggingEnabled Whether debug logs will be written to LogCat. Usually should match {@link
@@ -54,7 +63,17 @@ public class BaseImageDecoder implements ImageDecoder {
 	 *                       ImageLoaderConfiguration.writeDebugLogs()}
 	 */
 	public BaseImageDecoder(boolean loggingEnabled) {
+		this(loggingEnabled, null);
+	}
+
+	/**
+	 * @param loggingEnabled Whether debug logs will be written to LogCat
+	 * @param bitmapPool     Pool which images are decoded into if it has a fitting bitmap, decoded images are mutable
+	 *                       so they can be pooled later. Can be <b>null</b>.
+	 */
+	public BaseImageDecoder(boolean loggingEnabled, BitmapPool bitmapPool) {
 		this.loggingEnabled = loggingEnabled;
+		this.bitmapPool = bitmapPool;
 	}
 
 	/**
@@ -76,11 +95,36 @@ public class BaseImageDecoder implements ImageDecoder {
 			L.e(ERROR_NO_IMAGE_STREAM, decodingInfo.getImageKey());
 			return null;
 		}
+		if (!imageStream.markSupported()) {
+			imageStream = new BufferedInputStream(imageStream, BUFFER_SIZE);
+		}
 		try {
 			imageInfo = defineImageSizeAndRotation(imageStream, decodingInfo);
 			imageStream = resetStream(imageStream, decodingInfo);
+			Bitmap presetBitmap = getInBitmap(decodingInfo.getDecodingOptions());
 			Options decodingOptions = prepareDecodingOptions(imageInfo.imageSize, decodingInfo);
-			decodedBitmap = BitmapFactory.decodeStream(imageStream, null, decodingOptions);
+			if (bitmapPool != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+				// imageSize is turned by EXIF rotation, turning it back gives the size of the decoded bitmap
+				ImageSize decodedSize = new ImageSize(imageInfo.imageSize.getWidth(), imageInfo.imageSize.getHeight(),
+						imageInfo.exif.rotation);
+				prepareBitmapReuse(decodingOptions, decodedSize, decodingOptions.inSampleSize);
+			}
+			Bitmap pooledBitmap = getInBitmap(decodingOptions);
+			if (pooledBitmap == presetBitmap) {
+				pooledBitmap = null;
+			}
+			try {
+				decodedBitmap = BitmapFactory.decodeStream(imageStream, null, decodingOptions);
+			} catch (IllegalArgumentException e) {
+				decodedBitmap = null;
+			}
+			if (decodedBitmap == null && pooledBitmap != null) {
+				if (loggingEnabled) L.d(LOG_REUSE_BITMAP_FAILED, decodingInfo.getImageKey());
+				bitmapPool.put(pooledBitmap);
+				setInBitmap(decodingOptions, null);
+				imageStream = resetStream(imageStream, decodingInfo);
+				decodedBitmap = BitmapFactory.decodeStream(imageStream, null, decodingOptions);
+			}
 		} finally {
 			IoUtils.closeSilently(imageStream);
 		}
@@ -98,56 +142,89 @@ public class BaseImageDecoder implements ImageDecoder {
 		return decodingInfo.getDownloader().getStream(decodingInfo.getImageUri(), decodingInfo.getExtraForDownloader());
 	}
 
+	/**
+	 * Defines image size and EXIF orientation from the image header, so the image is read only once. The stream is
+	 * marked and can be {@linkplain #resetStream(InputStream, ImageDecodingInfo) reset} afterwards unless the image
+	 * format is unknown to {@link ImageHeaderParser} and the header had to be decoded by {@link BitmapFactory}.
+	 */
 	protected ImageFileInfo defineImageSizeAndRotation(InputStream imageStream, ImageDecodingInfo decodingInfo)
 			throws IOException {
-		Options options = new Options();
-		options.inJustDecodeBounds = true;
-		BitmapFactory.decodeStream(imageStream, null, options);
+		String imageUri = decodingInfo.getImageUri();
+		boolean considerExifParams = decodingInfo.shouldConsiderExifParams();
+		ImageHeaderParser.ImageHeader header = null;
+		if (imageStream.markSupported()) {
+			imageStream.mark(ImageHeaderParser.MAX_HEADER_SIZE);
+			header = ImageHeaderParser.parse(imageStream, considerExifParams);
+			imageStream.reset();
+		}
+
+		int width;
+		int height;
+		String mimeType;
+		int exifOrientation = ImageHeaderParser.ORIENTATION_UNDEFINED;
+		if (header != null) {
+			width = header.width;
+			height = header.height;
+			mimeType = header.mimeType;
+			exifOrientation = header.orientation;
+		} else {
+			Options options = new Options();
+			options.inJustDecodeBounds = true;
+			BitmapFactory.decodeStream(imageStream, null, options);
+			width = options.outWidth;
+			height = options.outHeight;
+			mimeType = options.outMimeType;
+		}
 
 		ExifInfo exif;
-		String imageUri = decodingInfo.getImageUri();
-		if (decodingInfo.shouldConsiderExifParams() && canDefineExifParams(imageUri, options.outMimeType)) {
+		if (!considerExifParams || !"image/jpeg".equalsIgnoreCase(mimeType)) {
+			exif = new ExifInfo();
+		} else if (exifOrientation != ImageHeaderParser.ORIENTATION_UNDEFINED) {
+			exif = createExifInfo(exifOrientation);
+		} else if (Scheme.ofUri(imageUri) == Scheme.FILE) {
 			exif = defineExifOrientation(imageUri);
 		} else {
 			exif = new ExifInfo();
 		}
-		return new ImageFileInfo(new ImageSize(options.outWidth, options.outHeight, exif.rotation), exif);
-	}
-
-	private boolean canDefineExifParams(String imageUri, String mimeType) {
-		return "image/jpeg".equalsIgnoreCase(mimeType) && (Scheme.ofUri(imageUri) == Scheme.FILE);
+		return new ImageFileInfo(new ImageSize(width, height, exif.rotation), exif);
 	}
 
 	protected ExifInfo defineExifOrientation(String imageUri) {
-		int rotation = 0;
-		boolean flip = false;
 		try {
 			ExifInterface exif = new ExifInterface(Scheme.FILE.crop(imageUri));
-			int exifOrientation = exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
-			switch (exifOrientation) {
-				case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
-					flip = true;
-				case ExifInterface.ORIENTATION_NORMAL:
-					rotation = 0;
-					break;
-				case ExifInterface.ORIENTATION_TRANSVERSE:
-					flip = true;
-				case ExifInterface.ORIENTATION_ROTATE_90:
-					rotation = 90;
-					break;
-				case ExifInterface.ORIENTATION_FLIP_VERTICAL:
-					flip = true;
-				case ExifInterface.ORIENTATION_ROTATE_180:
-					rotation = 180;
-					break;
-				case ExifInterface.ORIENTATION_TRANSPOSE:
-					flip = true;
-				case ExifInterface.ORIENTATION_ROTATE_270:
-					rotation = 270;
-					break;
-			}
+			return createExifInfo(exif.getAttributeInt(ExifInterface.TAG_ORIENTATION,
+					ExifInterface.ORIENTATION_NORMAL));
 		} catch (IOException e) {
 			L.w("Can't read EXIF tags from file [%s]", imageUri);
+			return new ExifInfo();
+		}
+	}
+
+	/** Converts EXIF orientation tag value to rotation and flip */
+	protected ExifInfo createExifInfo(int exifOrientation) {
+		int rotation = 0;
+		boolean flip = false;
+		switch (exifOrientation) {
+			case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+				flip = true;
+			case ExifInterface.ORIENTATION_NORMAL:
+				rotation = 0;
+				break;
+			case ExifInterface.ORIENTATION_TRANSVERSE:
+				flip = true;
+			case ExifInterface.ORIENTATION_ROTATE_90:
+				rotation = 90;
+				break;
+			case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+				flip = true;
+			case ExifInterface.ORIENTATION_ROTATE_180:
+				rotation = 180;
+				break;
+			case ExifInterface.ORIENTATION_TRANSPOSE:
+				flip = true;
+			case ExifInterface.ORIENTATION_ROTATE_270:
+				rotation = 270;
+				break;
 		}
 		return new ExifInfo(rotation, flip);
 	}
@@ -173,6 +250,40 @@ public class BaseImageDecoder implements ImageDecoder {
 		return decodingOptions;
 	}
 
+	/**
+	 * Makes the decoded bitmap mutable so it can be pooled later and takes a pooled bitmap the image fits in. Before
+	 * KitKat a bitmap can be reused only for an image of the same size which isn't subsampled.
+	 *
+	 * @param imageSize Size of the image as stored, not rotated by its EXIF orientation
+	 */
+	@TargetApi(Build.VERSION_CODES.HONEYCOMB)
+	private void prepareBitmapReuse(Options decodingOptions, ImageSize imageSize, int scale) {
+		decodingOptions.inMutable = true;
+		if (decodingOptions.inBitmap != null) return; // set by display options
+
+		if (scale > 1 && Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) return;
+
+		Bitmap.Config config = decodingOptions.inPreferredConfig;
+		if (config == null) {
+			config = Bitmap.Config.ARGB_8888;
+		}
+		// subsampling may round up
+		int width = (imageSize.getWidth() + scale - 1) / scale;
+		int height = (imageSize.getHeight() + scale - 1) / scale;
+		decodingOptions.inBitmap = bitmapPool.get(width, height, config);
+	}
+
+	@TargetApi(Build.VERSION_CODES.HONEYCOMB)
+	private Bitmap getInBitmap(Options decodingOptions) {
+		if (bitmapPool == null || Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) return null;
+		return decodingOptions.inBitmap;
+	}
+
+	@TargetApi(Build.VERSION_CODES.HONEYCOMB)
+	private void setInBitmap(Options decodingOptions, Bitmap bitmap) {
+		decodingOptions.inBitmap = bitmap;
+	}
+
 	protected InputStream resetStream(InputStream imageStream, ImageDecodingInfo decodingInfo) throws IOException {
 		try {
 			imageStream.reset();
@@ -213,10 +324,18 @@ public class BaseImageDecoder implements ImageDecoder {
 			if (loggingEnabled) L.d(LOG_ROTATE_IMAGE, rotation, decodingInfo.getImageKey());
 		}
 
+		if (m.isIdentity()) {
+			// createBitmap() copies mutable bitmaps even for identity matrix
+			return subsampledBitmap;
+		}
+
 		Bitmap finalBitmap = Bitmap.createBitmap(subsampledBitmap, 0, 0, subsampledBitmap.getWidth(), subsampledBitmap
 				.getHeight(), m, true);
 		if (finalBitmap != subsampledBitmap) {
-			subsampledBitmap.recycle();
+			// never displayed, so it can be reused right away
+			if (bitmapPool == null || !bitmapPool.put(subsampledBitmap)) {
+				subsampledBitmap.recycle();
+			}
 		}
 		return finalBitmap;
 	}
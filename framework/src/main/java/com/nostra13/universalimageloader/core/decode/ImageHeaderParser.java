@@ -0,0 +1,299 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core.decode;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads size, MIME type and EXIF orientation of JPEG, PNG, GIF and WebP images from the first bytes of the image
+ * stream. Reads at most {@link #MAX_HEADER_SIZE} bytes, so a marked stream can be reset and decoded afterwards
+ * without opening the image again.
+ */
+public final class ImageHeaderParser {
+
+	/** Maximum number of bytes read from the stream, big enough for the EXIF segment of a camera JPEG */
+	public static final int MAX_HEADER_SIZE = 64 * 1024;
+
+	public static final int ORIENTATION_UNDEFINED = 0;
+
+	private static final int JPEG_SOI = 0xD8;
+	private static final int JPEG_EOI = 0xD9;
+	private static final int JPEG_SOS = 0xDA;
+	private static final int JPEG_APP1 = 0xE1;
+	private static final byte[] EXIF_HEADER = {'E', 'x', 'i', 'f', 0, 0};
+	private static final int EXIF_TAG_ORIENTATION = 0x0112;
+	private static final int EXIF_TYPE_SHORT = 3;
+
+	private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+	/** Image properties read from the header */
+	public static final class ImageHeader {
+
+		public final String mimeType;
+		public final int width;
+		public final int height;
+		/** EXIF orientation tag value or {@link #ORIENTATION_UNDEFINED} if the header has none */
+		public final int orientation;
+
+		ImageHeader(String mimeType, int width, int height, int orientation) {
+			this.mimeType = mimeType;
+			this.width = width;
+			this.height = height;
+			this.orientation = orientation;
+		}
+	}
+
+	private final InputStream stream;
+	private int position;
+
+	private ImageHeaderParser(InputStream stream) {
+		this.stream = stream;
+	}
+
+	/**
+	 * Reads the image header from the current stream position. The stream isn't reset.
+	 *
+	 * @param stream   Image stream
+	 * @param readExif Whether EXIF orientation of JPEG images should be read
+	 * @return Image header or <b>null</b> if the format isn't supported or the header wasn't found within {@link
+	 * #MAX_HEADER_SIZE} bytes
+	 * @throws IOException if some I/O exception occurs during stream reading
+	 */
+	public static ImageHeader parse(InputStream stream, boolean readExif) throws IOException {
+		try {
+			return new ImageHeaderParser(stream).parse(readExif);
+		} catch (HeaderTooLongException e) {
+			return null;
+		}
+	}
+
+	private ImageHeader parse(boolean readExif) throws IOException {
+		int b0 = read();
+		int b1 = read();
+		if (b0 == 0xFF && b1 == JPEG_SOI) {
+			return parseJpeg(readExif);
+		}
+		if (b0 == (PNG_SIGNATURE[0] & 0xFF) && b1 == PNG_SIGNATURE[1]) {
+			return parsePng();
+		}
+		if (b0 == 'G' && b1 == 'I') {
+			return parseGif();
+		}
+		if (b0 == 'R' && b1 == 'I') {
+			return parseWebp();
+		}
+		return null;
+	}
+
+	private ImageHeader parseJpeg(boolean readExif) throws IOException {
+		int orientation = ORIENTATION_UNDEFINED;
+		while (true) {
+			int marker = read();
+			if (marker != 0xFF) return null;
+			do {
+				marker = read(); // fill bytes
+			} while (marker == 0xFF);
+			if (marker == JPEG_SOI || marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+				continue; // no segment length
+			}
+			if (marker < 0 || marker == JPEG_EOI || marker == JPEG_SOS) {
+				return null; // image data starts before frame header
+			}
+			int length = readUInt16(true) - 2;
+			if (length < 0) return null;
+
+			if (isStartOfFrame(marker)) {
+				skip(1); // sample precision
+				int height = readUInt16(true);
+				int width = readUInt16(true);
+				if (width <= 0 || height <= 0) return null;
+				return new ImageHeader("image/jpeg", width, height, orientation);
+			} else if (marker == JPEG_APP1 && readExif && orientation == ORIENTATION_UNDEFINED) {
+				byte[] segment = new byte[length];
+				readFully(segment);
+				orientation = parseExifOrientation(segment);
+			} else {
+				skip(length);
+			}
+		}
+	}
+
+	/** SOF0..SOF15 except DHT, JPG and DAC markers */
+	private static boolean isStartOfFrame(int marker) {
+		return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+	}
+
+	private static int parseExifOrientation(byte[] segment) {
+		for (int i = 0; i < EXIF_HEADER.length; i++) {
+			if (i >= segment.length || segment[i] != EXIF_HEADER[i]) return ORIENTATION_UNDEFINED;
+		}
+		int tiff = EXIF_HEADER.length;
+		if (segment.length < tiff + 8) return ORIENTATION_UNDEFINED;
+
+		boolean bigEndian;
+		if (segment[tiff] == 'M' && segment[tiff + 1] == 'M') {
+			bigEndian = true;
+		} else if (segment[tiff] == 'I' && segment[tiff + 1] == 'I') {
+			bigEndian = false;
+		} else {
+			return ORIENTATION_UNDEFINED;
+		}
+		if (getUInt16(segment, tiff + 2, bigEndian) != 42) return ORIENTATION_UNDEFINED;
+
+		long ifdOffset = getUInt32(segment, tiff + 4, bigEndian);
+		if (ifdOffset < 8 || tiff + ifdOffset + 2 > segment.length) return ORIENTATION_UNDEFINED;
+		int ifd = tiff + (int) ifdOffset;
+		int entryCount = getUInt16(segment, ifd, bigEndian);
+		for (int i = 0; i < entryCount; i++) {
+			int entry = ifd + 2 + i * 12;
+			if (entry + 12 > segment.length) break;
+			if (getUInt16(segment, entry, bigEndian) == EXIF_TAG_ORIENTATION) {
+				if (getUInt16(segment, entry + 2, bigEndian) != EXIF_TYPE_SHORT) break;
+				int orientation = getUInt16(segment, entry + 8, bigEndian);
+				return orientation >= 1 && orientation <= 8 ? orientation : ORIENTATION_UNDEFINED;
+			}
+		}
+		return ORIENTATION_UNDEFINED;
+	}
+
+	private ImageHeader parsePng() throws IOException {
+		byte[] header = new byte[PNG_SIGNATURE.length - 2 + 16];
+		readFully(header);
+		for (int i = 2; i < PNG_SIGNATURE.length; i++) {
+			if (header[i - 2] != PNG_SIGNATURE[i]) return null;
+		}
+		int chunk = PNG_SIGNATURE.length - 2;
+		if (header[chunk + 4] != 'I' || header[chunk + 5] != 'H' || header[chunk + 6] != 'D'
+				|| header[chunk + 7] != 'R') {
+			return null;
+		}
+		long width = getUInt32(header, chunk + 8, true);
+		long height = getUInt32(header, chunk + 12, true);
+		return newHeader("image/png", width, height);
+	}
+
+	private ImageHeader parseGif() throws IOException {
+		byte[] header = new byte[8];
+		readFully(header);
+		if (header[0] != 'F' || header[1] != '8' || (header[2] != '7' && header[2] != '9') || header[3] != 'a') {
+			return null;
+		}
+		int width = getUInt16(header, 4, false);
+		int height = getUInt16(header, 6, false);
+		return newHeader("image/gif", width, height);
+	}
+
+	private ImageHeader parseWebp() throws IOException {
+		byte[] header = new byte[28];
+		readFully(header);
+		// "RIFF" size "WEBP" chunk-type chunk-size
+		if (header[0] != 'F' || header[1] != 'F' || header[6] != 'W' || header[7] != 'E' || header[8] != 'B'
+				|| header[9] != 'P' || header[10] != 'V' || header[11] != 'P' || header[12] != '8') {
+			return null;
+		}
+		int data = 18;
+		long width;
+		long height;
+		switch (header[13]) {
+			case ' ': // lossy: frame tag, start code, 14 bit dimensions
+				if ((header[data + 3] & 0xFF) != 0x9D || (header[data + 4] & 0xFF) != 0x01
+						|| (header[data + 5] & 0xFF) != 0x2A) {
+					return null;
+				}
+				width = getUInt16(header, data + 6, false) & 0x3FFF;
+				height = getUInt16(header, data + 8, false) & 0x3FFF;
+				break;
+			case 'L': // lossless: signature, 14 bit dimensions - 1
+				if ((header[data] & 0xFF) != 0x2F) return null;
+				long bits = getUInt32(header, data + 1, false);
+				width = (bits & 0x3FFF) + 1;
+				height = ((bits >> 14) & 0x3FFF) + 1;
+				break;
+			case 'X': // extended: flags, reserved, 24 bit canvas dimensions - 1
+				width = getUInt24(header, data + 4) + 1;
+				height = getUInt24(header, data + 7) + 1;
+				break;
+			default:
+				return null;
+		}
+		return newHeader("image/webp", width, height);
+	}
+
+	private static ImageHeader newHeader(String mimeType, long width, long height) {
+		if (width <= 0 || height <= 0 || width > Integer.MAX_VALUE || height > Integer.MAX_VALUE) return null;
+		return new ImageHeader(mimeType, (int) width, (int) height, ORIENTATION_UNDEFINED);
+	}
+
+	private int read() throws IOException {
+		if (position >= MAX_HEADER_SIZE) return -1;
+		int b = stream.read();
+		if (b >= 0) position++;
+		return b;
+	}
+
+	private int readUInt16(boolean bigEndian) throws IOException {
+		int b0 = read();
+		int b1 = read();
+		if (b0 < 0 || b1 < 0) return -1;
+		return bigEndian ? (b0 << 8) | b1 : (b1 << 8) | b0;
+	}
+
+	private void readFully(byte[] buffer) throws IOException {
+		if (position + buffer.length > MAX_HEADER_SIZE) throw new HeaderTooLongException();
+		int offset = 0;
+		while (offset < buffer.length) {
+			int count = stream.read(buffer, offset, buffer.length - offset);
+			if (count < 0) throw new HeaderTooLongException();
+			offset += count;
+		}
+		position += buffer.length;
+	}
+
+	private void skip(int count) throws IOException {
+		if (position + count > MAX_HEADER_SIZE) throw new HeaderTooLongException();
+		int skipped = 0;
+		while (skipped < count) {
+			long n = stream.skip(count - skipped);
+			if (n <= 0) {
+				if (stream.read() < 0) throw new HeaderTooLongException();
+				n = 1;
+			}
+			skipped += n;
+		}
+		position += count;
+	}
+
+	private static int getUInt16(byte[] buffer, int offset, boolean bigEndian) {
+		int b0 = buffer[offset] & 0xFF;
+		int b1 = buffer[offset + 1] & 0xFF;
+		return bigEndian ? (b0 << 8) | b1 : (b1 << 8) | b0;
+	}
+
+	private static long getUInt32(byte[] buffer, int offset, boolean bigEndian) {
+		long high = getUInt16(buffer, offset, bigEndian);
+		long low = getUInt16(buffer, offset + 2, bigEndian);
+		return bigEndian ? (high << 16) | low : (low << 16) | high;
+	}
+
+	private static int getUInt24(byte[] buffer, int offset) {
+		return (buffer[offset] & 0xFF) | (buffer[offset + 1] & 0xFF) << 8 | (buffer[offset + 2] & 0xFF) << 16;
+	}
+
+	/** Thrown when the stream ends or the header limit is reached before the header was read */
+	private static class HeaderTooLongException extends IOException {
+	}
+}
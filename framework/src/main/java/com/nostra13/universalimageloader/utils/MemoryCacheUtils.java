@@ -47,6 +47,31 @@ public final class MemoryCacheUtils {
 		return new StringBuilder(imageUri).append(URI_AND_SIZE_SEPARATOR).append(targetSize.getWidth()).append(WIDTH_AND_HEIGHT_SEPARATOR).append(targetSize.getHeight()).toString();
 	}
 
+	/**
+	 * Returns image URI of key {@linkplain #generateKey(String, ImageSize) generated} for memory cache or <b>null</b> if
+	 * key doesn't match pattern <b>[imageUri]_[width]x[height]</b>
+	 */
+	public static String getImageUri(String key) {
+		return getImageSize(key) == null ? null : key.substring(0, key.lastIndexOf(URI_AND_SIZE_SEPARATOR));
+	}
+
+	/**
+	 * Returns target size of key {@linkplain #generateKey(String, ImageSize) generated} for memory cache or <b>null</b>
+	 * if key doesn't match pattern <b>[imageUri]_[width]x[height]</b>
+	 */
+	public static ImageSize getImageSize(String key) {
+		int sizeStart = key.lastIndexOf(URI_AND_SIZE_SEPARATOR) + 1;
+		int separator = key.indexOf(WIDTH_AND_HEIGHT_SEPARATOR, sizeStart);
+		if (sizeStart == 0 || separator < 0) return null;
+		try {
+			int width = Integer.parseInt(key.substring(sizeStart, separator));
+			int height = Integer.parseInt(key.substring(separator + 1));
+			return new ImageSize(width, height);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
 	public static Comparator<String> createFuzzyKeyComparator() {
 		return new Comparator<String>() {
 			@Override
@@ -18,23 +18,35 @@ package com.toaker.commons.db;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
 import android.text.TextUtils;
 
 import com.toaker.commons.db.callback.DbResponseCallBack;
+import com.toaker.commons.db.callback.RowCallBack;
 import com.toaker.commons.db.exception.DbException;
 import com.toaker.commons.db.internal.ExecutorDelivery;
 import com.toaker.commons.db.internal.Perform;
 import com.toaker.commons.db.internal.PerformQueue;
+import com.toaker.commons.db.internal.PerformTransaction;
+import com.toaker.commons.db.sqlite.CloseableIterator;
+import com.toaker.commons.db.sqlite.CursorIterator;
 import com.toaker.commons.db.sqlite.CursorUtils;
 import com.toaker.commons.db.sqlite.DbModelSelector;
+import com.toaker.commons.db.sqlite.EntityCache;
+import com.toaker.commons.db.sqlite.FindSession;
 import com.toaker.commons.db.sqlite.Selector;
 import com.toaker.commons.db.sqlite.SqlInfo;
 import com.toaker.commons.db.sqlite.SqlInfoBuilder;
+import com.toaker.commons.db.sqlite.StatementCache;
 import com.toaker.commons.db.sqlite.WhereBuilder;
+import com.toaker.commons.db.table.ColumnUtils;
 import com.toaker.commons.db.table.DbModel;
 import com.toaker.commons.db.table.Id;
+import com.toaker.commons.db.table.KeyValue;
+import com.toaker.commons.db.table.RowMapper;
 import com.toaker.commons.db.table.Table;
 import com.toaker.commons.db.table.TableUtils;
 import com.toaker.commons.db.utils.IOUtils;
@@ -43,8 +55,9 @@ import com.toaker.commons.db.utils.LogUtils;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Map;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -66,13 +79,88 @@ public class DbUtils {
 
     private PerformQueue  mPerformQueue;
 
+    private final StatementCache statementCache;
+
+    private final EntityCache entityCache = new EntityCache();
+
     private DbUtils(DaoConfig config) {
         if (config == null) {
             throw new IllegalArgumentException("daoConfig may not be null");
         }
         this.database = createDatabase(config);
         this.daoConfig = config;
-        mPerformQueue = new PerformQueue(new ExecutorDelivery(new Handler(Looper.getMainLooper())));
+        this.statementCache = new StatementCache(database);
+        mPerformQueue = new PerformQueue(new ExecutorDelivery(new Handler(Looper.getMainLooper())), new PerformTransaction() {
+            @Override
+            public boolean beginTransaction() {
+                if (!allowTransaction) {
+                    return false;
+                }
+                // same lock order as the synchronous writes: the write lock, then the database
+                writeLock.lock();
+                try {
+                    database.beginTransaction();
+                } catch (RuntimeException e) {
+                    writeLock.unlock();
+                    throw e;
+                }
+                batchThread = Thread.currentThread();
+                batchSuccessful = false;
+                return true;
+            }
+
+            @Override
+            public void beginPerform() {
+                database.execSQL(SAVEPOINT_BEGIN);
+            }
+
+            @Override
+            public void endPerform(boolean successful) {
+                try {
+                    if (!successful) {
+                        database.execSQL(SAVEPOINT_ROLLBACK);
+                        // the rows of the perform and the tables it created are gone again
+                        restoreAutoIncrementIds(performIdValues);
+                        Table.resetCheckedDatabase(DbUtils.this);
+                    }
+                    database.execSQL(SAVEPOINT_RELEASE);
+                } finally {
+                    for (Map.Entry<Object, Object> entry : performIdValues.entrySet()) {
+                        if (!batchIdValues.containsKey(entry.getKey())) {
+                            batchIdValues.put(entry.getKey(), entry.getValue());
+                        }
+                    }
+                    performIdValues.clear();
+                }
+            }
+
+            @Override
+            public void setTransactionSuccessful() {
+                database.setTransactionSuccessful();
+                batchSuccessful = true;
+            }
+
+            @Override
+            public void endTransaction() {
+                batchThread = null;
+                try {
+                    database.endTransaction();
+                    flushEntityCache();
+                    if (batchSuccessful) {
+                        batchIdValues.clear();
+                    }
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+
+            @Override
+            public void onRollback() {
+                restoreAutoIncrementIds(batchIdValues);
+                // tables created inside the rolled back transaction are gone again
+                Table.resetCheckedDatabase(DbUtils.this);
+            }
+        });
         mPerformQueue.start();
     }
 
@@ -165,6 +253,28 @@ public class DbUtils {
         return this;
     }
 
+    /**
+     * Keep up to maxSize entities of the type by id, findById returns the cached instance
+     * without querying. Cached entities are shared by all callers and must not be modified.
+     *
+     * @param maxSize 0 to disable the entity cache of the type.
+     */
+    public DbUtils configEntityCache(Class<?> entityType, int maxSize) {
+        entityCache.setEntityCacheSize(Table.get(this, entityType).tableName, maxSize);
+        return this;
+    }
+
+    /**
+     * Keep up to maxSize results of findFirst and findAll by sql. Any write to the table
+     * of a result drops it; writes to the tables of its foreign entities do not.
+     *
+     * @param maxSize 0 to disable the query cache.
+     */
+    public DbUtils configQueryCache(int maxSize) {
+        entityCache.setQueryCacheSize(maxSize);
+        return this;
+    }
+
     public SQLiteDatabase getDatabase() {
         return database;
     }
@@ -215,10 +325,7 @@ public class DbUtils {
         try {
             beginTransaction();
 
-            createTableIfNotExist(entities.get(0).getClass());
-            for (Object entity : entities) {
-                saveOrUpdateWithoutTransaction(entity);
-            }
+            saveOrUpdateAllWithoutTransaction(entities);
 
             setTransactionSuccessful();
         } finally {
@@ -242,7 +349,7 @@ public class DbUtils {
             beginTransaction();
 
             createTableIfNotExist(entity.getClass());
-            execNonQuery(SqlInfoBuilder.buildReplaceSqlInfo(this, entity));
+            execReplace(entity);
 
             setTransactionSuccessful();
         } finally {
@@ -266,10 +373,7 @@ public class DbUtils {
         try {
             beginTransaction();
 
-            createTableIfNotExist(entities.get(0).getClass());
-            for (Object entity : entities) {
-                execNonQuery(SqlInfoBuilder.buildReplaceSqlInfo(this, entity));
-            }
+            saveAllWithoutTransaction(entities, true);
 
             setTransactionSuccessful();
         } finally {
@@ -293,7 +397,7 @@ public class DbUtils {
             beginTransaction();
 
             createTableIfNotExist(entity.getClass());
-            execNonQuery(SqlInfoBuilder.buildInsertSqlInfo(this, entity));
+            execInsert(entity);
 
             setTransactionSuccessful();
         } finally {
@@ -317,10 +421,7 @@ public class DbUtils {
         try {
             beginTransaction();
 
-            createTableIfNotExist(entities.get(0).getClass());
-            for (Object entity : entities) {
-                execNonQuery(SqlInfoBuilder.buildInsertSqlInfo(this, entity));
-            }
+            saveAllWithoutTransaction(entities, false);
 
             setTransactionSuccessful();
         } finally {
@@ -344,7 +445,7 @@ public class DbUtils {
             beginTransaction();
 
             createTableIfNotExist(entity.getClass());
-            result = saveBindingIdWithoutTransaction(entity);
+            result = saveBindingIdWithoutTransaction(entity) != -1;
 
             setTransactionSuccessful();
         } finally {
@@ -365,21 +466,44 @@ public class DbUtils {
     }
 
     public void saveBindingIdAll(List<?> entities) throws DbException {
-        if (entities == null || entities.size() == 0) return;
+        saveBindingIdAllForRowIds(entities);
+    }
+
+    public Perform<List<Long>> saveBindingIdAllForRowIds(final List<?> entities,DbResponseCallBack<List<Long>> callBack){
+        Perform<List<Long>> perform = new Perform<List<Long>>(new Perform.PerformDelivery<List<Long>>() {
+            @Override
+            public List<Long> execute() throws DbException {
+                return saveBindingIdAllForRowIds(entities);
+            }
+        },callBack);
+        return mPerformQueue.add(perform);
+    }
+
+    /**
+     * Same as {@link #saveBindingIdAll(List)}, the entities are still inserted one row at a time.
+     *
+     * @return the row ids assigned to the entities, in the order of the entities.
+     */
+    public List<Long> saveBindingIdAllForRowIds(List<?> entities) throws DbException {
+        if (entities == null || entities.size() == 0) return new ArrayList<Long>(0);
+        List<Long> rowIds = new ArrayList<Long>(entities.size());
         try {
             beginTransaction();
 
             createTableIfNotExist(entities.get(0).getClass());
             for (Object entity : entities) {
-                if (!saveBindingIdWithoutTransaction(entity)) {
+                long rowId = saveBindingIdWithoutTransaction(entity);
+                if (rowId == -1) {
                     throw new DbException("saveBindingId error, transaction will not commit!");
                 }
+                rowIds.add(rowId);
             }
 
             setTransactionSuccessful();
         } finally {
             endTransaction();
         }
+        return rowIds;
     }
 
     public Perform<Void> deleteById(final Class<?> entityType, final Object idValue,DbResponseCallBack<Void> callBack){
@@ -398,7 +522,7 @@ public class DbUtils {
         try {
             beginTransaction();
 
-            execNonQuery(SqlInfoBuilder.buildDeleteSqlInfo(this, entityType, idValue));
+            execDeleteById(entityType, idValue);
 
             setTransactionSuccessful();
         } finally {
@@ -422,7 +546,7 @@ public class DbUtils {
         try {
             beginTransaction();
 
-            execNonQuery(SqlInfoBuilder.buildDeleteSqlInfo(this, entity));
+            execDelete(entity);
 
             setTransactionSuccessful();
         } finally {
@@ -471,7 +595,7 @@ public class DbUtils {
             beginTransaction();
 
             for (Object entity : entities) {
-                execNonQuery(SqlInfoBuilder.buildDeleteSqlInfo(this, entity));
+                execDelete(entity);
             }
 
             setTransactionSuccessful();
@@ -511,7 +635,7 @@ public class DbUtils {
         try {
             beginTransaction();
 
-            execNonQuery(SqlInfoBuilder.buildUpdateSqlInfo(this, entity, updateColumnNames));
+            execUpdate(entity, updateColumnNames);
 
             setTransactionSuccessful();
         } finally {
@@ -560,7 +684,7 @@ public class DbUtils {
             beginTransaction();
 
             for (Object entity : entities) {
-                execNonQuery(SqlInfoBuilder.buildUpdateSqlInfo(this, entity, updateColumnNames));
+                execUpdate(entity, updateColumnNames);
             }
 
             setTransactionSuccessful();
@@ -601,40 +725,56 @@ public class DbUtils {
             public T execute() throws DbException {
                 return findById(entityType,idValue);
             }
-        },callBack);
+        },callBack,false);
         return mPerformQueue.add(perform);
     }
 
     @SuppressWarnings("unchecked")
     public <T> T findById(Class<T> entityType, Object idValue) throws DbException {
-        if (!tableIsExist(entityType)) return null;
+        if (idValue == null || !tableIsExist(entityType)) return null;
 
         Table table = Table.get(this, entityType);
-        Selector selector = Selector.from(entityType).where(table.id.getColumnName(), "=", idValue);
-
-        String sql = selector.limit(1).toString();
-        long seq = CursorUtils.FindCacheSequence.getSeq();
-        findTempCache.setSeq(seq);
-        Object obj = findTempCache.get(sql);
-        if (obj != null) {
-            return (T) obj;
+        boolean entityCacheEnabled = entityCache.isEnabled() && entityCache.isEntityCacheEnabled(table.tableName);
+        long cacheVersion = 0;
+        if (entityCacheEnabled) {
+            Object obj = entityCache.getEntity(table.tableName, idValue);
+            if (obj != null) {
+                return (T) obj;
+            }
+            cacheVersion = entityCache.getVersion(table.tableName);
         }
 
-        Cursor cursor = execQuery(sql);
-        if (cursor != null) {
-            try {
-                if (cursor.moveToNext()) {
-                    T entity = (T) CursorUtils.getEntity(this, cursor, entityType, seq);
-                    findTempCache.put(sql, entity);
-                    return entity;
+        SqlInfo sqlInfo = new SqlInfo(statementCache.getFindByIdSql(table), idValue);
+
+        String cacheKey = sqlInfo.getSql() + "#" + idValue;
+        FindSession session = beginFindSession();
+        try {
+            Object obj = session.getResult(cacheKey);
+            if (obj != null) {
+                return (T) obj;
+            }
+
+            Cursor cursor = execQuery(sqlInfo);
+            if (cursor != null) {
+                try {
+                    if (cursor.moveToNext()) {
+                        T entity = CursorUtils.getEntity(this, cursor, entityType, session);
+                        session.putResult(cacheKey, entity);
+                        if (entityCacheEnabled) {
+                            entityCache.putEntity(table.tableName, idValue, entity, cacheVersion);
+                        }
+                        return entity;
+                    }
+                } catch (Throwable e) {
+                    throw new DbException(e);
+                } finally {
+                    IOUtils.closeQuietly(cursor);
                 }
-            } catch (Throwable e) {
-                throw new DbException(e);
-            } finally {
-                IOUtils.closeQuietly(cursor);
             }
+            return null;
+        } finally {
+            endFindSession(session);
         }
-        return null;
     }
 
     @SuppressWarnings("unchecked")
@@ -644,7 +784,7 @@ public class DbUtils {
             public T execute() throws DbException {
                 return findFirst(selector);
             }
-        },callBack);
+        },callBack,false);
         return mPerformQueue.add(perform);
     }
 
@@ -653,28 +793,45 @@ public class DbUtils {
         if (!tableIsExist(selector.getEntityType())) return null;
 
         String sql = selector.limit(1).toString();
-        long seq = CursorUtils.FindCacheSequence.getSeq();
-        findTempCache.setSeq(seq);
-        Object obj = findTempCache.get(sql);
-        if (obj != null) {
-            return (T) obj;
+        String tableName = null;
+        long cacheVersion = 0;
+        if (entityCache.isEnabled() && entityCache.isQueryCacheEnabled()) {
+            Object obj = entityCache.getQueryResult(sql);
+            if (obj != null) {
+                return (T) obj;
+            }
+            tableName = Table.get(this, selector.getEntityType()).tableName;
+            cacheVersion = entityCache.getVersion(tableName);
         }
 
-        Cursor cursor = execQuery(sql);
-        if (cursor != null) {
-            try {
-                if (cursor.moveToNext()) {
-                    T entity = (T) CursorUtils.getEntity(this, cursor, selector.getEntityType(), seq);
-                    findTempCache.put(sql, entity);
-                    return entity;
+        FindSession session = beginFindSession();
+        try {
+            Object obj = session.getResult(sql);
+            if (obj != null) {
+                return (T) obj;
+            }
+
+            Cursor cursor = execQuery(sql);
+            if (cursor != null) {
+                try {
+                    if (cursor.moveToNext()) {
+                        T entity = (T) CursorUtils.getEntity(this, cursor, selector.getEntityType(), session);
+                        session.putResult(sql, entity);
+                        if (tableName != null) {
+                            entityCache.putQueryResult(tableName, sql, entity, cacheVersion);
+                        }
+                        return entity;
+                    }
+                } catch (Throwable e) {
+                    throw new DbException(e);
+                } finally {
+                    IOUtils.closeQuietly(cursor);
                 }
-            } catch (Throwable e) {
-                throw new DbException(e);
-            } finally {
-                IOUtils.closeQuietly(cursor);
             }
+            return null;
+        } finally {
+            endFindSession(session);
         }
-        return null;
     }
 
     public <T> T findFirst(Class<T> entityType) throws DbException {
@@ -691,7 +848,7 @@ public class DbUtils {
             public List<T> execute() throws DbException {
                 return findAll(selector);
             }
-        },callBack);
+        },callBack,false);
         return mPerformQueue.add(perform);
     }
 
@@ -700,30 +857,50 @@ public class DbUtils {
         if (!tableIsExist(selector.getEntityType())) return null;
 
         String sql = selector.toString();
-        long seq = CursorUtils.FindCacheSequence.getSeq();
-        findTempCache.setSeq(seq);
-        Object obj = findTempCache.get(sql);
-        if (obj != null) {
-            return (List<T>) obj;
+        String tableName = null;
+        long cacheVersion = 0;
+        if (entityCache.isEnabled() && entityCache.isQueryCacheEnabled()) {
+            Object obj = entityCache.getQueryResult(sql);
+            if (obj != null) {
+                // the callers may modify the list, but not the cached one
+                return new ArrayList<T>((List<T>) obj);
+            }
+            tableName = Table.get(this, selector.getEntityType()).tableName;
+            cacheVersion = entityCache.getVersion(tableName);
         }
 
-        List<T> result = new ArrayList<T>();
+        FindSession session = beginFindSession();
+        try {
+            Object obj = session.getResult(sql);
+            if (obj != null) {
+                return (List<T>) obj;
+            }
 
-        Cursor cursor = execQuery(sql);
-        if (cursor != null) {
-            try {
-                while (cursor.moveToNext()) {
-                    T entity = (T) CursorUtils.getEntity(this, cursor, selector.getEntityType(), seq);
-                    result.add(entity);
+            List<T> result = new ArrayList<T>();
+
+            Cursor cursor = execQuery(sql);
+            if (cursor != null) {
+                try {
+                    Class<T> entityType = (Class<T>) selector.getEntityType();
+                    RowMapper<T> rowMapper = RowMapper.get(Table.get(this, entityType), entityType, cursor);
+                    while (cursor.moveToNext()) {
+                        T entity = CursorUtils.getEntity(cursor, rowMapper, entityType, session);
+                        result.add(entity);
+                    }
+                    session.putResult(sql, result);
+                    if (tableName != null) {
+                        entityCache.putQueryResult(tableName, sql, new ArrayList<T>(result), cacheVersion);
+                    }
+                } catch (Throwable e) {
+                    throw new DbException(e);
+                } finally {
+                    IOUtils.closeQuietly(cursor);
                 }
-                findTempCache.put(sql, result);
-            } catch (Throwable e) {
-                throw new DbException(e);
-            } finally {
-                IOUtils.closeQuietly(cursor);
             }
+            return result;
+        } finally {
+            endFindSession(session);
         }
-        return result;
     }
 
     public <T> List<T> findAll(Class<T> entityType) throws DbException {
@@ -740,7 +917,7 @@ public class DbUtils {
             public DbModel execute() throws DbException {
                 return findDbModelFirst(sqlInfo);
             }
-        },callBack);
+        },callBack,false);
         return mPerformQueue.add(perform);
     }
 
@@ -766,7 +943,7 @@ public class DbUtils {
             public DbModel execute() throws DbException {
                 return findDbModelFirst(selector);
             }
-        },callBack);
+        },callBack,false);
         return mPerformQueue.add(perform);
     }
 
@@ -794,7 +971,7 @@ public class DbUtils {
             public List<DbModel> execute() throws DbException {
                 return findDbModelAll(sqlInfo);
             }
-        },callBack);
+        },callBack,false);
         return mPerformQueue.add(perform);
     }
 
@@ -822,7 +999,7 @@ public class DbUtils {
             public List<DbModel> execute() throws DbException {
                 return findDbModelAll(selector);
             }
-        },callBack);
+        },callBack,false);
         return mPerformQueue.add(perform);
     }
 
@@ -852,7 +1029,7 @@ public class DbUtils {
             public Long execute() throws DbException {
                 return count(selector);
             }
-        },callBack);
+        },callBack,false);
         return mPerformQueue.add(perform);
     }
 
@@ -872,6 +1049,121 @@ public class DbUtils {
         return count(Selector.from(entityType));
     }
 
+    //*********************************************** streaming ********************************************************
+
+    /**
+     * Iterate the entities of the selector, the rows are mapped one by one from the cursor.
+     * The iterator holds an open cursor, close it if the iteration stops before the last row.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CloseableIterator<T> iterate(Selector selector) throws DbException {
+        final Class<T> entityType = (Class<T>) selector.getEntityType();
+        if (!tableIsExist(entityType)) return emptyIterator();
+
+        Cursor cursor = execQuery(selector.toString());
+        if (cursor == null) return emptyIterator();
+        try {
+            final RowMapper<T> rowMapper = RowMapper.get(Table.get(this, entityType), entityType, cursor);
+            return new CursorIterator<T>(cursor) {
+                @Override
+                protected T mapRow(Cursor cursor) throws Exception {
+                    T entity = rowMapper.newEntity(cursor);
+                    rowMapper.fillEntity(entity, cursor);
+                    return entity;
+                }
+            };
+        } catch (Throwable e) {
+            IOUtils.closeQuietly(cursor);
+            throw new DbException(e);
+        }
+    }
+
+    public <T> CloseableIterator<T> iterate(Class<T> entityType) throws DbException {
+        return iterate(Selector.from(entityType));
+    }
+
+    public CloseableIterator<DbModel> iterateDbModel(DbModelSelector selector) throws DbException {
+        if (!tableIsExist(selector.getEntityType())) return emptyIterator();
+        return newDbModelIterator(execQuery(selector.toString()));
+    }
+
+    public CloseableIterator<DbModel> iterateDbModel(SqlInfo sqlInfo) throws DbException {
+        return newDbModelIterator(execQuery(sqlInfo));
+    }
+
+    public <T> void forEach(Selector selector, RowCallBack<T> callBack) throws DbException {
+        CloseableIterator<T> iterator = iterate(selector);
+        visit(iterator, callBack);
+    }
+
+    public void forEachDbModel(DbModelSelector selector, RowCallBack<DbModel> callBack) throws DbException {
+        visit(iterateDbModel(selector), callBack);
+    }
+
+    /**
+     * Walk the entities of the selector in id order, pageSize rows per query. Every page is a new
+     * "WHERE id > lastId ORDER BY id LIMIT pageSize" query, so no cursor stays open across the
+     * whole table and no OFFSET skips the rows already visited. The order and limit of the
+     * selector are ignored.
+     */
+    public <T> void forEachByKeyset(Selector selector, int pageSize, RowCallBack<T> callBack) throws DbException {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be greater than 0");
+        }
+        Class<?> entityType = selector.getEntityType();
+        if (!tableIsExist(entityType)) return;
+
+        Id id = Table.get(this, entityType).id;
+        Object lastId = null;
+        while (true) {
+            CloseableIterator<T> iterator = iterate(selector.after(id.getColumnName(), lastId, pageSize));
+            int count = 0;
+            try {
+                while (iterator.hasNext()) {
+                    T entity = iterator.next();
+                    count++;
+                    lastId = id.getColumnValue(entity);
+                    if (!callBack.onRow(entity)) return;
+                }
+            } catch (RuntimeException e) {
+                throw new DbException(e);
+            } finally {
+                iterator.close();
+            }
+            if (count < pageSize || lastId == null) return;
+        }
+    }
+
+    private <T> void visit(CloseableIterator<T> iterator, RowCallBack<T> callBack) throws DbException {
+        try {
+            while (iterator.hasNext()) {
+                if (!callBack.onRow(iterator.next())) break;
+            }
+        } catch (RuntimeException e) {
+            throw new DbException(e);
+        } finally {
+            iterator.close();
+        }
+    }
+
+    private static CloseableIterator<DbModel> newDbModelIterator(Cursor cursor) {
+        return new CursorIterator<DbModel>(cursor) {
+            @Override
+            protected DbModel mapRow(Cursor cursor) {
+                return CursorUtils.getDbModel(cursor);
+            }
+        };
+    }
+
+    private static <T> CloseableIterator<T> emptyIterator() {
+        return new CursorIterator<T>(null) {
+            @Override
+            protected T mapRow(Cursor cursor) {
+                return null;
+            }
+        };
+    }
+
     //******************************************** config ******************************************************
 
     public static class DaoConfig {
@@ -881,6 +1173,7 @@ public class DbUtils {
         private DbUpgradeListener dbUpgradeListener;
 
         private String dbDir;
+        private boolean writeAheadLoggingEnabled = true;
 
         public DaoConfig(Context context) {
             this.context = context.getApplicationContext();
@@ -928,6 +1221,19 @@ public class DbUtils {
         public void setDbDir(String dbDir) {
             this.dbDir = dbDir;
         }
+
+        public boolean isWriteAheadLoggingEnabled() {
+            return writeAheadLoggingEnabled;
+        }
+
+        /**
+         * set write-ahead logging, on by default
+         *
+         * @param writeAheadLoggingEnabled If true, reads run on their own connections in parallel with the writes.
+         */
+        public void setWriteAheadLoggingEnabled(boolean writeAheadLoggingEnabled) {
+            this.writeAheadLoggingEnabled = writeAheadLoggingEnabled;
+        }
     }
 
     public interface DbUpgradeListener {
@@ -947,6 +1253,10 @@ public class DbUtils {
         } else {
             result = config.getContext().openOrCreateDatabase(config.getDbName(), 0, null);
         }
+        if (result != null && config.isWriteAheadLoggingEnabled()
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            result.enableWriteAheadLogging();
+        }
         return result;
     }
 
@@ -956,52 +1266,268 @@ public class DbUtils {
         Id id = table.id;
         if (id.isAutoIncrement()) {
             if (id.getColumnValue(entity) != null) {
-                execNonQuery(SqlInfoBuilder.buildUpdateSqlInfo(this, entity));
+                execUpdate(entity);
             } else {
                 saveBindingIdWithoutTransaction(entity);
             }
         } else {
-            execNonQuery(SqlInfoBuilder.buildReplaceSqlInfo(this, entity));
+            execReplace(entity);
         }
     }
 
-    private boolean saveBindingIdWithoutTransaction(Object entity) throws DbException {
+    /**
+     * @return the row id of the new row, or -1 if an error occurred.
+     */
+    private long saveBindingIdWithoutTransaction(Object entity) throws DbException {
         Class<?> entityType = entity.getClass();
         Table table = Table.get(this, entityType);
         Id idColumn = table.id;
-        if (idColumn.isAutoIncrement()) {
-            execNonQuery(SqlInfoBuilder.buildInsertSqlInfo(this, entity));
-            long id = getLastAutoIncrementId(table.tableName);
-            if (id == -1) {
-                return false;
+        long rowId = execInsert(entity);
+        if (idColumn.isAutoIncrement() && rowId != -1) {
+            if (isInBatch() && !performIdValues.containsKey(entity)) {
+                performIdValues.put(entity, idColumn.getFieldValue(entity));
             }
-            idColumn.setAutoIncrementId(entity, id);
-            return true;
-        } else {
-            execNonQuery(SqlInfoBuilder.buildInsertSqlInfo(this, entity));
-            return true;
+            // the row id of an "INTEGER PRIMARY KEY AUTOINCREMENT" table is the id
+            idColumn.setAutoIncrementId(entity, rowId);
         }
+        return rowId;
     }
 
-    //************************************************ tools ***********************************
+    //***************************** batch operations *****************************
 
-    private long getLastAutoIncrementId(String tableName) throws DbException {
-        long id = -1;
-        Cursor cursor = execQuery("SELECT seq FROM sqlite_sequence WHERE name='" + tableName + "'");
-        if (cursor != null) {
-            try {
-                if (cursor.moveToNext()) {
-                    id = cursor.getLong(0);
+    /**
+     * @return the index after the last entity of the same type as entities[start].
+     */
+    private static int nextGroupEnd(List<?> entities, int start) {
+        Class<?> entityType = entities.get(start).getClass();
+        int end = start + 1;
+        while (end < entities.size() && entities.get(end).getClass() == entityType) {
+            end++;
+        }
+        return end;
+    }
+
+    private void saveAllWithoutTransaction(List<?> entities, boolean replace) throws DbException {
+        int start = 0;
+        while (start < entities.size()) {
+            int end = nextGroupEnd(entities, start);
+            Class<?> entityType = entities.get(start).getClass();
+            createTableIfNotExist(entityType);
+            execBatchInsert(Table.get(this, entityType), entities.subList(start, end), replace);
+            start = end;
+        }
+    }
+
+    private void saveOrUpdateAllWithoutTransaction(List<?> entities) throws DbException {
+        int start = 0;
+        while (start < entities.size()) {
+            int end = nextGroupEnd(entities, start);
+            Class<?> entityType = entities.get(start).getClass();
+            createTableIfNotExist(entityType);
+            Table table = Table.get(this, entityType);
+            if (table.id.isAutoIncrement()) {
+                for (Object entity : entities.subList(start, end)) {
+                    saveOrUpdateWithoutTransaction(entity);
                 }
-            } catch (Throwable e) {
-                throw new DbException(e);
-            } finally {
-                IOUtils.closeQuietly(cursor);
+            } else {
+                // the id is always part of the row, "replace" is an insert or an update
+                execBatchInsert(table, entities.subList(start, end), true);
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * Write entities of the same type with multi-row statements sized under the bind args limit,
+     * the rows which do not fill a whole statement use the single row statement.
+     */
+    private void execBatchInsert(Table table, List<?> entities, boolean replace) throws DbException {
+        int rowCount = 0;
+        List<List<KeyValue>> rows = null;
+        for (Object entity : entities) {
+            List<KeyValue> keyValueList = SqlInfoBuilder.entity2KeyValueList(this, entity);
+            if (keyValueList.size() == 0) continue;
+
+            if (rows == null) {
+                rowCount = StatementCache.getBatchRowCount(keyValueList.size());
+                rows = new ArrayList<List<KeyValue>>(Math.min(rowCount, entities.size()));
+            }
+            rows.add(keyValueList);
+            if (rowCount > 1 && rows.size() == rowCount) {
+                SQLiteStatement statement = statementCache.getBatchInsertStatement(table, keyValueList, rowCount, replace);
+                debugSql(statement.toString());
+                try {
+                    synchronized (statement) {
+                        StatementCache.bindBatchKeyValues(statement, rows);
+                        statement.execute();
+                    }
+                } catch (Throwable e) {
+                    throw new DbException(e);
+                }
+                if (replace) {
+                    invalidateEntityCache(table.tableName);
+                } else {
+                    invalidateQueryCache(table.tableName);
+                }
+                rows.clear();
+            }
+        }
+
+        if (rows != null) {
+            for (List<KeyValue> keyValueList : rows) {
+                execInsert(table, keyValueList, replace);
+            }
+        }
+    }
+
+    //***************************** compiled statements *****************************
+
+    /**
+     * @return the row id of the new row, or -1 if an error occurred.
+     */
+    private long execInsert(Object entity) throws DbException {
+        List<KeyValue> keyValueList = SqlInfoBuilder.entity2KeyValueList(this, entity);
+        if (keyValueList.size() == 0) return -1;
+        return execInsert(Table.get(this, entity.getClass()), keyValueList, false);
+    }
+
+    private void execReplace(Object entity) throws DbException {
+        List<KeyValue> keyValueList = SqlInfoBuilder.entity2KeyValueList(this, entity);
+        if (keyValueList.size() == 0) return;
+        execInsert(Table.get(this, entity.getClass()), keyValueList, true);
+    }
+
+    /**
+     * @return the row id of the new row, or -1 if an error occurred.
+     */
+    private long execInsert(Table table, List<KeyValue> keyValueList, boolean replace) throws DbException {
+        SQLiteStatement statement = replace ?
+                statementCache.getReplaceStatement(table, keyValueList) :
+                statementCache.getInsertStatement(table, keyValueList);
+        debugSql(statement.toString());
+        long rowId;
+        try {
+            synchronized (statement) {
+                StatementCache.bindKeyValues(statement, keyValueList);
+                rowId = statement.executeInsert();
+            }
+        } catch (Throwable e) {
+            throw new DbException(e);
+        }
+        if (replace) {
+            Object idValue = null;
+            String idColumnName = table.id.getColumnName();
+            for (KeyValue kv : keyValueList) {
+                if (kv.key.equals(idColumnName)) {
+                    idValue = kv.value;
+                    break;
+                }
+            }
+            if (idValue != null) {
+                invalidateEntityCache(table.tableName, idValue);
+            } else {
+                invalidateEntityCache(table.tableName);
             }
+        } else {
+            invalidateQueryCache(table.tableName);
+        }
+        return rowId;
+    }
+
+    private void execUpdate(Object entity, String... updateColumnNames) throws DbException {
+        List<KeyValue> keyValueList = SqlInfoBuilder.entity2KeyValueList(this, entity);
+        if (keyValueList.size() == 0) return;
+
+        Table table = Table.get(this, entity.getClass());
+        Object idValue = table.id.getColumnValue(entity);
+        if (idValue == null) {
+            throw new DbException("this entity[" + entity.getClass() + "]'s id value is null");
+        }
+
+        List<KeyValue> updateList = StatementCache.filterUpdateKeyValues(keyValueList, updateColumnNames);
+        SQLiteStatement statement = statementCache.getUpdateStatement(table, keyValueList, updateColumnNames);
+        debugSql(statement.toString());
+        try {
+            synchronized (statement) {
+                StatementCache.bindKeyValues(statement, updateList);
+                StatementCache.bindArg(statement, updateList.size() + 1, idValue);
+                statement.execute();
+            }
+        } catch (Throwable e) {
+            throw new DbException(e);
+        }
+        invalidateEntityCache(table.tableName, idValue);
+    }
+
+    private void execDelete(Object entity) throws DbException {
+        Object idValue = Table.get(this, entity.getClass()).id.getColumnValue(entity);
+        if (idValue == null) {
+            throw new DbException("this entity[" + entity.getClass() + "]'s id value is null");
         }
-        return id;
+        execDeleteById(entity.getClass(), idValue);
     }
 
+    private void execDeleteById(Class<?> entityType, Object idValue) throws DbException {
+        if (idValue == null) {
+            throw new DbException("this entity[" + entityType + "]'s id value is null");
+        }
+
+        Table table = Table.get(this, entityType);
+        SQLiteStatement statement = statementCache.getDeleteByIdStatement(table);
+        debugSql(statement.toString());
+        try {
+            synchronized (statement) {
+                statement.clearBindings();
+                StatementCache.bindArg(statement, 1, ColumnUtils.convert2DbColumnValueIfNeeded(idValue));
+                statement.execute();
+            }
+        } catch (Throwable e) {
+            throw new DbException(e);
+        }
+        invalidateEntityCache(table.tableName, idValue);
+    }
+
+    //***************************** entity cache *****************************
+
+    private void invalidateEntityCache(String tableName, Object idValue) {
+        if (entityCache.isEnabled()) {
+            entityCache.invalidate(tableName, idValue);
+            markEntityCacheDirty(tableName);
+        }
+    }
+
+    private void invalidateEntityCache(String tableName) {
+        if (entityCache.isEnabled()) {
+            entityCache.invalidate(tableName);
+            markEntityCacheDirty(tableName);
+        }
+    }
+
+    private void invalidateQueryCache(String tableName) {
+        if (entityCache.isEnabled()) {
+            entityCache.invalidateQueries(tableName);
+            markEntityCacheDirty(tableName);
+        }
+    }
+
+    /**
+     * Until the transaction commits other threads still read the old rows, so the table is
+     * invalidated once more after it ends.
+     */
+    private void markEntityCacheDirty(String tableName) {
+        if (database.inTransaction()) {
+            entityCache.markDirty(tableName);
+        }
+    }
+
+    private void flushEntityCache() {
+        if (entityCache.isEnabled() && !database.inTransaction()) {
+            entityCache.flushDirty();
+        }
+    }
+
+    //************************************************ tools ***********************************
+
     public void createTableIfNotExist(Class<?> entityType) throws DbException {
         if (!tableIsExist(entityType)) {
             SqlInfo sqlInfo = SqlInfoBuilder.buildCreateTableSqlInfo(this, entityType);
@@ -1047,6 +1573,7 @@ public class DbUtils {
                     try {
                         String tableName = cursor.getString(0);
                         execNonQuery("DROP TABLE " + tableName);
+                        statementCache.remove(tableName);
                         Table.remove(this, tableName);
                     } catch (Throwable e) {
                         LogUtils.e(e.getMessage(), e);
@@ -1065,6 +1592,7 @@ public class DbUtils {
         if (!tableIsExist(entityType)) return;
         String tableName = TableUtils.getTableName(entityType);
         execNonQuery("DROP TABLE " + tableName);
+        statementCache.remove(tableName);
         Table.remove(this, entityType);
     }
 
@@ -1072,6 +1600,8 @@ public class DbUtils {
         String dbName = this.daoConfig.getDbName();
         if (daoMap.containsKey(dbName)) {
             daoMap.remove(dbName);
+            statementCache.clear();
+            entityCache.clear();
             this.database.close();
         }
     }
@@ -1083,31 +1613,65 @@ public class DbUtils {
         }
     }
 
-    private Lock writeLock = new ReentrantLock();
-    private volatile boolean writeLocked = false;
+    private final Lock writeLock = new ReentrantLock();
+
+    private static final String SAVEPOINT_BEGIN = "SAVEPOINT perform";
+    /**
+     * SQLiteDatabase takes any statement starting with "ROL" for a ROLLBACK and ends the whole
+     * transaction with it (API 16+), the comment keeps the savepoint rollback a plain statement.
+     */
+    private static final String SAVEPOINT_ROLLBACK = "/* savepoint */ ROLLBACK TO perform";
+    private static final String SAVEPOINT_RELEASE = "RELEASE perform";
+
+    /** The write thread while it holds a batch transaction, its performs run in savepoints. */
+    private volatile Thread batchThread;
+    private boolean batchSuccessful;
+
+    /** The ids the running perform and the whole batch assigned, by entity, with the values they replaced. */
+    private final Map<Object, Object> performIdValues = new IdentityHashMap<Object, Object>();
+    private final Map<Object, Object> batchIdValues = new IdentityHashMap<Object, Object>();
+
+    private boolean isInBatch() {
+        return batchThread == Thread.currentThread();
+    }
+
+    private void restoreAutoIncrementIds(Map<Object, Object> idValues) {
+        for (Map.Entry<Object, Object> entry : idValues.entrySet()) {
+            Object entity = entry.getKey();
+            Table.get(this, entity.getClass()).id.restoreFieldValue(entity, entry.getValue());
+        }
+        idValues.clear();
+    }
 
     private void beginTransaction() {
+        if (isInBatch()) {
+            return;
+        }
         if (allowTransaction) {
             database.beginTransaction();
         } else {
             writeLock.lock();
-            writeLocked = true;
         }
     }
 
     private void setTransactionSuccessful() {
+        if (isInBatch()) {
+            return;
+        }
         if (allowTransaction) {
             database.setTransactionSuccessful();
         }
     }
 
     private void endTransaction() {
+        if (isInBatch()) {
+            return;
+        }
         if (allowTransaction) {
             database.endTransaction();
-        }
-        if (writeLocked) {
+            flushEntityCache();
+        } else {
             writeLock.unlock();
-            writeLocked = false;
         }
     }
 
@@ -1123,6 +1687,7 @@ public class DbUtils {
         } catch (Throwable e) {
             throw new DbException(e);
         }
+        invalidateEntityCacheBySql(sqlInfo.getSql());
     }
 
     public void execNonQuery(String sql) throws DbException {
@@ -1132,6 +1697,16 @@ public class DbUtils {
         } catch (Throwable e) {
             throw new DbException(e);
         }
+        invalidateEntityCacheBySql(sql);
+    }
+
+    /**
+     * The sql of execNonQuery may touch any cached table, drop those whose name it mentions.
+     */
+    private void invalidateEntityCacheBySql(String sql) {
+        if (entityCache.isEnabled()) {
+            entityCache.invalidateSql(sql, database.inTransaction());
+        }
     }
 
     public Cursor execQuery(SqlInfo sqlInfo) throws DbException {
@@ -1152,36 +1727,27 @@ public class DbUtils {
         }
     }
 
-    /////////////////////// temp cache ////////////////////////////////////////////////////////////////
-    private final FindTempCache findTempCache = new FindTempCache();
+    /////////////////////// find session ////////////////////////////////////////////////////////////////
 
-    private class FindTempCache {
-        private FindTempCache() {
-        }
-
-        /**
-         * key: sql;
-         * value: find result
-         */
-        private final ConcurrentHashMap<String, Object> cache = new ConcurrentHashMap<String, Object>();
-
-        private long seq = 0;
-
-        public void put(String sql, Object result) {
-            if (sql != null && result != null) {
-                cache.put(sql, result);
-            }
-        }
+    /**
+     * The session of the find running on each thread, the finds of foreign and finder
+     * columns called while it maps rows join it.
+     */
+    private final ThreadLocal<FindSession> findSessionLocal = new ThreadLocal<FindSession>();
 
-        public Object get(String sql) {
-            return cache.get(sql);
+    private FindSession beginFindSession() {
+        FindSession session = findSessionLocal.get();
+        if (session == null) {
+            session = new FindSession();
+            findSessionLocal.set(session);
         }
+        session.enter();
+        return session;
+    }
 
-        public void setSeq(long seq) {
-            if (this.seq != seq) {
-                cache.clear();
-                this.seq = seq;
-            }
+    private void endFindSession(FindSession session) {
+        if (session.exit()) {
+            findSessionLocal.remove();
         }
     }
 
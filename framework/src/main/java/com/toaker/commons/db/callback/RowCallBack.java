@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright 2013-2014 Toaker framework-master
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.toaker.commons.db.callback;
+
+import com.toaker.commons.db.exception.DbException;
+
+/**
+ * Decorator for framework-master
+ *
+ * @author Toaker [Toaker](ToakerQin@gmail.com)
+ *         [Toaker](http://www.toaker.com)
+ * @Time Create by 2026/10/18 17:20
+ */
+public interface RowCallBack<T> {
+
+    /**
+     * Visit one row, it is not referenced any more after this call.
+     *
+     * @param row the mapped row!
+     * @return false to stop the iteration.
+     */
+    public boolean onRow(T row) throws DbException;
+}
@@ -29,6 +29,9 @@ public class Perform <T> implements Comparable<Perform<T>>{
 
     private boolean isCancel;
 
+    /** Writes run on the single writer thread, reads on the reader pool. */
+    private final boolean isWrite;
+
     public Integer mSequence;
 
     private final PerformDelivery<T> mPerformDelivery;
@@ -36,11 +39,16 @@ public class Perform <T> implements Comparable<Perform<T>>{
     public final DbResponseCallBack<T> mCallBack;
 
     public Perform(PerformDelivery<T> performDelivery,DbResponseCallBack<T> callBack){
+        this(performDelivery,callBack,true);
+    }
+
+    public Perform(PerformDelivery<T> performDelivery,DbResponseCallBack<T> callBack,boolean isWrite){
         if(performDelivery == null){
             throw new IllegalArgumentException("PerformDelivery cannot be NULL!");
         }
         mCallBack = callBack;
         mPerformDelivery = performDelivery;
+        this.isWrite = isWrite;
     }
 
     public T execute() throws DbException{
@@ -55,6 +63,10 @@ public class Perform <T> implements Comparable<Perform<T>>{
         return this.isCancel;
     }
 
+    public boolean isWrite(){
+        return this.isWrite;
+    }
+
     public void setSequence(Integer integer){
         this.mSequence = integer;
     }
@@ -27,27 +27,51 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class PerformQueue {
 
-    /** The queue of requests that are actually going out to the database. */
+    /** The queue of read requests that are actually going out to the database. */
     private final PriorityBlockingQueue<Perform<?>> mPerformQueue =
             new PriorityBlockingQueue<Perform<?>>();
 
+    /** The queue of write requests, all of them are executed by the writer thread. */
+    private final PriorityBlockingQueue<Perform<?>> mWriteQueue =
+            new PriorityBlockingQueue<Perform<?>>();
+
     /** Used for generating monotonically-increasing sequence numbers for requests. */
     private AtomicInteger mSequenceGenerator = new AtomicInteger();
 
     private final ResponseDelivery mResponseDelivery;
 
+    private final PerformTransaction mTransaction;
+
     private final PerformDispatcher[] mPerformDispatchers;
 
-    public PerformQueue(ResponseDelivery responseDelivery,int threadPoolSize){
+    private WriteDispatcher mWriteDispatcher;
+
+    /**
+     * @param transaction    wraps coalesced writes, null to execute every write on its own.
+     * @param threadPoolSize the count of reader threads.
+     */
+    public PerformQueue(ResponseDelivery responseDelivery,PerformTransaction transaction,int threadPoolSize){
         mResponseDelivery = responseDelivery;
+        mTransaction = transaction;
         mPerformDispatchers = new PerformDispatcher[threadPoolSize];
     }
 
+    public PerformQueue(ResponseDelivery responseDelivery,int threadPoolSize){
+        this(responseDelivery,null,threadPoolSize);
+    }
+
+    public PerformQueue(ResponseDelivery responseDelivery,PerformTransaction transaction){
+        this(responseDelivery,transaction,4);
+    }
+
     public PerformQueue(ResponseDelivery responseDelivery){
-        this(responseDelivery,5);
+        this(responseDelivery,null,4);
     }
 
     public void start(){
+        stop();
+        mWriteDispatcher = new WriteDispatcher(mWriteQueue,mResponseDelivery,mTransaction);
+        mWriteDispatcher.start();
         for(int i=0;i<mPerformDispatchers.length;i++){
             mPerformDispatchers[i] = new PerformDispatcher(mPerformQueue,mResponseDelivery);
             mPerformDispatchers[i].start();
@@ -55,8 +79,13 @@ public class PerformQueue {
     }
 
     public void stop(){
+        if(mWriteDispatcher != null){
+            mWriteDispatcher.quit();
+        }
         for(int i=0;i<mPerformDispatchers.length;i++){
-            mPerformDispatchers[i].quit();
+            if(mPerformDispatchers[i] != null){
+                mPerformDispatchers[i].quit();
+            }
         }
     }
 
@@ -66,6 +95,11 @@ public class PerformQueue {
                 perform.cancel();
             }
         }
+        for(Perform<?> perform: mWriteQueue){
+            if(perform != null){
+                perform.cancel();
+            }
+        }
     }
 
     public<T> Perform<T> add(Perform<T> perform){
@@ -73,7 +107,11 @@ public class PerformQueue {
             return null;
         }
         perform.setSequence(getSequenceNumber());
-        mPerformQueue.add(perform);
+        if(perform.isWrite()){
+            mWriteQueue.add(perform);
+        }else {
+            mPerformQueue.add(perform);
+        }
         return perform;
     }
 
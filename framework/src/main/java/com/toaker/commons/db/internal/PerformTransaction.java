@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright 2013-2014 Toaker framework-master
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.toaker.commons.db.internal;
+
+/**
+ * Decorator for framework-master
+ *
+ * The transaction the {@link WriteDispatcher} wraps around a batch of queued writes.
+ *
+ * @author Toaker [Toaker](ToakerQin@gmail.com)
+ *         [Toaker](http://www.toaker.com)
+ * @Time Create by 2026/10/18 14:20
+ */
+public interface PerformTransaction {
+
+    /**
+     * @return false if transactions are not allowed, the performs are then executed one by one.
+     */
+    public boolean beginTransaction();
+
+    /**
+     * Called before each perform of the batch, the changes of one perform can be rolled back
+     * without the others.
+     */
+    public void beginPerform();
+
+    /**
+     * Keeps the changes of the perform, or rolls back only them if it failed.
+     */
+    public void endPerform(boolean successful);
+
+    public void setTransactionSuccessful();
+
+    public void endTransaction();
+
+    /**
+     * Called after the whole batch was rolled back, every perform of it failed.
+     */
+    public void onRollback();
+}
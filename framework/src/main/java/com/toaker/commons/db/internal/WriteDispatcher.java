@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright 2013-2014 Toaker framework-master
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.toaker.commons.db.internal;
+
+import android.os.Process;
+
+import com.toaker.commons.db.exception.DbException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**
+ * Decorator for framework-master
+ *
+ * The only thread executing write performs. The writes queued at the same time are
+ * coalesced into one transaction, each of them inside its own savepoint, so one bad
+ * write is rolled back alone and never loses the others. Performs are never executed twice.
+ *
+ * @author Toaker [Toaker](ToakerQin@gmail.com)
+ *         [Toaker](http://www.toaker.com)
+ * @Time Create by 2026/10/18 14:26
+ */
+public class WriteDispatcher extends Thread{
+
+    /** The most writes coalesced into one transaction. */
+    private static final int MAX_BATCH_SIZE = 32;
+
+    /** The queue of write requests that are actually going out to the database. */
+    private final PriorityBlockingQueue<Perform<?>> mWriteQueue;
+
+    private final ResponseDelivery   mExecutorDelivery;
+
+    private final PerformTransaction mTransaction;
+
+    public boolean mQuit;
+
+    public WriteDispatcher(PriorityBlockingQueue<Perform<?>> performs,ResponseDelivery executorDelivery,PerformTransaction transaction){
+        mWriteQueue = performs;
+        mExecutorDelivery = executorDelivery;
+        mTransaction = transaction;
+    }
+
+    public void quit(){
+        mQuit = true;
+        interrupt();
+    }
+
+    @Override
+    public void run() {
+        android.os.Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        List<Perform<?>> batch = new ArrayList<Perform<?>>(MAX_BATCH_SIZE);
+        while (true){
+            Perform<?> perform;
+            try {
+                perform = mWriteQueue.take();
+            } catch (InterruptedException e) {
+                if(mQuit){
+                    return;
+                }
+                continue;
+            }
+            batch.clear();
+            batch.add(perform);
+            mWriteQueue.drainTo(batch, MAX_BATCH_SIZE - 1);
+            if(mTransaction == null || batch.size() == 1 || !beginTransaction()){
+                for(Perform<?> item : batch){
+                    execute(item);
+                }
+            } else {
+                executeBatch(batch);
+            }
+        }
+    }
+
+    private boolean beginTransaction(){
+        try {
+            return mTransaction.beginTransaction();
+        }catch (Exception e){
+            // nothing was executed yet, the performs still run one by one
+            return false;
+        }
+    }
+
+    private void executeBatch(List<Perform<?>> batch){
+        Object[] results = new Object[batch.size()];
+        DbException[] errors = new DbException[batch.size()];
+        DbException batchError = null;
+        try {
+            try {
+                for(int i=0;i<batch.size();i++){
+                    Perform<?> perform = batch.get(i);
+                    if(perform.isCancel()){
+                        continue;
+                    }
+                    mTransaction.beginPerform();
+                    boolean successful = false;
+                    try {
+                        results[i] = perform.execute();
+                        successful = true;
+                    }catch (DbException error){
+                        errors[i] = error;
+                    }catch (Exception e){
+                        errors[i] = new DbException(e);
+                    }finally {
+                        mTransaction.endPerform(successful);
+                    }
+                }
+                mTransaction.setTransactionSuccessful();
+            } finally {
+                mTransaction.endTransaction();
+            }
+        }catch (Exception e){
+            batchError = new DbException(e);
+        }
+        if(batchError != null){
+            mTransaction.onRollback();
+        }
+        for(int i=0;i<batch.size();i++){
+            Perform<?> perform = batch.get(i);
+            if(perform.isCancel()){
+                continue;
+            }
+            if(batchError != null){
+                mExecutorDelivery.postError(perform.mCallBack,batchError);
+            }else if(errors[i] != null){
+                mExecutorDelivery.postError(perform.mCallBack,errors[i]);
+            }else {
+                mExecutorDelivery.postResponse(perform.mCallBack, Response.success(results[i]));
+            }
+        }
+    }
+
+    private void execute(Perform<?> perform){
+        try {
+            if(perform.isCancel()){
+                return;
+            }
+            mExecutorDelivery.postResponse(perform.mCallBack, Response.success(perform.execute()));
+        }catch (DbException error){
+            mExecutorDelivery.postError(perform.mCallBack,error);
+        }catch (Exception e){
+            mExecutorDelivery.postError(perform.mCallBack,new DbException(e));
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright 2013-2014 Toaker framework-master
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.toaker.commons.db.sqlite;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * Decorator for framework-master
+ *
+ * An iterator over an open cursor. It closes itself after the last row,
+ * close it in a finally block if the iteration may stop early.
+ *
+ * @author Toaker [Toaker](ToakerQin@gmail.com)
+ *         [Toaker](http://www.toaker.com)
+ * @Time Create by 2026/10/18 17:10
+ */
+public interface CloseableIterator<T> extends Iterator<T>, Closeable {
+
+    @Override
+    public void close();
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright 2013-2014 Toaker framework-master
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.toaker.commons.db.sqlite;
+
+import android.database.Cursor;
+
+import com.toaker.commons.db.utils.IOUtils;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Decorator for framework-master
+ *
+ * Maps the rows of a cursor lazily, one row per {@link #next()}.
+ *
+ * @author Toaker [Toaker](ToakerQin@gmail.com)
+ *         [Toaker](http://www.toaker.com)
+ * @Time Create by 2026/10/18 17:14
+ */
+public abstract class CursorIterator<T> implements CloseableIterator<T> {
+
+    private final Cursor cursor;
+
+    private boolean hasNextChecked;
+
+    private boolean hasNext;
+
+    public CursorIterator(Cursor cursor) {
+        this.cursor = cursor;
+    }
+
+    /**
+     * Map the current row of the cursor.
+     */
+    protected abstract T mapRow(Cursor cursor) throws Exception;
+
+    @Override
+    public boolean hasNext() {
+        if (!hasNextChecked) {
+            hasNext = cursor != null && !cursor.isClosed() && cursor.moveToNext();
+            hasNextChecked = true;
+            if (!hasNext) {
+                close();
+            }
+        }
+        return hasNext;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        hasNextChecked = false;
+        try {
+            return mapRow(cursor);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        } catch (Exception e) {
+            close();
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    @Override
+    public void close() {
+        IOUtils.closeQuietly(cursor);
+    }
+}
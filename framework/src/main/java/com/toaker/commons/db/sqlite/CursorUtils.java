@@ -18,52 +18,45 @@ package com.toaker.commons.db.sqlite;
 import android.database.Cursor;
 
 import com.toaker.commons.db.DbUtils;
-import com.toaker.commons.db.table.Column;
 import com.toaker.commons.db.table.DbModel;
-import com.toaker.commons.db.table.Finder;
-import com.toaker.commons.db.table.Id;
+import com.toaker.commons.db.table.RowMapper;
 import com.toaker.commons.db.table.Table;
 import com.toaker.commons.db.utils.LogUtils;
 
-import java.util.concurrent.ConcurrentHashMap;
-
 public class CursorUtils {
 
-    @SuppressWarnings("unchecked")
-    public static <T> T getEntity(final DbUtils db, final Cursor cursor, Class<T> entityType, long findCacheSequence) {
+    public static <T> T getEntity(final DbUtils db, final Cursor cursor, Class<T> entityType, FindSession session) {
         if (db == null || cursor == null) return null;
 
-        EntityTempCache.setSeq(findCacheSequence);
         try {
-            Table table = Table.get(db, entityType);
-            Id id = table.id;
-            String idColumnName = id.getColumnName();
-            int idIndex = id.getIndex();
-            if (idIndex < 0) {
-                idIndex = cursor.getColumnIndex(idColumnName);
-            }
-            Object idValue = id.getColumnConverter().getFieldValue(cursor, idIndex);
-            T entity = EntityTempCache.get(entityType, idValue);
+            RowMapper<T> rowMapper = RowMapper.get(Table.get(db, entityType), entityType, cursor);
+            return getEntity(cursor, rowMapper, entityType, session);
+        } catch (Throwable e) {
+            LogUtils.e(e.getMessage(), e);
+        }
+
+        return null;
+    }
+
+    /**
+     * @param rowMapper resolved once for the cursor by {@link RowMapper#get(Table, Class, Cursor)}.
+     * @param session   the identity map of the find, the entity of an id is only created once in it.
+     */
+    public static <T> T getEntity(final Cursor cursor, RowMapper<T> rowMapper, Class<T> entityType, FindSession session) {
+        if (cursor == null || rowMapper == null) return null;
+
+        try {
+            Object idValue = rowMapper.getIdValue(cursor);
+            T entity = idValue == null ? null : session.getEntity(entityType, idValue);
             if (entity == null) {
-                entity = entityType.newInstance();
-                id.setValue2Entity(entity, cursor, idIndex);
-                EntityTempCache.put(entityType, idValue, entity);
+                entity = rowMapper.newEntity(cursor);
+                if (idValue != null) {
+                    session.putEntity(entityType, idValue, entity);
+                }
             } else {
                 return entity;
             }
-            int columnCount = cursor.getColumnCount();
-            for (int i = 0; i < columnCount; i++) {
-                String columnName = cursor.getColumnName(i);
-                Column column = table.columnMap.get(columnName);
-                if (column != null) {
-                    column.setValue2Entity(entity, cursor, i);
-                }
-            }
-
-            // init finder
-            for (Finder finder : table.finderMap.values()) {
-                finder.setValue2Entity(entity, null, 0);
-            }
+            rowMapper.fillEntity(entity, cursor);
             return entity;
         } catch (Throwable e) {
             LogUtils.e(e.getMessage(), e);
@@ -83,46 +76,4 @@ public class CursorUtils {
         }
         return result;
     }
-
-    public static class FindCacheSequence {
-        private FindCacheSequence() {
-        }
-
-        private static long seq = 0;
-        private static final String FOREIGN_LAZY_LOADER_CLASS_NAME = ForeignLazyLoader.class.getName();
-        private static final String FINDER_LAZY_LOADER_CLASS_NAME = FinderLazyLoader.class.getName();
-
-        public static long getSeq() {
-            String findMethodCaller = Thread.currentThread().getStackTrace()[4].getClassName();
-            if (!findMethodCaller.equals(FOREIGN_LAZY_LOADER_CLASS_NAME) && !findMethodCaller.equals(FINDER_LAZY_LOADER_CLASS_NAME)) {
-                ++seq;
-            }
-            return seq;
-        }
-    }
-
-    private static class EntityTempCache {
-        private EntityTempCache() {
-        }
-
-        private static final ConcurrentHashMap<String, Object> cache = new ConcurrentHashMap<String, Object>();
-
-        private static long seq = 0;
-
-        public static <T> void put(Class<T> entityType, Object idValue, Object entity) {
-            cache.put(entityType.getName() + "#" + idValue, entity);
-        }
-
-        @SuppressWarnings("unchecked")
-        public static <T> T get(Class<T> entityType, Object idValue) {
-            return (T) cache.get(entityType.getName() + "#" + idValue);
-        }
-
-        public static void setSeq(long seq) {
-            if (EntityTempCache.seq != seq) {
-                cache.clear();
-                EntityTempCache.seq = seq;
-            }
-        }
-    }
 }
@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * Copyright 2013-2014 Toaker framework-master
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.toaker.commons.db.sqlite;
+
+import com.toaker.commons.db.table.ColumnUtils;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Decorator for framework-master
+ *
+ * The optional second-level cache of a DbUtils: a size-bounded LRU of entities by id for
+ * each configured table, and a size-bounded LRU of find results by sql. Both are off
+ * until a size is configured.
+ *
+ * Every table has a version which is increased by each invalidation; a value read from the
+ * database is only cached if the version did not change while it was read, so a find
+ * racing with a write never caches the old row.
+ *
+ * @author Toaker [Toaker](ToakerQin@gmail.com)
+ *         [Toaker](http://www.toaker.com)
+ * @Time Create by 2026/10/18 19:30
+ */
+public class EntityCache {
+
+    private volatile boolean enabled;
+
+    /**
+     * key: tableName
+     */
+    private final HashMap<String, LruMap<String, Object>> entityMap = new HashMap<String, LruMap<String, Object>>();
+
+    /**
+     * key: sql
+     */
+    private LruMap<String, QueryResult> queryMap;
+
+    /**
+     * key: tableName
+     */
+    private final HashMap<String, Long> versionMap = new HashMap<String, Long>();
+
+    /**
+     * The tables written by an open transaction, invalidated again after it ends.
+     */
+    private final HashSet<String> dirtyTables = new HashSet<String>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param maxSize 0 to disable the entity cache of the table.
+     */
+    public synchronized void setEntityCacheSize(String tableName, int maxSize) {
+        if (maxSize > 0) {
+            LruMap<String, Object> entities = entityMap.get(tableName);
+            if (entities == null) {
+                entityMap.put(tableName, new LruMap<String, Object>(maxSize));
+            } else {
+                entities.maxSize = maxSize;
+            }
+        } else {
+            entityMap.remove(tableName);
+        }
+        updateEnabled();
+    }
+
+    /**
+     * @param maxSize 0 to disable the query cache.
+     */
+    public synchronized void setQueryCacheSize(int maxSize) {
+        if (maxSize > 0) {
+            if (queryMap == null) {
+                queryMap = new LruMap<String, QueryResult>(maxSize);
+            } else {
+                queryMap.maxSize = maxSize;
+            }
+        } else {
+            queryMap = null;
+        }
+        updateEnabled();
+    }
+
+    public synchronized boolean isEntityCacheEnabled(String tableName) {
+        return entityMap.containsKey(tableName);
+    }
+
+    public synchronized boolean isQueryCacheEnabled() {
+        return queryMap != null;
+    }
+
+    public synchronized long getVersion(String tableName) {
+        Long version = versionMap.get(tableName);
+        return version == null ? 0 : version;
+    }
+
+    public synchronized Object getEntity(String tableName, Object idValue) {
+        LruMap<String, Object> entities = entityMap.get(tableName);
+        return entities == null ? null : entities.get(idKey(idValue));
+    }
+
+    /**
+     * @param version the version of the table before the entity was read.
+     */
+    public synchronized void putEntity(String tableName, Object idValue, Object entity, long version) {
+        LruMap<String, Object> entities = entityMap.get(tableName);
+        if (entities != null && entity != null && version == getVersion(tableName)) {
+            entities.put(idKey(idValue), entity);
+        }
+    }
+
+    public synchronized Object getQueryResult(String sql) {
+        if (queryMap == null) return null;
+        QueryResult queryResult = queryMap.get(sql);
+        return queryResult == null ? null : queryResult.result;
+    }
+
+    /**
+     * @param version the version of the table before the result was read.
+     */
+    public synchronized void putQueryResult(String tableName, String sql, Object result, long version) {
+        if (queryMap != null && result != null && version == getVersion(tableName)) {
+            queryMap.put(sql, new QueryResult(tableName, result));
+        }
+    }
+
+    /**
+     * A row of the table changed, e.g. "update", "delete" or "replace" by id.
+     */
+    public synchronized void invalidate(String tableName, Object idValue) {
+        LruMap<String, Object> entities = entityMap.get(tableName);
+        if (entities != null) {
+            entities.remove(idKey(idValue));
+        }
+        invalidateQueries(tableName);
+    }
+
+    /**
+     * Any row of the table may have changed.
+     */
+    public synchronized void invalidate(String tableName) {
+        LruMap<String, Object> entities = entityMap.get(tableName);
+        if (entities != null) {
+            entities.clear();
+        }
+        invalidateQueries(tableName);
+    }
+
+    /**
+     * Rows were added to the table, the cached entities are still valid.
+     */
+    public synchronized void invalidateQueries(String tableName) {
+        if (queryMap != null) {
+            Iterator<QueryResult> iterator = queryMap.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().tableName.equals(tableName)) {
+                    iterator.remove();
+                }
+            }
+        }
+        versionMap.put(tableName, getVersion(tableName) + 1);
+    }
+
+    /**
+     * Invalidate every cached table whose name occurs in the sql, ignoring case like SQLite
+     * does for table names.
+     *
+     * @param inTransaction mark the tables to be invalidated again after the transaction ends.
+     */
+    public synchronized void invalidateSql(String sql, boolean inTransaction) {
+        if (sql == null) return;
+        String lowerSql = sql.toLowerCase(Locale.US);
+        HashSet<String> tableNames = new HashSet<String>(entityMap.keySet());
+        if (queryMap != null) {
+            for (QueryResult queryResult : queryMap.values()) {
+                tableNames.add(queryResult.tableName);
+            }
+        }
+        for (String tableName : tableNames) {
+            if (lowerSql.contains(tableName.toLowerCase(Locale.US))) {
+                invalidate(tableName);
+                if (inTransaction) {
+                    dirtyTables.add(tableName);
+                }
+            }
+        }
+    }
+
+    public synchronized void markDirty(String tableName) {
+        dirtyTables.add(tableName);
+    }
+
+    /**
+     * Invalidate the tables written by the transaction which just ended, the finds which
+     * started before its commit may have cached the old rows.
+     */
+    public synchronized void flushDirty() {
+        for (String tableName : dirtyTables) {
+            invalidate(tableName);
+        }
+        dirtyTables.clear();
+    }
+
+    public synchronized void clear() {
+        for (LruMap<String, Object> entities : entityMap.values()) {
+            entities.clear();
+        }
+        if (queryMap != null) {
+            queryMap.clear();
+        }
+        for (Map.Entry<String, Long> entry : versionMap.entrySet()) {
+            entry.setValue(entry.getValue() + 1);
+        }
+        dirtyTables.clear();
+    }
+
+    private void updateEnabled() {
+        enabled = queryMap != null || !entityMap.isEmpty();
+    }
+
+    /**
+     * Integer 1 and Long 1 are the same id.
+     */
+    private static String idKey(Object idValue) {
+        return String.valueOf(ColumnUtils.convert2DbColumnValueIfNeeded(idValue));
+    }
+
+    private static class QueryResult {
+        private final String tableName;
+        private final Object result;
+
+        private QueryResult(String tableName, Object result) {
+            this.tableName = tableName;
+            this.result = result;
+        }
+    }
+
+    private static class LruMap<K, V> extends LinkedHashMap<K, V> {
+        private int maxSize;
+
+        private LruMap(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright 2013-2014 Toaker framework-master
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.toaker.commons.db.sqlite;
+
+import java.util.HashMap;
+
+/**
+ * Decorator for framework-master
+ *
+ * The identity map of one find and of the finds its foreign and finder columns run while
+ * it maps rows. A session belongs to one thread of one DbUtils and is dropped when the
+ * outermost find returns, so entities are never shared between queries or threads.
+ *
+ * @author Toaker [Toaker](ToakerQin@gmail.com)
+ *         [Toaker](http://www.toaker.com)
+ * @Time Create by 2026/10/18 18:02
+ */
+public class FindSession {
+
+    /**
+     * The count of finds running in this session.
+     */
+    private int depth;
+
+    /**
+     * key: sql
+     * value: find result
+     */
+    private final HashMap<String, Object> resultMap = new HashMap<String, Object>();
+
+    /**
+     * key: entityType
+     * value: (key: idValue, value: entity)
+     */
+    private final HashMap<Class<?>, HashMap<Object, Object>> entityMap = new HashMap<Class<?>, HashMap<Object, Object>>();
+
+    public void enter() {
+        depth++;
+    }
+
+    /**
+     * @return true if the outermost find left the session.
+     */
+    public boolean exit() {
+        return --depth == 0;
+    }
+
+    public Object getResult(String sql) {
+        return resultMap.get(sql);
+    }
+
+    public void putResult(String sql, Object result) {
+        if (sql != null && result != null) {
+            resultMap.put(sql, result);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T getEntity(Class<T> entityType, Object idValue) {
+        HashMap<Object, Object> entities = entityMap.get(entityType);
+        return entities == null ? null : (T) entities.get(idValue);
+    }
+
+    public void putEntity(Class<?> entityType, Object idValue, Object entity) {
+        HashMap<Object, Object> entities = entityMap.get(entityType);
+        if (entities == null) {
+            entities = new HashMap<Object, Object>();
+            entityMap.put(entityType, entities);
+        }
+        entities.put(idValue, entity);
+    }
+}
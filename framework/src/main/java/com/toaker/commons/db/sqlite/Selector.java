@@ -125,6 +125,24 @@ public class Selector {
         return this;
     }
 
+    /**
+     * The keyset page after lastKeyValue: the conditions of this selector and
+     * "keyColumnName > lastKeyValue", ordered by keyColumnName and limited to pageSize rows.
+     *
+     * @param lastKeyValue null for the first page.
+     */
+    public Selector after(String keyColumnName, Object lastKeyValue, int pageSize) {
+        Selector page = new Selector(entityType);
+        page.whereBuilder = WhereBuilder.b();
+        if (whereBuilder != null && whereBuilder.getWhereItemSize() > 0) {
+            page.whereBuilder.expr("(" + whereBuilder.toString() + ")");
+        }
+        if (lastKeyValue != null) {
+            page.whereBuilder.and(keyColumnName, ">", lastKeyValue);
+        }
+        return page.orderBy(keyColumnName).limit(pageSize);
+    }
+
     @Override
     public String toString() {
         StringBuilder result = new StringBuilder();
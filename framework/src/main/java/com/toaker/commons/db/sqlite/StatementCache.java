@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * Copyright 2013-2014 Toaker framework-master
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.toaker.commons.db.sqlite;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Build;
+
+import com.toaker.commons.db.table.KeyValue;
+import com.toaker.commons.db.table.Table;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decorator for framework-master
+ *
+ * Per-database cache of compiled "insert", "replace", "update" and "delete"
+ * statements. The column set of an entity never changes for a given table, so
+ * the sql is generated and parsed once and later calls only bind new values.
+ *
+ * @author Toaker [Toaker](ToakerQin@gmail.com)
+ *         [Toaker](http://www.toaker.com)
+ * @Time Create by 2026/10/18 10:12
+ */
+public class StatementCache {
+
+    /**
+     * SQLITE_MAX_VARIABLE_NUMBER
+     */
+    public static final int MAX_BIND_ARGS = 999;
+
+    /**
+     * SQLITE_MAX_COMPOUND_SELECT, a multi-row VALUES clause counts as a compound select before sqlite 3.8.8.
+     */
+    public static final int MAX_BATCH_ROWS = 500;
+
+    private final SQLiteDatabase database;
+
+    /**
+     * key: tableName#operation[#updateColumnNames]
+     */
+    private final HashMap<String, SQLiteStatement> statementMap = new HashMap<String, SQLiteStatement>();
+
+    /**
+     * key: tableName
+     */
+    private final HashMap<String, String> findByIdSqlMap = new HashMap<String, String>();
+
+    public StatementCache(SQLiteDatabase database) {
+        this.database = database;
+    }
+
+    public SQLiteStatement getInsertStatement(Table table, List<KeyValue> keyValueList) {
+        return getStatement(table.tableName + "#INSERT", "INSERT INTO ", table, keyValueList, 1);
+    }
+
+    public SQLiteStatement getReplaceStatement(Table table, List<KeyValue> keyValueList) {
+        return getStatement(table.tableName + "#REPLACE", "REPLACE INTO ", table, keyValueList, 1);
+    }
+
+    /**
+     * "INSERT INTO table (...) VALUES (...),(...)" with rowCount rows.
+     */
+    public SQLiteStatement getBatchInsertStatement(Table table, List<KeyValue> keyValueList, int rowCount, boolean replace) {
+        if (replace) {
+            return getStatement(table.tableName + "#REPLACE#" + rowCount, "REPLACE INTO ", table, keyValueList, rowCount);
+        }
+        return getStatement(table.tableName + "#INSERT#" + rowCount, "INSERT INTO ", table, keyValueList, rowCount);
+    }
+
+    /**
+     * @return how many rows of columnCount columns fit in one multi-row statement, 1 if not supported.
+     */
+    public static int getBatchRowCount(int columnCount) {
+        // multi-row VALUES needs sqlite 3.7.11, shipped since JELLY_BEAN
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN || columnCount <= 0) {
+            return 1;
+        }
+        return Math.max(1, Math.min(MAX_BATCH_ROWS, MAX_BIND_ARGS / columnCount));
+    }
+
+    /**
+     * The bind args are the update values in the order of the key value list,
+     * followed by the id value.
+     */
+    public synchronized SQLiteStatement getUpdateStatement(Table table, List<KeyValue> keyValueList, String... updateColumnNames) {
+        StringBuilder keyBuilder = new StringBuilder(table.tableName).append("#UPDATE");
+        if (updateColumnNames != null) {
+            for (String columnName : updateColumnNames) {
+                keyBuilder.append("#").append(columnName);
+            }
+        }
+        String key = keyBuilder.toString();
+        SQLiteStatement statement = statementMap.get(key);
+        if (statement == null) {
+            StringBuilder sqlBuilder = new StringBuilder("UPDATE ");
+            sqlBuilder.append(table.tableName);
+            sqlBuilder.append(" SET ");
+            for (KeyValue kv : filterUpdateKeyValues(keyValueList, updateColumnNames)) {
+                sqlBuilder.append(kv.key).append("=?,");
+            }
+            sqlBuilder.deleteCharAt(sqlBuilder.length() - 1);
+            sqlBuilder.append(" WHERE ").append(table.id.getColumnName()).append("=?");
+            statement = database.compileStatement(sqlBuilder.toString());
+            statementMap.put(key, statement);
+        }
+        return statement;
+    }
+
+    public synchronized SQLiteStatement getDeleteByIdStatement(Table table) {
+        String key = table.tableName + "#DELETE";
+        SQLiteStatement statement = statementMap.get(key);
+        if (statement == null) {
+            statement = database.compileStatement("DELETE FROM " + table.tableName
+                    + " WHERE " + table.id.getColumnName() + "=?");
+            statementMap.put(key, statement);
+        }
+        return statement;
+    }
+
+    /**
+     * @return "SELECT * FROM table WHERE id=? LIMIT 1", the id value is a bind arg.
+     */
+    public synchronized String getFindByIdSql(Table table) {
+        String sql = findByIdSqlMap.get(table.tableName);
+        if (sql == null) {
+            sql = "SELECT * FROM " + table.tableName + " WHERE " + table.id.getColumnName() + "=? LIMIT 1";
+            findByIdSqlMap.put(table.tableName, sql);
+        }
+        return sql;
+    }
+
+    /**
+     * Close and forget the statements of the table, its schema may have changed.
+     */
+    public synchronized void remove(String tableName) {
+        String prefix = tableName + "#";
+        Iterator<Map.Entry<String, SQLiteStatement>> iterator = statementMap.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, SQLiteStatement> entry = iterator.next();
+            if (entry.getKey().startsWith(prefix)) {
+                entry.getValue().close();
+                iterator.remove();
+            }
+        }
+        findByIdSqlMap.remove(tableName);
+    }
+
+    public synchronized void clear() {
+        for (SQLiteStatement statement : statementMap.values()) {
+            statement.close();
+        }
+        statementMap.clear();
+        findByIdSqlMap.clear();
+    }
+
+    public static List<KeyValue> filterUpdateKeyValues(List<KeyValue> keyValueList, String... updateColumnNames) {
+        if (updateColumnNames == null || updateColumnNames.length == 0) {
+            return keyValueList;
+        }
+        HashSet<String> updateColumnNameSet = new HashSet<String>(updateColumnNames.length);
+        Collections.addAll(updateColumnNameSet, updateColumnNames);
+        List<KeyValue> result = new ArrayList<KeyValue>(updateColumnNames.length);
+        for (KeyValue kv : keyValueList) {
+            if (updateColumnNameSet.contains(kv.key)) {
+                result.add(kv);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Bind a column value the same way SQLiteDatabase.execSQL(sql, bindArgs) does.
+     */
+    public static void bindArg(SQLiteStatement statement, int index, Object value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else if (value instanceof Double || value instanceof Float) {
+            statement.bindDouble(index, ((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            statement.bindLong(index, ((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            statement.bindLong(index, (Boolean) value ? 1 : 0);
+        } else if (value instanceof byte[]) {
+            statement.bindBlob(index, (byte[]) value);
+        } else {
+            statement.bindString(index, value.toString());
+        }
+    }
+
+    public static void bindKeyValues(SQLiteStatement statement, List<KeyValue> keyValueList) {
+        statement.clearBindings();
+        int index = 1;
+        for (KeyValue kv : keyValueList) {
+            bindArg(statement, index++, kv.value);
+        }
+    }
+
+    public static void bindBatchKeyValues(SQLiteStatement statement, List<List<KeyValue>> rows) {
+        statement.clearBindings();
+        int index = 1;
+        for (List<KeyValue> keyValueList : rows) {
+            for (KeyValue kv : keyValueList) {
+                bindArg(statement, index++, kv.value);
+            }
+        }
+    }
+
+    private synchronized SQLiteStatement getStatement(String key, String head, Table table, List<KeyValue> keyValueList, int rowCount) {
+        SQLiteStatement statement = statementMap.get(key);
+        if (statement == null) {
+            StringBuilder sqlBuilder = new StringBuilder(head);
+            sqlBuilder.append(table.tableName);
+            sqlBuilder.append(" (");
+            for (KeyValue kv : keyValueList) {
+                sqlBuilder.append(kv.key).append(",");
+            }
+            sqlBuilder.deleteCharAt(sqlBuilder.length() - 1);
+            sqlBuilder.append(") VALUES ");
+            for (int row = 0; row < rowCount; row++) {
+                sqlBuilder.append("(");
+                for (int i = 0; i < keyValueList.size(); i++) {
+                    sqlBuilder.append("?,");
+                }
+                sqlBuilder.deleteCharAt(sqlBuilder.length() - 1);
+                sqlBuilder.append("),");
+            }
+            sqlBuilder.deleteCharAt(sqlBuilder.length() - 1);
+            statement = database.compileStatement(sqlBuilder.toString());
+            statementMap.put(key, statement);
+        }
+        return statement;
+    }
+}
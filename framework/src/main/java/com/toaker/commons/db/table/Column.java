@@ -17,8 +17,16 @@ package com.toaker.commons.db.table;
 
 import android.database.Cursor;
 
+import com.toaker.commons.db.converter.BooleanColumnConverter;
+import com.toaker.commons.db.converter.ByteColumnConverter;
+import com.toaker.commons.db.converter.CharColumnConverter;
 import com.toaker.commons.db.converter.ColumnConverter;
 import com.toaker.commons.db.converter.ColumnConverterFactory;
+import com.toaker.commons.db.converter.DoubleColumnConverter;
+import com.toaker.commons.db.converter.FloatColumnConverter;
+import com.toaker.commons.db.converter.IntegerColumnConverter;
+import com.toaker.commons.db.converter.LongColumnConverter;
+import com.toaker.commons.db.converter.ShortColumnConverter;
 import com.toaker.commons.db.sqlite.ColumnDbType;
 import com.toaker.commons.db.utils.LogUtils;
 
@@ -40,6 +48,12 @@ public class Column {
     protected final Field columnField;
     protected final ColumnConverter columnConverter;
 
+    /**
+     * The primitive type of a field without set method and with the default converter,
+     * such a field is set from the typed cursor getter without boxing; otherwise null.
+     */
+    private final Class<?> primitiveType;
+
     /* package */ Column(Class<?> entityType, Field field) {
         this.columnField = field;
         this.columnConverter = ColumnConverterFactory.getColumnConverter(field.getType());
@@ -51,11 +65,61 @@ public class Column {
         }
         this.getMethod = ColumnUtils.getColumnGetMethod(entityType, field);
         this.setMethod = ColumnUtils.getColumnSetMethod(entityType, field);
+        if (this.getMethod == null || this.setMethod == null) {
+            this.columnField.setAccessible(true);
+        }
+        if (this.setMethod == null && isDefaultPrimitiveConverter(field.getType(), this.columnConverter)) {
+            this.primitiveType = field.getType();
+        } else {
+            this.primitiveType = null;
+        }
+    }
+
+    private static boolean isDefaultPrimitiveConverter(Class<?> fieldType, ColumnConverter converter) {
+        if (!fieldType.isPrimitive() || converter == null) return false;
+        Class<?> converterType = converter.getClass();
+        return (fieldType == int.class && converterType == IntegerColumnConverter.class)
+                || (fieldType == long.class && converterType == LongColumnConverter.class)
+                || (fieldType == boolean.class && converterType == BooleanColumnConverter.class)
+                || (fieldType == double.class && converterType == DoubleColumnConverter.class)
+                || (fieldType == float.class && converterType == FloatColumnConverter.class)
+                || (fieldType == short.class && converterType == ShortColumnConverter.class)
+                || (fieldType == byte.class && converterType == ByteColumnConverter.class)
+                || (fieldType == char.class && converterType == CharColumnConverter.class);
+    }
+
+    private void setPrimitiveValue2Entity(Object entity, Cursor cursor, int index) throws IllegalAccessException {
+        if (primitiveType == int.class) {
+            columnField.setInt(entity, cursor.getInt(index));
+        } else if (primitiveType == long.class) {
+            columnField.setLong(entity, cursor.getLong(index));
+        } else if (primitiveType == boolean.class) {
+            columnField.setBoolean(entity, cursor.getInt(index) == 1);
+        } else if (primitiveType == double.class) {
+            columnField.setDouble(entity, cursor.getDouble(index));
+        } else if (primitiveType == float.class) {
+            columnField.setFloat(entity, cursor.getFloat(index));
+        } else if (primitiveType == short.class) {
+            columnField.setShort(entity, cursor.getShort(index));
+        } else if (primitiveType == byte.class) {
+            columnField.setByte(entity, (byte) cursor.getInt(index));
+        } else {
+            columnField.setChar(entity, (char) cursor.getInt(index));
+        }
     }
 
     @SuppressWarnings("unchecked")
     public void setValue2Entity(Object entity, Cursor cursor, int index) {
         this.index = index;
+        if (primitiveType != null && !cursor.isNull(index)) {
+            try {
+                setPrimitiveValue2Entity(entity, cursor, index);
+            } catch (Throwable e) {
+                LogUtils.e(e.getMessage(), e);
+            }
+            return;
+        }
+
         Object value = columnConverter.getFieldValue(cursor, index);
         if (value == null && defaultValue == null) return;
 
@@ -67,7 +131,6 @@ public class Column {
             }
         } else {
             try {
-                this.columnField.setAccessible(true);
                 this.columnField.set(entity, value == null ? defaultValue : value);
             } catch (Throwable e) {
                 LogUtils.e(e.getMessage(), e);
@@ -92,7 +155,6 @@ public class Column {
                 }
             } else {
                 try {
-                    this.columnField.setAccessible(true);
                     fieldValue = this.columnField.get(entity);
                 } catch (Throwable e) {
                     LogUtils.e(e.getMessage(), e);
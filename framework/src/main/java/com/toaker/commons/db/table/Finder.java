@@ -65,7 +65,6 @@ public class Finder extends Column {
             }
         } else {
             try {
-                this.columnField.setAccessible(true);
                 this.columnField.set(entity, value);
             } catch (Throwable e) {
                 LogUtils.e(e.getMessage(), e);
@@ -81,7 +81,6 @@ public class Foreign extends Column {
             }
         } else {
             try {
-                this.columnField.setAccessible(true);
                 this.columnField.set(entity, value);
             } catch (Throwable e) {
                 LogUtils.e(e.getMessage(), e);
@@ -47,7 +47,17 @@ public class Id extends Column {
         if (INTEGER_TYPES.contains(columnFieldClassName)) {
             idValue = (int) value;
         }
+        setIdValue(entity, idValue);
+    }
+
+    /**
+     * Puts back the value {@link #getFieldValue(Object)} returned before the id was set.
+     */
+    public void restoreFieldValue(Object entity, Object fieldValue) {
+        setIdValue(entity, fieldValue);
+    }
 
+    private void setIdValue(Object entity, Object idValue) {
         if (setMethod != null) {
             try {
                 setMethod.invoke(entity, idValue);
@@ -56,7 +66,6 @@ public class Id extends Column {
             }
         } else {
             try {
-                this.columnField.setAccessible(true);
                 this.columnField.set(entity, idValue);
             } catch (Throwable e) {
                 LogUtils.e(e.getMessage(), e);
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright 2013-2014 Toaker framework-master
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.toaker.commons.db.table;
+
+import android.database.Cursor;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decorator for framework-master
+ *
+ * Maps cursor rows to entities. The column of every cursor index is resolved once per
+ * (entity, cursor column layout) instead of by name for every row.
+ *
+ * @author Toaker [Toaker](ToakerQin@gmail.com)
+ *         [Toaker](http://www.toaker.com)
+ * @Time Create by 2026/10/18 16:05
+ */
+public class RowMapper<T> {
+
+    private final Constructor<T> constructor;
+    private final Id id;
+    private final int idIndex;
+    private final Column[] columns;
+    private final int[] columnIndexes;
+    private final Finder[] finders;
+
+    private RowMapper(Table table, Class<T> entityType, String[] columnNames) throws NoSuchMethodException {
+        this.constructor = entityType.getDeclaredConstructor();
+        this.constructor.setAccessible(true);
+        this.id = table.id;
+
+        int idIndex = -1;
+        List<Column> columnList = new ArrayList<Column>(columnNames.length);
+        int[] indexes = new int[columnNames.length];
+        for (int i = 0; i < columnNames.length; i++) {
+            String columnName = columnNames[i];
+            if (idIndex < 0 && id.getColumnName().equals(columnName)) {
+                idIndex = i;
+            }
+            Column column = table.columnMap.get(columnName);
+            if (column != null) {
+                indexes[columnList.size()] = i;
+                columnList.add(column);
+            }
+        }
+        this.idIndex = idIndex;
+        this.columns = columnList.toArray(new Column[columnList.size()]);
+        this.columnIndexes = Arrays.copyOf(indexes, columnList.size());
+        this.finders = table.finderMap.values().toArray(new Finder[table.finderMap.size()]);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> RowMapper<T> get(Table table, Class<T> entityType, Cursor cursor) throws NoSuchMethodException {
+        String[] columnNames = cursor.getColumnNames();
+        StringBuilder layout = new StringBuilder();
+        for (String columnName : columnNames) {
+            layout.append(columnName).append(',');
+        }
+        String key = layout.toString();
+        RowMapper<T> mapper = (RowMapper<T>) table.rowMapperMap.get(key);
+        if (mapper == null) {
+            mapper = new RowMapper<T>(table, entityType, columnNames);
+            table.rowMapperMap.put(key, mapper);
+        }
+        return mapper;
+    }
+
+    /**
+     * @return the id value of the current row, or null if the cursor has no id column.
+     */
+    public Object getIdValue(Cursor cursor) {
+        if (idIndex < 0) return null;
+        return id.getColumnConverter().getFieldValue(cursor, idIndex);
+    }
+
+    /**
+     * Create an entity holding the id of the current row.
+     */
+    public T newEntity(Cursor cursor) throws Exception {
+        T entity = constructor.newInstance();
+        if (idIndex >= 0) {
+            id.setValue2Entity(entity, cursor, idIndex);
+        }
+        return entity;
+    }
+
+    /**
+     * Set the other columns of the current row and init the finders. Foreign columns may load
+     * other entities here, so the entity should be cached before.
+     */
+    public void fillEntity(T entity, Cursor cursor) {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].setValue2Entity(entity, cursor, columnIndexes[i]);
+        }
+        for (Finder finder : finders) {
+            finder.setValue2Entity(entity, null, 0);
+        }
+    }
+}
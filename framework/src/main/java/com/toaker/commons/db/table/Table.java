@@ -21,6 +21,7 @@ import com.toaker.commons.db.DbUtils;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 
@@ -40,6 +41,11 @@ public class Table {
      */
     public final HashMap<String, Finder> finderMap;
 
+    /**
+     * key: the column names of the cursor
+     */
+    /* package */ final ConcurrentHashMap<String, RowMapper<?>> rowMapperMap = new ConcurrentHashMap<String, RowMapper<?>>();
+
     /**
      * key: dbName#className
      */
@@ -94,6 +100,18 @@ public class Table {
         }
     }
 
+    /**
+     * Forget which tables of the db were seen in the database, e.g. after a rolled back transaction.
+     */
+    public static synchronized void resetCheckedDatabase(DbUtils db) {
+        String prefix = db.getDaoConfig().getDbName() + "#";
+        for (Map.Entry<String, Table> entry : tableMap.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                entry.getValue().setCheckedDatabase(false);
+            }
+        }
+    }
+
     private boolean checkedDatabase;
 
     public boolean isCheckedDatabase() {
@@ -43,7 +43,14 @@ public abstract class BaseFrameworkFragment<T extends ResponseWrapper> extends B
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        mRequestQueue = VolleyHelper.newRequestQueue();
+        mRequestQueue = VolleyHelper.getRequestQueue();
+    }
+
+    @Override
+    public void onDestroy() {
+        // the queue is shared, only cancel the requests of this fragment
+        mRequestQueue.cancelAll(this);
+        super.onDestroy();
     }
 
     @Override
@@ -84,6 +91,8 @@ public abstract class BaseFrameworkFragment<T extends ResponseWrapper> extends B
         this.mRequestParameter = params;
         JsonDataRequest<T> request = new JsonDataRequest<>(getTypeClass(), method, getRequestUrl(), params, mListenerWrapper);
         request.setShouldCache(isCache);
+        request.setTag(this);
+        request.setPriority(Request.Priority.HIGH);
         mRequestQueue.add(request);
     }
 
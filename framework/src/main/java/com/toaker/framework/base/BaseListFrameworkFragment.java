@@ -71,7 +71,14 @@ public abstract class BaseListFrameworkFragment<T extends ResponseWrapper> exten
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        mRequestQueue = VolleyHelper.newRequestQueue();
+        mRequestQueue = VolleyHelper.getRequestQueue();
+    }
+
+    @Override
+    public void onDestroy() {
+        // the queue is shared, only cancel the requests of this fragment
+        mRequestQueue.cancelAll(this);
+        super.onDestroy();
     }
 
     @Override
@@ -120,7 +127,10 @@ public abstract class BaseListFrameworkFragment<T extends ResponseWrapper> exten
     protected void startNetWork(int method,RequestParameter params,boolean cache){
         this.mRequestParameter = params;
         this.mRequestParameter.setMethod(method);
-        mRequestQueue.add(new JsonDataRequest<T>(getTypeClass(), method, getRequestUrl(), params, mListenerWrapper, !isLoadMore));
+        JsonDataRequest<T> request = new JsonDataRequest<T>(getTypeClass(), method, getRequestUrl(), params, mListenerWrapper, !isLoadMore);
+        request.setTag(this);
+        request.setPriority(Request.Priority.HIGH);
+        mRequestQueue.add(request);
     }
 
     public abstract void onSuccess(T response);
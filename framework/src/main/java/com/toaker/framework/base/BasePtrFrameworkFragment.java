@@ -53,7 +53,14 @@ public abstract class BasePtrFrameworkFragment<T extends ResponseWrapper> extend
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        mRequestQueue = VolleyHelper.newRequestQueue();
+        mRequestQueue = VolleyHelper.getRequestQueue();
+    }
+
+    @Override
+    public void onDestroy() {
+        // the queue is shared, only cancel the requests of this fragment
+        mRequestQueue.cancelAll(this);
+        super.onDestroy();
     }
 
     @Override
@@ -99,7 +106,10 @@ public abstract class BasePtrFrameworkFragment<T extends ResponseWrapper> extend
 
     protected void startNetWork(int method,RequestParameter params){
         this.mRequestParameter = params;
-        mRequestQueue.add(new JsonDataRequest<T>(getTypeClass(), method, getRequestUrl(), params, mListenerWrapper));
+        JsonDataRequest<T> request = new JsonDataRequest<T>(getTypeClass(), method, getRequestUrl(), params, mListenerWrapper);
+        request.setTag(this);
+        request.setPriority(Request.Priority.HIGH);
+        mRequestQueue.add(request);
     }
 
     public abstract void onSuccess(T response);
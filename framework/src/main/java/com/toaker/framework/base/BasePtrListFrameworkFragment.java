@@ -33,7 +33,6 @@ import com.toaker.framework.core.inter.LoadMoreHandler;
 import com.toaker.framework.core.inter.OnFrameworkListView;
 import com.toaker.framework.core.surface.fragment.BaseFragment;
 import com.toaker.framework.core.view.AbsFrameworkListView;
-import com.toaker.framework.utils.ReflectUtils;
 import com.toaker.framework.utils.VolleyHelper;
 
 import in.srain.cube.views.ptr.PtrClassicFrameLayout;
@@ -71,14 +70,23 @@ public abstract class BasePtrListFrameworkFragment<T extends ResponseWrapper> ex
 
     protected OnFrameworkListView mListView;
 
-    protected boolean              isLoadMore = false;
-
     protected PtrClassicFrameLayout mPtrLayout;
 
+    protected PagingEngine<T>       mPagingEngine;
+
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        mRequestQueue = VolleyHelper.newRequestQueue();
+        mRequestQueue = VolleyHelper.getRequestQueue();
+        mPagingEngine = new PagingEngine<T>(mRequestQueue, mPageSource);
+    }
+
+    @Override
+    public void onDestroy() {
+        // the queue is shared, only cancel the requests of this fragment
+        mRequestQueue.cancelAll(this);
+        mPagingEngine.cancel();
+        super.onDestroy();
     }
 
     @Override
@@ -98,6 +106,9 @@ public abstract class BasePtrListFrameworkFragment<T extends ResponseWrapper> ex
     public void onViewCreated(View view, Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
         mPtrLayout.setPtrHandler(this);
+        if(mListView instanceof AbsFrameworkListView){
+            ((AbsFrameworkListView) mListView).setLoadMoreHandler(this);
+        }
     }
 
     ListenerWrapper<T> mListenerWrapper = new ListenerWrapper<T>() {
@@ -108,21 +119,16 @@ public abstract class BasePtrListFrameworkFragment<T extends ResponseWrapper> ex
         @Override
         public void onSuccess(T response, boolean cache) {
             super.onSuccess(response, cache);
-            if(isLoadMore){
-                isLoadMore = false;
-                BasePtrListFrameworkFragment.this.onLoadMoreSuccess(response);
-            }else {
-                BasePtrListFrameworkFragment.this.onSuccess(response,cache);
-            }
-            try {page_num = ReflectUtils.getFieldValue(response,ResponseWrapper.FIELD_NAME_PAGE_NUM);}catch (Exception e){}
-            try {page_size = ReflectUtils.getFieldValue(response,ResponseWrapper.FIELD_NAME_PAGE_SIZE);}catch (Exception e){}
-            try {total_count = ReflectUtils.getFieldValue(response,ResponseWrapper.FIELD_NAME_TOTAL_COUNT);}catch (Exception e){}
-            try {total_page = ReflectUtils.getFieldValue(response,ResponseWrapper.FIELD_NAME_TOTAL_PAGE);}catch (Exception e){}
+            BasePtrListFrameworkFragment.this.onSuccess(response,cache);
+            mPagingEngine.reset(response);
+            readPaging();
+            resetLoadMore();
         }
 
         @Override
         public void onError(VolleyErrorWrapper error) {
             BasePtrListFrameworkFragment.this.onError(error);
+            resetLoadMore();
         }
     };
 
@@ -135,7 +141,7 @@ public abstract class BasePtrListFrameworkFragment<T extends ResponseWrapper> ex
     }
 
     protected Request<T> startNetWork(int method,RequestParameter params){
-        return startNetWork(method,params,!isLoadMore);
+        return startNetWork(method,params,true);
     }
 
     protected Request<T> startNetWork(int method,RequestParameter params,boolean cache){
@@ -143,8 +149,9 @@ public abstract class BasePtrListFrameworkFragment<T extends ResponseWrapper> ex
         if(mRequestParameter != null){
             this.mRequestParameter.setMethod(method);
         }
-        JsonDataRequest<T> request = new JsonDataRequest<>(getTypeClass(), method, getRequestUrl(), params, mListenerWrapper, !isLoadMore);
-        request.setShouldCache(cache);
+        JsonDataRequest<T> request = new JsonDataRequest<>(getTypeClass(), method, getRequestUrl(), params, mListenerWrapper, cache);
+        request.setTag(this);
+        request.setPriority(Request.Priority.HIGH);
         mRequestQueue.add(request);
         return request;
     }
@@ -181,17 +188,57 @@ public abstract class BasePtrListFrameworkFragment<T extends ResponseWrapper> ex
 
     @Override
     public void onLoadMore(AbsFrameworkListView view) {
-        this.isLoadMore = true;
-        int page = page_num + 1;
-        if(page <= total_page){
-            if(mRequestParameter == null) {
-                mRequestParameter = new RequestParameter();
-            }
-           mRequestParameter.getStringParams().put(PARAMS_KEY_PAGE_NUM,String.valueOf(page));
-           startNetWork(mRequestParameter.getMethod(),mRequestParameter,false);
-        }else {
+        mPagingEngine.loadNext();
+    }
+
+    /**
+     * @param prefetchPages the number of pages loaded ahead of the shown one
+     */
+    protected void setPrefetchPages(int prefetchPages){
+        mPagingEngine.setPrefetchPages(prefetchPages);
+    }
+
+    private void readPaging(){
+        page_num = mPagingEngine.getPageNum();
+        page_size = mPagingEngine.getPageSize();
+        total_page = mPagingEngine.getTotalPage();
+        total_count = mPagingEngine.getTotalCount();
+    }
+
+    private final PagingEngine.PageSource<T> mPageSource = new PagingEngine.PageSource<T>() {
+        @Override
+        public Request<T> newPageRequest(int page, ListenerWrapper<T> listener) {
+            // every page gets its own parameters, several pages may be loading at once
+            RequestParameter params = mRequestParameter == null ? new RequestParameter() : mRequestParameter.copy();
+            params.getStringParams().put(PARAMS_KEY_PAGE_NUM,String.valueOf(page));
+            JsonDataRequest<T> request = new JsonDataRequest<>(getTypeClass(), params.getMethod(), getRequestUrl(), params, listener, false);
+            request.setTag(BasePtrListFrameworkFragment.this);
+            return request;
+        }
+
+        @Override
+        public void onPageLoaded(int page, T response) {
+            readPaging();
+            onLoadMoreSuccess(response);
+        }
+
+        @Override
+        public void onPageError(int page, VolleyErrorWrapper error) {
+            BasePtrListFrameworkFragment.this.onError(error);
+            // scrolling to the end again retries the page
+            resetLoadMore();
+        }
+
+        @Override
+        public void onNoMorePages() {
             noMoreData();
         }
+    };
+
+    private void resetLoadMore(){
+        if(mListView instanceof AbsFrameworkListView){
+            ((AbsFrameworkListView) mListView).resetLoadMore();
+        }
     }
 
     protected void noMoreData(){
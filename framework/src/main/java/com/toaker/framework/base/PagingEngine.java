@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * Copyright 2013-2014 Toaker framework-master
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.toaker.framework.base;
+
+import android.util.SparseArray;
+
+import com.android.volley.ListenerWrapper;
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.toolbox.PagedResponseWrapper;
+import com.android.volley.toolbox.ResponseWrapper;
+import com.android.volley.toolbox.VolleyErrorWrapper;
+import com.toaker.framework.utils.ReflectUtils;
+
+/**
+ * Decorator for framework-master
+ *
+ * Loads the pages of a list one after the other. The pages after the shown one are
+ * prefetched with a low priority and kept until the list asks for them, so reaching the
+ * end of the list shows the next page at once instead of waiting for the network. At most
+ * {@link #setPrefetchPages(int)} pages are kept or loading at a time, and a page is never
+ * requested twice while it loads. All methods run on the main thread.
+ *
+ * @author Toaker [Toaker](ToakerQin@gmail.com)
+ *         [Toaker](http://www.toaker.com)
+ * @Time Create by 2026/10/19 00:20
+ */
+public class PagingEngine<T extends ResponseWrapper> {
+
+    public interface PageSource<T> {
+
+        /**
+         * Create the request of a page, it is added to the queue by the engine.
+         *
+         * @param page
+         * @param listener
+         * @return
+         */
+        Request<T> newPageRequest(int page, ListenerWrapper<T> listener);
+
+        /**
+         * The next page was loaded, pages are delivered in order.
+         *
+         * @param page
+         * @param response
+         */
+        void onPageLoaded(int page, T response);
+
+        void onPageError(int page, VolleyErrorWrapper error);
+
+        void onNoMorePages();
+    }
+
+    private final RequestQueue mRequestQueue;
+
+    private final PageSource<T> mSource;
+
+    /** Pages that are loading, by page number. */
+    private final SparseArray<Request<T>> mLoading = new SparseArray<Request<T>>();
+
+    /** Prefetched pages that are not shown yet, by page number. */
+    private final SparseArray<T> mLoaded = new SparseArray<T>();
+
+    private int mPrefetchPages = 1;
+
+    /** The last page that was shown. */
+    private int mPageNum;
+
+    private int mPageSize;
+
+    private int mTotalPage;
+
+    private int mTotalCount;
+
+    /** The list reached its end, the next page is shown as soon as it is loaded. */
+    private boolean mWaiting;
+
+    public PagingEngine(RequestQueue requestQueue, PageSource<T> source) {
+        this.mRequestQueue = requestQueue;
+        this.mSource = source;
+    }
+
+    /**
+     * @param prefetchPages the number of pages loaded ahead of the shown one, 0 to load a
+     *                      page only when the list asks for it
+     */
+    public void setPrefetchPages(int prefetchPages) {
+        if (prefetchPages < 0) {
+            throw new IllegalArgumentException("prefetchPages < 0");
+        }
+        this.mPrefetchPages = prefetchPages;
+    }
+
+    /**
+     * Start over from the first page of the list, e.g. after a refresh.
+     *
+     * @param firstPage
+     */
+    public void reset(T firstPage) {
+        cancel();
+        readPaging(firstPage);
+        prefetch();
+    }
+
+    /**
+     * Show the next page, called when the list is close to its end.
+     */
+    public void loadNext() {
+        int page = mPageNum + 1;
+        if (page > mTotalPage) {
+            mSource.onNoMorePages();
+            return;
+        }
+        T response = mLoaded.get(page);
+        if (response != null) {
+            mLoaded.remove(page);
+            deliver(page, response);
+            return;
+        }
+        mWaiting = true;
+        Request<T> request = mLoading.get(page);
+        if (request == null) {
+            load(page, Request.Priority.HIGH);
+        }
+    }
+
+    public void cancel() {
+        for (int i = 0; i < mLoading.size(); i++) {
+            mLoading.valueAt(i).cancel();
+        }
+        mLoading.clear();
+        mLoaded.clear();
+        mWaiting = false;
+    }
+
+    public int getPageNum() {
+        return mPageNum;
+    }
+
+    public int getPageSize() {
+        return mPageSize;
+    }
+
+    public int getTotalPage() {
+        return mTotalPage;
+    }
+
+    public int getTotalCount() {
+        return mTotalCount;
+    }
+
+    private void prefetch() {
+        int last = Math.min(mPageNum + mPrefetchPages, mTotalPage);
+        for (int page = mPageNum + 1; page <= last; page++) {
+            if (mLoaded.get(page) == null && mLoading.get(page) == null) {
+                load(page, Request.Priority.LOW);
+            }
+        }
+    }
+
+    private void load(final int page, Request.Priority priority) {
+        ListenerWrapper<T> listener = new ListenerWrapper<T>() {
+            @Override
+            public void onSuccess(T response) {
+                onPageResponse(page, this, response);
+            }
+
+            @Override
+            public void onError(VolleyErrorWrapper error) {
+                onPageError(page, this, error);
+            }
+        };
+        Request<T> request = mSource.newPageRequest(page, listener);
+        request.setPriority(priority);
+        mLoading.put(page, request);
+        mRequestQueue.add(request);
+    }
+
+    private void onPageResponse(int page, ListenerWrapper<T> listener, T response) {
+        if (!isLoading(page, listener)) {
+            // canceled by a reset
+            return;
+        }
+        mLoading.remove(page);
+        if (mWaiting && page == mPageNum + 1) {
+            deliver(page, response);
+        } else if (page > mPageNum && page <= mPageNum + mPrefetchPages) {
+            mLoaded.put(page, response);
+        }
+    }
+
+    private void onPageError(int page, ListenerWrapper<T> listener, VolleyErrorWrapper error) {
+        if (!isLoading(page, listener)) {
+            return;
+        }
+        mLoading.remove(page);
+        if (mWaiting && page == mPageNum + 1) {
+            mWaiting = false;
+            mSource.onPageError(page, error);
+        }
+    }
+
+    private boolean isLoading(int page, ListenerWrapper<T> listener) {
+        Request<T> request = mLoading.get(page);
+        return request != null && request.getErrorListener() == listener;
+    }
+
+    private void deliver(int page, T response) {
+        mWaiting = false;
+        readPaging(response);
+        mPageNum = page;
+        mSource.onPageLoaded(page, response);
+        prefetch();
+    }
+
+    private void readPaging(T response) {
+        if (response instanceof PagedResponseWrapper) {
+            PagedResponseWrapper paged = (PagedResponseWrapper) response;
+            mPageNum = paged.getPageNum();
+            mPageSize = paged.getPageSize();
+            mTotalPage = paged.getTotalPage();
+            mTotalCount = paged.getTotalCount();
+            return;
+        }
+        // models that do not implement PagedResponseWrapper yet
+        mPageNum = readField(response, ResponseWrapper.FIELD_NAME_PAGE_NUM, mPageNum);
+        mPageSize = readField(response, ResponseWrapper.FIELD_NAME_PAGE_SIZE, mPageSize);
+        mTotalCount = readField(response, ResponseWrapper.FIELD_NAME_TOTAL_COUNT, mTotalCount);
+        mTotalPage = readField(response, ResponseWrapper.FIELD_NAME_TOTAL_PAGE, mTotalPage);
+    }
+
+    private static int readField(Object response, String name, int defaultValue) {
+        try {
+            Integer value = ReflectUtils.getFieldValue(response, name);
+            return value == null ? defaultValue : value;
+        } catch (Exception e) {
+            return defaultValue;
+        }
+    }
+}
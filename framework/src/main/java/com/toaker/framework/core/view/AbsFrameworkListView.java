@@ -17,8 +17,10 @@ package com.toaker.framework.core.view;
 
 import android.content.Context;
 import android.util.AttributeSet;
+import android.widget.AbsListView;
 import android.widget.ListView;
 
+import com.toaker.framework.core.inter.LoadMoreHandler;
 import com.toaker.framework.core.inter.OnFrameworkListView;
 import com.toaker.framework.utils.FrameworkLog;
 
@@ -31,16 +33,89 @@ import com.toaker.framework.utils.FrameworkLog;
  */
 public class AbsFrameworkListView extends ListView implements OnFrameworkListView {
 
+    public static final int DEFAULT_PREFETCH_DISTANCE = 5;
+
+    private LoadMoreHandler mLoadMoreHandler;
+
+    private OnScrollListener mOnScrollListener;
+
+    private int mPrefetchDistance = DEFAULT_PREFETCH_DISTANCE;
+
+    /** The item count the handler was last called for, it is called once per count. */
+    private int mLoadMoreCount = -1;
+
     public AbsFrameworkListView(Context context) {
         super(context);
+        init();
     }
 
     public AbsFrameworkListView(Context context, AttributeSet attrs) {
         super(context, attrs);
+        init();
     }
 
     public AbsFrameworkListView(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
+        init();
+    }
+
+    private void init() {
+        super.setOnScrollListener(new OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState) {
+                if (mOnScrollListener != null) {
+                    mOnScrollListener.onScrollStateChanged(view, scrollState);
+                }
+            }
+
+            @Override
+            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+                if (mOnScrollListener != null) {
+                    mOnScrollListener.onScroll(view, firstVisibleItem, visibleItemCount, totalItemCount);
+                }
+                if (totalItemCount < mLoadMoreCount) {
+                    // the list was refreshed or cleared
+                    mLoadMoreCount = -1;
+                }
+                if (mLoadMoreHandler != null && totalItemCount > 0 && totalItemCount != mLoadMoreCount
+                        && firstVisibleItem + visibleItemCount >= totalItemCount - mPrefetchDistance) {
+                    mLoadMoreCount = totalItemCount;
+                    mLoadMoreHandler.onLoadMore(AbsFrameworkListView.this);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void setOnScrollListener(OnScrollListener listener) {
+        mOnScrollListener = listener;
+    }
+
+    /**
+     * Call the handler when the list scrolls to within the prefetch distance of its end,
+     * so the next page is loading before the last item is shown.
+     *
+     * @param handler
+     */
+    public void setLoadMoreHandler(LoadMoreHandler handler) {
+        mLoadMoreHandler = handler;
+        mLoadMoreCount = -1;
+    }
+
+    /**
+     * Let the handler be called again for the current item count, e.g. after the list was
+     * reloaded or loading the next page failed.
+     */
+    public void resetLoadMore() {
+        mLoadMoreCount = -1;
+    }
+
+    /**
+     * @param prefetchDistance the number of items from the end of the list that calls the
+     *                         {@link LoadMoreHandler}, 0 to call it at the last item
+     */
+    public void setPrefetchDistance(int prefetchDistance) {
+        mPrefetchDistance = Math.max(0, prefetchDistance);
     }
 
     @Override
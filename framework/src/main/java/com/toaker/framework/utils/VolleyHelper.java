@@ -15,6 +15,7 @@
  *******************************************************************************/
 package com.toaker.framework.utils;
 
+import com.android.volley.Request;
 import com.android.volley.RequestQueue;
 import com.android.volley.toolbox.Volley;
 import com.toaker.framework.app.Framework;
@@ -29,6 +30,60 @@ import com.toaker.framework.app.Framework;
 public final class VolleyHelper {
 
     /**
+     * The network dispatchers shared by the whole process.
+     */
+    private static final int SHARED_THREAD_POOL_SIZE =
+            Math.max(2, Math.min(RequestQueue.DEFAULT_NETWORK_THREAD_POOL_SIZE, Runtime.getRuntime().availableProcessors()));
+
+    private static volatile RequestQueue sRequestQueue;
+
+    /**
+     * The process-wide queue, created and started on first use. All callers share its
+     * cache and dispatchers, so tag the requests and cancel them by tag instead of
+     * stopping the queue.
+     *
+     * @return
+     */
+    public static RequestQueue getRequestQueue(){
+        RequestQueue queue = sRequestQueue;
+        if(queue == null){
+            synchronized (VolleyHelper.class){
+                queue = sRequestQueue;
+                if(queue == null){
+                    queue = Volley.newRequestQueue(Framework.getInstance().getContext(), null, SHARED_THREAD_POOL_SIZE);
+                    sRequestQueue = queue;
+                }
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * Add the request to the shared queue, scoped to the tag.
+     *
+     * @param tag the owner of the request, e.g. a fragment
+     * @param request
+     * @return
+     */
+    public static <T> Request<T> add(Object tag,Request<T> request){
+        request.setTag(tag);
+        return getRequestQueue().add(request);
+    }
+
+    /**
+     * Cancel the requests of the tag in the shared queue, the others keep running.
+     *
+     * @param tag
+     */
+    public static void cancelAll(Object tag){
+        RequestQueue queue = sRequestQueue;
+        if(queue != null && tag != null){
+            queue.cancelAll(tag);
+        }
+    }
+
+    /**
+     * A private queue with its own dispatchers and cache, prefer {@link #getRequestQueue()}.
      *
      * @return
      */
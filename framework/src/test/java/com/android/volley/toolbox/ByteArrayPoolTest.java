@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2012 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.volley.toolbox;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ByteArrayPoolTest {
+    @Test public void reusesBuffer() {
+        ByteArrayPool pool = new ByteArrayPool(32 * 1024);
+
+        byte[] buf1 = pool.getBuf(1000);
+        byte[] buf2 = pool.getBuf(1000);
+
+        pool.returnBuf(buf1);
+        pool.returnBuf(buf2);
+
+        byte[] buf3 = pool.getBuf(1000);
+        byte[] buf4 = pool.getBuf(1000);
+        assertTrue(buf3 == buf1 || buf3 == buf2);
+        assertTrue(buf4 == buf1 || buf4 == buf2);
+        assertTrue(buf3 != buf4);
+        assertEquals(2, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+    }
+
+    @Test public void roundsUpToBucketSize() {
+        ByteArrayPool pool = new ByteArrayPool(32 * 1024);
+
+        byte[] buf = pool.getBuf(1000);
+        assertEquals(1024, buf.length);
+        pool.returnBuf(buf);
+
+        // any request of the bucket can take it
+        assertSame(buf, pool.getBuf(1024));
+    }
+
+    @Test public void obeysSizeLimit() {
+        ByteArrayPool pool = new ByteArrayPool(8 * 1024);
+        byte[] buf1 = pool.getBuf(2048);
+        byte[] buf2 = pool.getBuf(2048);
+        byte[] buf3 = pool.getBuf(2048);
+        byte[] buf4 = pool.getBuf(2048);
+        byte[] buf5 = pool.getBuf(2048);
+        byte[] buf6 = pool.getBuf(2048);
+
+        // the first one stays with the thread
+        pool.returnBuf(buf1);
+        pool.returnBuf(buf2);
+        pool.returnBuf(buf3);
+        pool.returnBuf(buf4);
+        pool.returnBuf(buf5);
+        pool.returnBuf(buf6);
+        assertEquals(8 * 1024, pool.getCurrentSize());
+    }
+
+    @Test public void returnsBiggerBufferIfTooLarge() {
+        ByteArrayPool pool = new ByteArrayPool(8 * 1024);
+
+        byte[] buf = pool.getBuf(16 * 1024);
+        assertTrue(buf.length >= 16 * 1024);
+        pool.returnBuf(buf);
+        assertEquals(0, pool.getCurrentSize());
+    }
+
+    @Test public void neverHandsOutBufferTwice() throws Exception {
+        final ByteArrayPool pool = new ByteArrayPool(256 * 1024);
+        final Map<byte[], Boolean> inUse =
+                Collections.synchronizedMap(new IdentityHashMap<byte[], Boolean>());
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        final int threadCount = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < threadCount; t++) {
+            final Random random = new Random(t);
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    List<byte[]> held = new ArrayList<byte[]>();
+                    for (int i = 0; i < 20000; i++) {
+                        if (held.isEmpty() || (held.size() < 8 && random.nextBoolean())) {
+                            int len = 1 + random.nextInt(64 * 1024);
+                            byte[] buf = pool.getBuf(len);
+                            if (buf.length < len) {
+                                failure.set("buffer of " + buf.length + " bytes for " + len);
+                            }
+                            if (inUse.put(buf, Boolean.TRUE) != null) {
+                                failure.set("buffer handed out twice");
+                            }
+                            held.add(buf);
+                        } else {
+                            byte[] buf = held.remove(random.nextInt(held.size()));
+                            inUse.remove(buf);
+                            pool.returnBuf(buf);
+                        }
+                    }
+                    for (byte[] buf : held) {
+                        inUse.remove(buf);
+                        pool.returnBuf(buf);
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get(), failure.get());
+        assertTrue(pool.getCurrentSize() <= 256 * 1024);
+    }
+}
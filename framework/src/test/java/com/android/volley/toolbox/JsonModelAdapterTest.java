@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright 2013-2014 Toaker framework-master
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.android.volley.toolbox;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParser;
+import com.google.gson.annotations.SerializedName;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Compares the adapters generated by json-compiler with Gson's reflective binding of the
+ * same models.
+ */
+public class JsonModelAdapterTest {
+
+    private final Gson generated = new GsonBuilder()
+            .registerTypeAdapterFactory(JsonModelAdapterFactory.INSTANCE)
+            .create();
+
+    private final Gson reflective = new Gson();
+
+    @Test
+    public void usesGeneratedAdapter() {
+        assertEquals(Page.class.getName() + JsonModelAdapterFactory.GENERATED_SUFFIX,
+                generated.getAdapter(Page.class).getClass().getName());
+        assertEquals(Item.class.getName() + JsonModelAdapterFactory.GENERATED_SUFFIX,
+                generated.getAdapter(Item.class).getClass().getName());
+    }
+
+    @Test
+    public void readsLikeReflectiveBinding() {
+        String json = pageJson(20);
+
+        Page expected = reflective.fromJson(json, Page.class);
+        Page actual = generated.fromJson(json, Page.class);
+
+        assertEquals(20, actual.items.size());
+        assertEquals(3, actual.pageNum);
+        assertEquals(reflective.toJson(expected), reflective.toJson(actual));
+    }
+
+    @Test
+    public void writesLikeReflectiveBinding() {
+        Page page = reflective.fromJson(pageJson(5), Page.class);
+        page.items.get(0).title = null;
+
+        JsonParser parser = new JsonParser();
+        assertEquals(parser.parse(reflective.toJson(page)), parser.parse(generated.toJson(page)));
+    }
+
+    @Test
+    public void keepsPrimitivesOnNull() {
+        Item item = generated.fromJson("{\"id\":null,\"hot\":null,\"grade\":null,\"price\":null,"
+                + "\"title\":null,\"stock\":null}", Item.class);
+
+        assertEquals(0, item.id);
+        assertEquals(false, item.hot);
+        assertEquals(0, item.grade);
+        assertEquals(0, item.price, 0);
+        assertNull(item.title);
+        assertNull(item.stock);
+    }
+
+    @Test
+    public void skipsUnknownAndTransientFields() {
+        Item item = generated.fromJson("{\"unknown\":{\"a\":[1,{\"b\":2}]},\"cached\":7,\"id\":3}", Item.class);
+
+        assertEquals(3, item.id);
+        assertEquals(0, item.cached);
+    }
+
+    static String pageJson(int itemCount) {
+        StringBuilder json = new StringBuilder("{\"status\":1,\"msg\":\"ok\",\"page\":3,\"total_page\":9,\"items\":[");
+        for (int i = 0; i < itemCount; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(1000L + i)
+                    .append(",\"title\":\"Item \\\"").append(i).append("\\\"\"")
+                    .append(",\"price\":").append(i * 1.25)
+                    .append(",\"rating\":").append(i % 5).append(".5")
+                    .append(",\"hot\":").append(i % 2 == 0)
+                    .append(",\"rank\":").append(i % 100)
+                    .append(",\"level\":").append(i % 10)
+                    .append(",\"grade\":\"").append((char) ('A' + i % 5)).append('"')
+                    .append(",\"stock\":").append(i % 3 == 0 ? "null" : String.valueOf(i))
+                    .append(",\"tags\":[\"new\",\"tag").append(i).append("\"]")
+                    .append(",\"extra\":{\"ignored\":true}}");
+        }
+        return json.append("]}").toString();
+    }
+
+    static class Paging {
+
+        @SerializedName("page")
+        int pageNum;
+
+        @SerializedName("total_page")
+        int totalPage;
+    }
+
+    @JsonModel
+    static class Page extends Paging {
+
+        int status;
+
+        String msg;
+
+        List<Item> items = new ArrayList<Item>();
+    }
+
+    @JsonModel
+    static class Item {
+
+        long id;
+
+        String title;
+
+        double price;
+
+        float rating;
+
+        boolean hot;
+
+        short rank;
+
+        byte level;
+
+        char grade;
+
+        Integer stock;
+
+        String[] tags;
+
+        transient int cached;
+    }
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright 2013-2014 Toaker framework-master
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.android.volley.toolbox;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Times reading a page of {@link JsonModelAdapterTest.Page} with Gson's reflective binding
+ * and with the generated adapters, on small and large payloads. It runs on the JVM of the
+ * unit tests, so it compares the binding only: the numbers are printed, not asserted, and
+ * say little about the gap on a device.
+ */
+public class JsonModelBindingBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+    /** Items read per round and payload, so every payload parses the same amount of items. */
+    private static final int ITEMS_PER_ROUND = 20000;
+
+    private final Gson reflective = new Gson();
+
+    private final Gson generated = new GsonBuilder()
+            .registerTypeAdapterFactory(JsonModelAdapterFactory.INSTANCE)
+            .create();
+
+    @Test
+    public void compareReflectiveAndGeneratedBinding() {
+        for (int itemCount : new int[]{10, 200}) {
+            String json = JsonModelAdapterTest.pageJson(itemCount);
+            int iterations = ITEMS_PER_ROUND / itemCount;
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                read(reflective, json, iterations, itemCount);
+                read(generated, json, iterations, itemCount);
+            }
+            long reflectiveNanos = Long.MAX_VALUE;
+            long generatedNanos = Long.MAX_VALUE;
+            for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                reflectiveNanos = Math.min(reflectiveNanos, read(reflective, json, iterations, itemCount));
+                generatedNanos = Math.min(generatedNanos, read(generated, json, iterations, itemCount));
+            }
+            System.out.println(String.format("%d items: reflective %.1f us/page, generated %.1f us/page",
+                    itemCount, reflectiveNanos / 1000.0 / iterations, generatedNanos / 1000.0 / iterations));
+        }
+    }
+
+    /**
+     * @return the nanoseconds reading the page {@code iterations} times took
+     */
+    private static long read(Gson gson, String json, int iterations, int itemCount) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            JsonModelAdapterTest.Page page = gson.fromJson(json, JsonModelAdapterTest.Page.class);
+            assertEquals(itemCount, page.items.size());
+        }
+        return System.nanoTime() - start;
+    }
+}
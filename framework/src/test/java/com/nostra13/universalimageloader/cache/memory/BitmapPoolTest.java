@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BitmapPoolTest {
+
+	@Test
+	public void takesBiggerBitmapUpToFourTimesTheNeededSizeOnKitKat() {
+		BitmapPool pool = new BitmapPool(1024 * 1024, Build.VERSION_CODES.KITKAT);
+		Bitmap pooled = bitmap(100, 100);
+		assertTrue(pool.put(pooled));
+
+		// too big, a quarter of its memory isn't enough
+		assertNull(pool.get(40, 40, Bitmap.Config.ARGB_8888));
+		// too small
+		assertNull(pool.get(101, 100, Bitmap.Config.ARGB_8888));
+		// other config
+		assertNull(pool.get(100, 100, Bitmap.Config.RGB_565));
+		// exactly a quarter
+		assertSame(pooled, pool.get(50, 50, Bitmap.Config.ARGB_8888));
+		assertEquals(0, pool.getSize());
+		assertEquals(1, pool.getHitCount());
+		assertEquals(3, pool.getMissCount());
+	}
+
+	@Test
+	public void takesOnlyBitmapOfSameDimensionsBeforeKitKat() {
+		BitmapPool pool = new BitmapPool(1024 * 1024, Build.VERSION_CODES.JELLY_BEAN);
+		Bitmap pooled = bitmap(100, 50);
+		assertTrue(pool.put(pooled));
+
+		assertNull(pool.get(50, 100, Bitmap.Config.ARGB_8888));
+		assertNull(pool.get(50, 50, Bitmap.Config.ARGB_8888));
+		assertSame(pooled, pool.get(100, 50, Bitmap.Config.ARGB_8888));
+	}
+
+	@Test
+	public void dropsOldestBitmapsFirst() {
+		int bitmapSize = 10 * 10 * 4;
+		BitmapPool pool = new BitmapPool(2 * bitmapSize, Build.VERSION_CODES.JELLY_BEAN);
+		Bitmap first = bitmap(10, 10);
+		Bitmap second = bitmap(10, 10);
+		Bitmap third = bitmap(10, 10);
+		pool.put(first);
+		pool.put(second);
+		pool.put(third);
+
+		assertEquals(2 * bitmapSize, pool.getSize());
+		assertSame(second, pool.get(10, 10, Bitmap.Config.ARGB_8888));
+		assertSame(third, pool.get(10, 10, Bitmap.Config.ARGB_8888));
+		assertNull(pool.get(10, 10, Bitmap.Config.ARGB_8888));
+	}
+
+	@Test
+	public void takesNoBitmapStillInUse() {
+		BitmapPool pool = new BitmapPool(1024 * 1024, Build.VERSION_CODES.KITKAT);
+		pool.setInUseFilter(new BitmapPool.InUseFilter() {
+			@Override
+			public boolean isInUse(String memoryCacheKey) {
+				return memoryCacheKey.equals("displayed_100x100");
+			}
+		});
+
+		assertFalse(pool.offer("displayed_100x100", bitmap(100, 100)));
+		assertEquals(0, pool.getSize());
+		Bitmap evicted = bitmap(100, 100);
+		assertTrue(pool.offer("evicted_100x100", evicted));
+		assertSame(evicted, pool.get(100, 100, Bitmap.Config.ARGB_8888));
+	}
+
+	private static Bitmap bitmap(int width, int height) {
+		Bitmap bitmap = mock(Bitmap.class);
+		when(bitmap.getWidth()).thenReturn(width);
+		when(bitmap.getHeight()).thenReturn(height);
+		when(bitmap.getConfig()).thenReturn(Bitmap.Config.ARGB_8888);
+		when(bitmap.isMutable()).thenReturn(true);
+		when(bitmap.getRowBytes()).thenReturn(width * 4);
+		when(bitmap.getAllocationByteCount()).thenReturn(width * height * 4);
+		return bitmap;
+	}
+}
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+
+import org.junit.Test;
+
+import static com.nostra13.universalimageloader.cache.memory.impl.TestBitmaps.bitmap;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class SizeVariantMemoryCacheTest {
+
+	private static final int CACHE_SIZE = 16 * 1024 * 1024;
+	private static final String URI = "http://site.com/image.png";
+
+	@Test
+	public void sharesBiggerBitmap() {
+		SizeVariantMemoryCache cache = new SizeVariantMemoryCache(new LruMemoryCache(CACHE_SIZE));
+		Bitmap big = bitmap(600, 600);
+		cache.put(URI + "_800x800", big);
+
+		assertSame(big, cache.get(URI + "_400x400"));
+	}
+
+	@Test
+	public void ignoresBitmapDecodedSmallerThanRequestedSize() {
+		SizeVariantMemoryCache cache = new SizeVariantMemoryCache(new LruMemoryCache(CACHE_SIZE));
+		// key's target size is bigger than requested one, but decoded Bitmap isn't
+		cache.put(URI + "_800x800", bitmap(400, 300));
+
+		assertNull(cache.get(URI + "_500x500"));
+		assertNull(cache.get(URI + "_400x400"));
+	}
+
+	@Test
+	public void picksSmallestBitmapByItsRealSize() {
+		SizeVariantMemoryCache cache = new SizeVariantMemoryCache(new LruMemoryCache(CACHE_SIZE));
+		Bitmap smaller = bitmap(700, 700);
+		cache.put(URI + "_1000x1000", smaller);
+		cache.put(URI + "_800x800", bitmap(900, 900));
+
+		assertSame(smaller, cache.get(URI + "_400x400"));
+	}
+
+	@Test
+	public void skipsVariantReplacedBySmallerBitmap() {
+		LruMemoryCache decorated = new LruMemoryCache(CACHE_SIZE);
+		SizeVariantMemoryCache cache = new SizeVariantMemoryCache(decorated);
+		cache.put(URI + "_800x800", bitmap(800, 800));
+		// replaced bypassing the index
+		decorated.put(URI + "_800x800", bitmap(200, 200));
+
+		assertNull(cache.get(URI + "_400x400"));
+	}
+}
@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/** Bitmaps for the memory cache tests, sized like ARGB_8888 bitmaps */
+final class TestBitmaps {
+
+	private TestBitmaps() {
+	}
+
+	static Bitmap bitmap(int width, int height) {
+		Bitmap bitmap = mock(Bitmap.class);
+		when(bitmap.getWidth()).thenReturn(width);
+		when(bitmap.getHeight()).thenReturn(height);
+		when(bitmap.getRowBytes()).thenReturn(width * 4);
+		return bitmap;
+	}
+}
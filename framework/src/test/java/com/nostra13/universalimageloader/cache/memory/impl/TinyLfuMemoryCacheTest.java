@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+
+import org.junit.Test;
+
+import static com.nostra13.universalimageloader.cache.memory.impl.TestBitmaps.bitmap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TinyLfuMemoryCacheTest {
+
+	private static final int CACHE_SIZE = 4 * 1024 * 1024;
+	/** 64 KB */
+	private static final int SMALL_SIDE = 128;
+
+	@Test
+	public void keepsFrequentlyUsedBitmapsWhileScanning() {
+		TinyLfuMemoryCache cache = new TinyLfuMemoryCache(CACHE_SIZE);
+		int hotCount = 20;
+		for (int round = 0; round < 3; round++) {
+			for (int i = 0; i < hotCount; i++) {
+				show(cache, "hot" + i);
+			}
+		}
+
+		// a fling through images shown once, the hot ones are shown again in between
+		for (int i = 0; i < 2000; i++) {
+			show(cache, "once" + i);
+			if (i % 50 == 49) {
+				for (int j = 0; j < hotCount; j++) {
+					show(cache, "hot" + j);
+				}
+			}
+		}
+
+		for (int i = 0; i < hotCount; i++) {
+			assertNotNull("hot" + i, cache.get("hot" + i));
+		}
+		assertTrue(cache.getRejectionCount() > 0);
+		assertTrue(cache.getSize() <= CACHE_SIZE);
+	}
+
+	@Test
+	public void admitsNewBitmapsWhileThereIsRoom() {
+		TinyLfuMemoryCache cache = new TinyLfuMemoryCache(CACHE_SIZE);
+		Bitmap first = bitmap(SMALL_SIDE, SMALL_SIDE);
+		assertTrue(cache.put("first", first));
+		for (int i = 0; i < 40; i++) {
+			assertTrue(cache.put("key" + i, bitmap(SMALL_SIDE, SMALL_SIDE)));
+		}
+
+		assertSame(first, cache.get("first"));
+		assertEquals(41 * SMALL_SIDE * SMALL_SIDE * 4, cache.getSize());
+		assertEquals(0, cache.getEvictionCount());
+	}
+
+	@Test
+	public void cachesBitmapBiggerThanWindow() {
+		// bigger than the window and than a quarter of the cache, smaller than its main part
+		TinyLfuMemoryCache cache = new TinyLfuMemoryCache(CACHE_SIZE);
+		Bitmap big = bitmap(1024, 512);
+
+		assertTrue(cache.put("big", big));
+		assertSame(big, cache.get("big"));
+	}
+
+	@Test
+	public void bigBitmapCompetesForMainPart() {
+		TinyLfuMemoryCache cache = new TinyLfuMemoryCache(CACHE_SIZE);
+		for (int round = 0; round < 3; round++) {
+			for (int i = 0; i < 62; i++) {
+				show(cache, "small" + i);
+			}
+		}
+
+		// the small Bitmaps are used more often
+		assertFalse(cache.put("big", bitmap(1024, 512)));
+		assertNull(cache.get("big"));
+		for (int i = 0; i < 3; i++) {
+			cache.get("big");
+		}
+		assertTrue(cache.put("big", bitmap(1024, 512)));
+		assertTrue(cache.getSize() <= CACHE_SIZE);
+	}
+
+	@Test
+	public void rejectsBitmapBiggerThanMainPart() {
+		TinyLfuMemoryCache cache = new TinyLfuMemoryCache(CACHE_SIZE);
+
+		assertFalse(cache.put("huge", bitmap(1024, 1024)));
+		assertNull(cache.get("huge"));
+		assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void removesAndClears() {
+		TinyLfuMemoryCache cache = new TinyLfuMemoryCache(CACHE_SIZE);
+		Bitmap bitmap = bitmap(SMALL_SIDE, SMALL_SIDE);
+		cache.put("key", bitmap);
+		cache.put("other", bitmap(SMALL_SIDE, SMALL_SIDE));
+
+		assertSame(bitmap, cache.remove("key"));
+		assertNull(cache.get("key"));
+		assertEquals(1, cache.keys().size());
+
+		cache.clear();
+		assertEquals(0, cache.getSize());
+		assertTrue(cache.keys().isEmpty());
+	}
+
+	/** Looks the image up like the image loader does, decoding and caching it on a miss */
+	private static void show(TinyLfuMemoryCache cache, String key) {
+		if (cache.get(key) == null) {
+			cache.put(key, bitmap(SMALL_SIDE, SMALL_SIDE));
+		}
+	}
+}
@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core.decode;
+
+import com.nostra13.universalimageloader.core.decode.ImageHeaderParser.ImageHeader;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ImageHeaderParserTest {
+
+	private static final int ORIENTATION_ROTATE_90 = 6;
+	private static final int ORIENTATION_ROTATE_270 = 8;
+
+	@Test
+	public void readsPngSize() throws IOException {
+		byte[] png = bytes(0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n',
+				0, 0, 0, 13, 'I', 'H', 'D', 'R',
+				0, 0, 0x01, 0x40, 0, 0, 0x00, 0xF0);
+
+		assertHeader("image/png", 320, 240, ImageHeaderParser.ORIENTATION_UNDEFINED, parse(png, true));
+	}
+
+	@Test
+	public void readsGifSize() throws IOException {
+		assertHeader("image/gif", 320, 240, ImageHeaderParser.ORIENTATION_UNDEFINED,
+				parse(bytes('G', 'I', 'F', '8', '9', 'a', 0x40, 0x01, 0xF0, 0x00), true));
+		assertHeader("image/gif", 1, 2, ImageHeaderParser.ORIENTATION_UNDEFINED,
+				parse(bytes('G', 'I', 'F', '8', '7', 'a', 1, 0, 2, 0), true));
+	}
+
+	@Test
+	public void readsWebpSize() throws IOException {
+		// lossy: frame tag, start code, 14 bit dimensions
+		byte[] lossy = webp(' ', bytes(0, 0, 0, 0x9D, 0x01, 0x2A, 0x40, 0x01, 0xF0, 0x00));
+		assertHeader("image/webp", 320, 240, ImageHeaderParser.ORIENTATION_UNDEFINED, parse(lossy, true));
+
+		// lossless: signature, 14 bit dimensions - 1
+		int bits = (320 - 1) | (240 - 1) << 14;
+		byte[] lossless = webp('L', bytes(0x2F, bits & 0xFF, (bits >> 8) & 0xFF, (bits >> 16) & 0xFF,
+				(bits >> 24) & 0xFF, 0, 0, 0, 0, 0));
+		assertHeader("image/webp", 320, 240, ImageHeaderParser.ORIENTATION_UNDEFINED, parse(lossless, true));
+
+		// extended: flags, reserved, 24 bit canvas dimensions - 1
+		byte[] extended = webp('X', bytes(0, 0, 0, 0, 0x3F, 0x01, 0x00, 0xEF, 0x00, 0x00));
+		assertHeader("image/webp", 320, 240, ImageHeaderParser.ORIENTATION_UNDEFINED, parse(extended, true));
+	}
+
+	@Test
+	public void readsJpegSize() throws IOException {
+		byte[] jpeg = jpeg(app0(), sof0(320, 240));
+
+		assertHeader("image/jpeg", 320, 240, ImageHeaderParser.ORIENTATION_UNDEFINED, parse(jpeg, true));
+	}
+
+	@Test
+	public void readsBigEndianExifOrientation() throws IOException {
+		byte[] jpeg = jpeg(app1Exif(true, ORIENTATION_ROTATE_90, 0), sof0(320, 240));
+
+		assertHeader("image/jpeg", 320, 240, ORIENTATION_ROTATE_90, parse(jpeg, true));
+	}
+
+	@Test
+	public void readsLittleEndianExifOrientation() throws IOException {
+		byte[] jpeg = jpeg(app1Exif(false, ORIENTATION_ROTATE_270, 0), sof0(320, 240));
+
+		assertHeader("image/jpeg", 320, 240, ORIENTATION_ROTATE_270, parse(jpeg, true));
+	}
+
+	@Test
+	public void skipsExifIfNotRequested() throws IOException {
+		byte[] jpeg = jpeg(app1Exif(true, ORIENTATION_ROTATE_90, 0), sof0(320, 240));
+
+		assertHeader("image/jpeg", 320, 240, ImageHeaderParser.ORIENTATION_UNDEFINED, parse(jpeg, false));
+	}
+
+	@Test
+	public void returnsNullForTruncatedInput() throws IOException {
+		byte[] jpeg = jpeg(app1Exif(true, ORIENTATION_ROTATE_90, 0), sof0(320, 240));
+		// the frame header ends 10 component bytes and the 6 bytes of scan header and EOI before the end
+		int frameHeaderEnd = jpeg.length - 16;
+		assertHeader("image/jpeg", 320, 240, ORIENTATION_ROTATE_90, parse(Arrays.copyOf(jpeg, frameHeaderEnd), true));
+		for (int length = 0; length < frameHeaderEnd; length++) {
+			assertNull("JPEG of " + length + " bytes", parse(Arrays.copyOf(jpeg, length), true));
+		}
+
+		byte[] png = bytes(0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 13, 'I', 'H', 'D', 'R', 0, 0);
+		assertNull(parse(png, true));
+		assertNull(parse(bytes('G', 'I', 'F', '8'), true));
+		assertNull(parse(bytes('R', 'I', 'F', 'F'), true));
+	}
+
+	@Test
+	public void returnsNullForUnknownFormat() throws IOException {
+		assertNull(parse(bytes('B', 'M', 0, 0, 0, 0, 0, 0, 0, 0), true));
+		assertNull(parse(new byte[0], true));
+	}
+
+	@Test
+	public void returnsNullIfExifSegmentExceedsHeaderLimit() throws IOException {
+		// the biggest possible APP1 segment, with the segment before it the frame header is out of reach
+		byte[] jpeg = jpeg(app0(), app1Exif(true, ORIENTATION_ROTATE_90, 0xFFFF - 2 - 32), sof0(320, 240));
+		assertTrue(jpeg.length > ImageHeaderParser.MAX_HEADER_SIZE);
+
+		assertNull(parse(jpeg, true));
+		assertNull(parse(jpeg, false));
+	}
+
+	@Test
+	public void readsSizeAfterBigExifSegmentWithinHeaderLimit() throws IOException {
+		byte[] jpeg = jpeg(app1Exif(true, ORIENTATION_ROTATE_90, 60 * 1024), sof0(320, 240));
+
+		assertHeader("image/jpeg", 320, 240, ORIENTATION_ROTATE_90, parse(jpeg, true));
+	}
+
+	private static ImageHeader parse(byte[] image, boolean readExif) throws IOException {
+		return ImageHeaderParser.parse(new ByteArrayInputStream(image), readExif);
+	}
+
+	private static void assertHeader(String mimeType, int width, int height, int orientation, ImageHeader header) {
+		assertEquals(mimeType, header.mimeType);
+		assertEquals(width, header.width);
+		assertEquals(height, header.height);
+		assertEquals(orientation, header.orientation);
+	}
+
+	private static byte[] webp(char format, byte[] data) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		write(out, bytes('R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P', 'V', 'P', '8', format, data.length, 0, 0, 0));
+		write(out, data);
+		return out.toByteArray();
+	}
+
+	private static byte[] jpeg(byte[]... segments) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		write(out, bytes(0xFF, 0xD8));
+		for (byte[] segment : segments) {
+			write(out, segment);
+		}
+		write(out, bytes(0xFF, 0xDA, 0, 2, 0xFF, 0xD9));
+		return out.toByteArray();
+	}
+
+	private static byte[] app0() {
+		return segment(0xE0, bytes('J', 'F', 'I', 'F', 0, 1, 1, 0, 0, 1, 0, 1, 0, 0));
+	}
+
+	private static byte[] sof0(int width, int height) {
+		return segment(0xC0, bytes(8, height >> 8, height & 0xFF, width >> 8, width & 0xFF, 3,
+				1, 0x22, 0, 2, 0x11, 1, 3, 0x11, 1));
+	}
+
+	/** EXIF with one IFD entry, the orientation, followed by padding bytes */
+	private static byte[] app1Exif(boolean bigEndian, int orientation, int padding) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		write(out, bytes('E', 'x', 'i', 'f', 0, 0));
+		write(out, bigEndian ? bytes('M', 'M') : bytes('I', 'I'));
+		write(out, uint16(42, bigEndian));
+		write(out, uint32(8, bigEndian)); // IFD offset
+		write(out, uint16(1, bigEndian)); // entry count
+		write(out, uint16(0x0112, bigEndian)); // orientation tag
+		write(out, uint16(3, bigEndian)); // SHORT
+		write(out, uint32(1, bigEndian)); // value count
+		write(out, uint16(orientation, bigEndian));
+		write(out, uint16(0, bigEndian));
+		write(out, uint32(0, bigEndian)); // next IFD offset
+		write(out, new byte[padding]);
+		return segment(0xE1, out.toByteArray());
+	}
+
+	private static byte[] segment(int marker, byte[] data) {
+		assertTrue(data.length + 2 <= 0xFFFF);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		write(out, bytes(0xFF, marker));
+		write(out, uint16(data.length + 2, true));
+		write(out, data);
+		return out.toByteArray();
+	}
+
+	private static byte[] uint16(int value, boolean bigEndian) {
+		return bigEndian ? bytes(value >> 8, value & 0xFF) : bytes(value & 0xFF, value >> 8);
+	}
+
+	private static byte[] uint32(int value, boolean bigEndian) {
+		return bigEndian ? bytes(value >>> 24, (value >> 16) & 0xFF, (value >> 8) & 0xFF, value & 0xFF)
+				: bytes(value & 0xFF, (value >> 8) & 0xFF, (value >> 16) & 0xFF, value >>> 24);
+	}
+
+	private static byte[] bytes(int... values) {
+		byte[] bytes = new byte[values.length];
+		for (int i = 0; i < values.length; i++) {
+			bytes[i] = (byte) values[i];
+		}
+		return bytes;
+	}
+
+	private static void write(ByteArrayOutputStream out, byte[] bytes) {
+		out.write(bytes, 0, bytes.length);
+	}
+}
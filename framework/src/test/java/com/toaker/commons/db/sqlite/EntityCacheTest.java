@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright 2013-2014 Toaker framework-master
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.toaker.commons.db.sqlite;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class EntityCacheTest {
+
+    private static final String FIND_PARENTS = "SELECT * FROM Parent";
+
+    private static final String FIND_CHILDREN = "SELECT * FROM Child";
+
+    private EntityCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new EntityCache();
+        cache.setQueryCacheSize(10);
+        cache.putQueryResult("Parent", FIND_PARENTS, "parents", 0);
+        cache.putQueryResult("Child", FIND_CHILDREN, "children", 0);
+    }
+
+    @Test
+    public void invalidatesTableNamedInOtherCase() {
+        cache.invalidateSql("delete from PARENT where id = 1", false);
+
+        assertNull(cache.getQueryResult(FIND_PARENTS));
+        assertEquals("children", cache.getQueryResult(FIND_CHILDREN));
+    }
+
+    @Test
+    public void invalidatesTableNamedInOtherCaseAgainAfterTransaction() {
+        cache.invalidateSql("insert into parent (name) values ('a')", true);
+        assertNull(cache.getQueryResult(FIND_PARENTS));
+
+        // a find racing with the transaction
+        cache.putQueryResult("Parent", FIND_PARENTS, "parents", cache.getVersion("Parent"));
+        cache.flushDirty();
+
+        assertNull(cache.getQueryResult(FIND_PARENTS));
+        assertEquals("children", cache.getQueryResult(FIND_CHILDREN));
+    }
+}
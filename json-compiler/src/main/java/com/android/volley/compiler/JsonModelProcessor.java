@@ -0,0 +1,425 @@
+/*******************************************************************************
+ * Copyright 2013-2014 Toaker framework-master
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.android.volley.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Decorator for framework-master
+ *
+ * Generates the {@code JsonModelAdapter} of every class annotated with {@code @JsonModel}
+ * that doesn't name its own adapter. The adapter of {@code com.example.User} is
+ * {@code com.example.User$$JsonAdapter}, it assigns the fields directly, so binding a model
+ * needs no reflection. Fields are bound like Gson's reflective adapter does: the fields of
+ * the class and its superclasses except static and transient ones, named by
+ * {@code @SerializedName} if present. They may not be private or final.
+ *
+ * Put this module on the annotation processor path of the module declaring the models,
+ * e.g. {@code provided project(':json-compiler')}.
+ *
+ * @author Toaker [Toaker](ToakerQin@gmail.com)
+ *         [Toaker](http://www.toaker.com)
+ * @Time Create by 2026/10/19 10:20
+ */
+@SupportedAnnotationTypes(JsonModelProcessor.JSON_MODEL)
+public class JsonModelProcessor extends AbstractProcessor {
+
+    static final String JSON_MODEL = "com.android.volley.toolbox.JsonModel";
+
+    /** Must match the suffix {@code JsonModelAdapterFactory} looks up. */
+    static final String ADAPTER_SUFFIX = "$$JsonAdapter";
+
+    private static final String JSON_MODEL_ADAPTER = "com.android.volley.toolbox.JsonModelAdapter";
+
+    private static final String SERIALIZED_NAME = "com.google.gson.annotations.SerializedName";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                TypeElement model = (TypeElement) element;
+                if (!usesGeneratedAdapter(model)) {
+                    continue;
+                }
+                try {
+                    writeAdapter(model, collectFields(model));
+                } catch (ModelException e) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), e.element);
+                } catch (IOException e) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                            "Could not write the adapter of " + model.getQualifiedName() + ": " + e.getMessage(), model);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return false if the annotation names a hand-written adapter
+     */
+    private boolean usesGeneratedAdapter(TypeElement model) {
+        AnnotationValue adapter = getAnnotationValue(model, JSON_MODEL, "adapter");
+        if (adapter == null) {
+            return true;
+        }
+        TypeElement adapterType = (TypeElement) ((DeclaredType) adapter.getValue()).asElement();
+        return adapterType.getQualifiedName().contentEquals(JSON_MODEL_ADAPTER);
+    }
+
+    private List<JsonField> collectFields(TypeElement model) throws ModelException {
+        if (model.getKind() != ElementKind.CLASS || model.getModifiers().contains(Modifier.ABSTRACT)) {
+            throw new ModelException(model, "@JsonModel must be put on a concrete class");
+        }
+        if (model.getModifiers().contains(Modifier.PRIVATE)) {
+            throw new ModelException(model, "@JsonModel classes may not be private");
+        }
+        if (model.getNestingKind() != NestingKind.TOP_LEVEL && !model.getModifiers().contains(Modifier.STATIC)) {
+            throw new ModelException(model, "@JsonModel classes must be top-level or static");
+        }
+        if (!model.getTypeParameters().isEmpty()) {
+            throw new ModelException(model, "@JsonModel classes may not be generic");
+        }
+        checkConstructor(model);
+
+        DeclaredType modelType = (DeclaredType) model.asType();
+        PackageElement modelPackage = processingEnv.getElementUtils().getPackageOf(model);
+        List<JsonField> fields = new ArrayList<JsonField>();
+        Set<String> names = new HashSet<String>();
+        TypeElement type = model;
+        while (type != null && !type.getQualifiedName().contentEquals("java.lang.Object")) {
+            boolean samePackage = processingEnv.getElementUtils().getPackageOf(type).equals(modelPackage);
+            for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+                    continue;
+                }
+                if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL)) {
+                    throw new ModelException(field, "Fields of @JsonModel classes may not be private or final");
+                }
+                if (!samePackage && !modifiers.contains(Modifier.PUBLIC)) {
+                    throw new ModelException(field, "Field " + field.getSimpleName() + " of " + type.getQualifiedName()
+                            + " is not visible to the adapter of " + model.getQualifiedName());
+                }
+                JsonField jsonField = new JsonField(field,
+                        processingEnv.getTypeUtils().asMemberOf(modelType, field), getJsonName(field));
+                if (!names.add(jsonField.jsonName)) {
+                    throw new ModelException(field, model.getQualifiedName()
+                            + " declares multiple JSON fields named " + jsonField.jsonName);
+                }
+                fields.add(jsonField);
+            }
+            TypeMirror superclass = type.getSuperclass();
+            type = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+        return fields;
+    }
+
+    private void checkConstructor(TypeElement model) throws ModelException {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(model.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return;
+            }
+        }
+        throw new ModelException(model, "@JsonModel classes need a non-private no-arg constructor");
+    }
+
+    private String getJsonName(VariableElement field) {
+        AnnotationValue name = getAnnotationValue(field, SERIALIZED_NAME, "value");
+        return name != null ? (String) name.getValue() : field.getSimpleName().toString();
+    }
+
+    private static AnnotationValue getAnnotationValue(Element element, String annotation, String name) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement type = (TypeElement) mirror.getAnnotationType().asElement();
+            if (!type.getQualifiedName().contentEquals(annotation)) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                    : mirror.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals(name)) {
+                    return entry.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    private void writeAdapter(TypeElement model, List<JsonField> fields) throws IOException {
+        String packageName = processingEnv.getElementUtils().getPackageOf(model).getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(model).toString();
+        String adapterName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+                + ADAPTER_SUFFIX;
+        String modelName = model.getQualifiedName().toString();
+
+        StringBuilder code = new StringBuilder();
+        code.append("// Generated by ").append(JsonModelProcessor.class.getName()).append(", do not modify.\n");
+        if (!packageName.isEmpty()) {
+            code.append("package ").append(packageName).append(";\n\n");
+        }
+        code.append("import com.android.volley.toolbox.JsonModelAdapter;\n");
+        code.append("import com.google.gson.TypeAdapter;\n");
+        code.append("import com.google.gson.internal.bind.TypeAdapters;\n");
+        code.append("import com.google.gson.reflect.TypeToken;\n");
+        code.append("import com.google.gson.stream.JsonReader;\n");
+        code.append("import com.google.gson.stream.JsonToken;\n");
+        code.append("import com.google.gson.stream.JsonWriter;\n\n");
+        code.append("import java.io.IOException;\n\n");
+        code.append("public final class ").append(adapterName)
+                .append(" extends JsonModelAdapter<").append(modelName).append("> {\n");
+
+        for (JsonField field : fields) {
+            if (field.kind == Kind.OTHER) {
+                code.append("\n    private TypeAdapter<").append(field.boxedType).append("> ")
+                        .append(field.adapterField()).append(";\n");
+            }
+        }
+
+        code.append("\n    @Override\n");
+        code.append("    protected ").append(modelName).append(" newInstance() {\n");
+        code.append("        return new ").append(modelName).append("();\n");
+        code.append("    }\n");
+
+        code.append("\n    @Override\n");
+        code.append("    protected boolean readField(JsonReader in, String name, ").append(modelName)
+                .append(" model) throws IOException {\n");
+        for (int i = 0; i < fields.size(); i++) {
+            JsonField field = fields.get(i);
+            code.append(i == 0 ? "        if (" : " else if (").append(literal(field.jsonName))
+                    .append(".equals(name)) {\n");
+            field.appendRead(code);
+            code.append("        }");
+        }
+        if (fields.isEmpty()) {
+            code.append("        return false;\n");
+        } else {
+            code.append(" else {\n            return false;\n        }\n        return true;\n");
+        }
+        code.append("    }\n");
+
+        code.append("\n    @Override\n");
+        code.append("    protected void writeFields(JsonWriter out, ").append(modelName)
+                .append(" model) throws IOException {\n");
+        for (JsonField field : fields) {
+            field.appendWrite(code);
+        }
+        code.append("    }\n");
+
+        for (JsonField field : fields) {
+            if (field.kind == Kind.OTHER) {
+                field.appendAdapterGetter(code);
+            }
+        }
+        code.append("}\n");
+
+        String qualifiedName = packageName.isEmpty() ? adapterName : packageName + "." + adapterName;
+        Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, model).openWriter();
+        try {
+            writer.write(code.toString());
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static String literal(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                literal.append('\\').append(c);
+            } else if (c < 0x20 || c > 0x7E) {
+                literal.append(String.format("\\u%04x", (int) c));
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    /** How a field is read and written, the primitives and strings skip the Gson lookup. */
+    private enum Kind {
+        BOOLEAN, BYTE, SHORT, INT, LONG, FLOAT, DOUBLE, STRING, OTHER
+    }
+
+    private final class JsonField {
+
+        final String name;
+        final String jsonName;
+        final Kind kind;
+        final boolean primitive;
+        /** The type of the field, boxed if it is a primitive. */
+        final String boxedType;
+
+        JsonField(VariableElement field, TypeMirror type, String jsonName) {
+            this.name = field.getSimpleName().toString();
+            this.jsonName = jsonName;
+            this.kind = kindOf(type);
+            this.primitive = type.getKind().isPrimitive();
+            this.boxedType = primitive
+                    ? processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString()
+                    : type.toString();
+        }
+
+        private Kind kindOf(TypeMirror type) {
+            switch (type.getKind()) {
+                case BOOLEAN:
+                    return Kind.BOOLEAN;
+                case BYTE:
+                    return Kind.BYTE;
+                case SHORT:
+                    return Kind.SHORT;
+                case INT:
+                    return Kind.INT;
+                case LONG:
+                    return Kind.LONG;
+                case FLOAT:
+                    return Kind.FLOAT;
+                case DOUBLE:
+                    return Kind.DOUBLE;
+                case DECLARED:
+                    TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+                    return element.getQualifiedName().contentEquals("java.lang.String") ? Kind.STRING : Kind.OTHER;
+                default:
+                    return Kind.OTHER;
+            }
+        }
+
+        String adapterField() {
+            return "m" + Character.toUpperCase(name.charAt(0)) + name.substring(1) + "Adapter";
+        }
+
+        private String adapterGetter() {
+            return name + "Adapter";
+        }
+
+        void appendRead(StringBuilder code) {
+            String target = "            model." + name;
+            switch (kind) {
+                case BOOLEAN:
+                    code.append("            Boolean value = TypeAdapters.BOOLEAN.read(in);\n");
+                    code.append("            if (value != null) {\n");
+                    code.append("    ").append(target).append(" = value;\n");
+                    code.append("            }\n");
+                    break;
+                case BYTE:
+                case SHORT:
+                case INT:
+                case LONG:
+                    String adapter = kind == Kind.INT ? "INTEGER" : kind.name();
+                    code.append("            Number value = TypeAdapters.").append(adapter).append(".read(in);\n");
+                    code.append("            if (value != null) {\n");
+                    code.append("    ").append(target).append(" = value.")
+                            .append(kind == Kind.INT ? "int" : kind.name().toLowerCase()).append("Value();\n");
+                    code.append("            }\n");
+                    break;
+                case FLOAT:
+                case DOUBLE:
+                    code.append("            if (in.peek() == JsonToken.NULL) {\n");
+                    code.append("                in.nextNull();\n");
+                    code.append("            } else {\n");
+                    code.append("    ").append(target).append(" = ")
+                            .append(kind == Kind.FLOAT ? "(float) " : "").append("in.nextDouble();\n");
+                    code.append("            }\n");
+                    break;
+                case STRING:
+                    code.append(target).append(" = TypeAdapters.STRING.read(in);\n");
+                    break;
+                default:
+                    if (primitive) {
+                        // a char, it keeps its value on null like the other primitives
+                        code.append("            Character value = ").append(adapterGetter()).append("().read(in);\n");
+                        code.append("            if (value != null) {\n");
+                        code.append("    ").append(target).append(" = value;\n");
+                        code.append("            }\n");
+                    } else {
+                        code.append(target).append(" = ").append(adapterGetter()).append("().read(in);\n");
+                    }
+                    break;
+            }
+        }
+
+        void appendWrite(StringBuilder code) {
+            String value = "model." + name;
+            switch (kind) {
+                case FLOAT:
+                    // written as a Number like Gson does, not widened to a double
+                    code.append("        out.name(").append(literal(jsonName)).append(").value(Float.valueOf(")
+                            .append(value).append("));\n");
+                    break;
+                case OTHER:
+                    code.append("        ").append(adapterGetter()).append("().write(out.name(")
+                            .append(literal(jsonName)).append("), ").append(value).append(");\n");
+                    break;
+                default:
+                    code.append("        out.name(").append(literal(jsonName)).append(").value(")
+                            .append(value).append(");\n");
+                    break;
+            }
+        }
+
+        void appendAdapterGetter(StringBuilder code) {
+            String type = "TypeAdapter<" + boxedType + ">";
+            code.append("\n    private ").append(type).append(" ").append(adapterGetter()).append("() {\n");
+            code.append("        if (").append(adapterField()).append(" == null) {\n");
+            code.append("            ").append(adapterField()).append(" = getGson().getAdapter(new TypeToken<")
+                    .append(boxedType).append(">() {\n            });\n");
+            code.append("        }\n");
+            code.append("        return ").append(adapterField()).append(";\n");
+            code.append("    }\n");
+        }
+    }
+
+    private static final class ModelException extends Exception {
+
+        final Element element;
+
+        ModelException(Element element, String message) {
+            super(message);
+            this.element = element;
+        }
+    }
+}